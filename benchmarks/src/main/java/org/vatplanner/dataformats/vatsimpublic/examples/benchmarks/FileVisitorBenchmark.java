@@ -0,0 +1,83 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.FileVisitor;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileFormat;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FileVisitorBenchmark {
+
+    @Param({ "PLAIN", "GZ", "BZ2", "XZ", "TAR_XZ" })
+    public SyntheticDataFiles.Container container;
+
+    @Param({ "20" })
+    public int numSnapshots;
+
+    @Param({ "1000" })
+    public int numPilots;
+
+    private File directory;
+    private CommandLine parameters;
+
+    private final char[] buffer = new char[64 * 1024];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Fixtures.createDirectory("filevisitor");
+        new SyntheticDataFiles(numPilots, numPilots / 10).write(
+            directory,
+            DataFileFormat.JSON3,
+            container,
+            numSnapshots //
+        );
+        parameters = Fixtures.readParameters(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public long visitAll() {
+        long[] numChars = new long[1];
+        new FileVisitor(parameters).visit(reader -> numChars[0] += drain(reader));
+        return numChars[0];
+    }
+
+    private long drain(BufferedReader reader) {
+        long total = 0;
+        try {
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                total += read;
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return total;
+    }
+}
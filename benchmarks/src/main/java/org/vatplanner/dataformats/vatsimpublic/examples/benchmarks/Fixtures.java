@@ -0,0 +1,51 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.FileVisitor;
+
+public class Fixtures {
+
+    private Fixtures() {
+        // utility class
+    }
+
+    public static File createDirectory(String purpose) throws IOException {
+        return Files.createTempDirectory("benchmark-" + purpose).toFile();
+    }
+
+    public static void delete(File directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    public static CommandLine parse(Options options, String... args) {
+        try {
+            return new DefaultParser().parse(options, args);
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("invalid benchmark parameters", ex);
+        }
+    }
+
+    public static CommandLine readParameters(File directory) {
+        Options options = new Options();
+        FileVisitor.addOptions(options);
+        return parse(options, "-" + FileVisitor.OPTION_NAME_READ_PATH, directory.getAbsolutePath());
+    }
+}
@@ -0,0 +1,67 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.DefaultStatusEntityFactory;
+import org.vatplanner.dataformats.vatsimpublic.graph.GraphImport;
+import org.vatplanner.dataformats.vatsimpublic.graph.GraphIndex;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileFormat;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileParserFactory;
+import org.vatplanner.dataformats.vatsimpublic.parser.Parser;
+
+/**
+ * Measures importing a series of already parsed data files into a new graph;
+ * one operation imports all snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GraphImportBenchmark {
+
+    @Param({ "40" })
+    public int numSnapshots;
+
+    @Param({ "1000" })
+    public int numPilots;
+
+    private final List<DataFile> dataFiles = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Parser<DataFile> parser = new DataFileParserFactory().createDataFileParser(DataFileFormat.JSON3);
+        SyntheticDataFiles generator = new SyntheticDataFiles(numPilots, numPilots / 10);
+        for (int i = 0; i < numSnapshots; i++) {
+            String content = generator.generate(DataFileFormat.JSON3, i);
+            dataFiles.add(parser.deserialize(new BufferedReader(new StringReader(content))));
+        }
+    }
+
+    @Benchmark
+    public GraphIndex importAll() {
+        GraphImport graphImport = new GraphImport(new DefaultStatusEntityFactory());
+        for (DataFile dataFile : dataFiles) {
+            graphImport.importDataFile(dataFile);
+        }
+        return graphImport.getIndex();
+    }
+}
@@ -0,0 +1,51 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileFormat;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileParserFactory;
+import org.vatplanner.dataformats.vatsimpublic.parser.Parser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({ "LEGACY", "JSON3" })
+    public DataFileFormat format;
+
+    @Param({ "1000" })
+    public int numPilots;
+
+    private Parser<DataFile> parser;
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parser = new DataFileParserFactory().createDataFileParser(format);
+        content = new SyntheticDataFiles(numPilots, numPilots / 10).generate(format, 0);
+    }
+
+    @Benchmark
+    public DataFile deserialize() {
+        return parser.deserialize(new BufferedReader(new StringReader(content)));
+    }
+}
@@ -0,0 +1,304 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileFormat;
+
+/**
+ * Generates synthetic data files of a simulated network with a fixed number of
+ * pilots moving along straight tracks and stationary controllers.
+ */
+public class SyntheticDataFiles {
+
+    private static final Instant START_TIME = Instant.parse("2022-01-01T00:00:00Z");
+    private static final int SNAPSHOT_INTERVAL_SECONDS = 15;
+
+    private static final DateTimeFormatter COMPACT_TIMESTAMP = DateTimeFormatter
+        .ofPattern("yyyyMMddHHmmss")
+        .withZone(ZoneOffset.UTC);
+
+    private static final String[] AIRPORTS = { "EDDF", "EGLL", "KJFK", "LFPG", "EHAM", "LEMD", "KLAX", "RJTT" };
+    private static final String[] AIRCRAFT = { "B738", "A320", "B77W", "A359", "C172", "E190" };
+
+    private final int numPilots;
+    private final int numControllers;
+
+    public enum Container {
+        PLAIN(""),
+        GZ(".gz"),
+        BZ2(".bz2"),
+        XZ(".xz"),
+        TAR_XZ(".tar.xz");
+
+        private final String extension;
+
+        private Container(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    public SyntheticDataFiles(int numPilots, int numControllers) {
+        this.numPilots = numPilots;
+        this.numControllers = numControllers;
+    }
+
+    public static Instant getRecordTime(int snapshotIndex) {
+        return START_TIME.plusSeconds((long) snapshotIndex * SNAPSHOT_INTERVAL_SECONDS);
+    }
+
+    public String generate(DataFileFormat format, int snapshotIndex) {
+        switch (format) {
+            case LEGACY:
+                return generateLegacy(snapshotIndex);
+            case JSON3:
+                return generateJson3(snapshotIndex);
+            default:
+                throw new IllegalArgumentException("unsupported format: " + format);
+        }
+    }
+
+    // archives hold all snapshots in a single file, all other containers are written
+    // as one file per snapshot
+    public void write(File directory, DataFileFormat format, Container container, int numSnapshots) throws IOException {
+        String baseExtension = (format == DataFileFormat.LEGACY) ? ".txt" : ".json";
+
+        if (container == Container.TAR_XZ) {
+            File file = new File(directory, "vatsim-data" + container.extension);
+            try (TarArchiveOutputStream tos = new TarArchiveOutputStream(
+                new XZCompressorOutputStream(new BufferedOutputStream(new FileOutputStream(file))) //
+            )) {
+                for (int i = 0; i < numSnapshots; i++) {
+                    byte[] bytes = generate(format, i).getBytes(StandardCharsets.ISO_8859_1);
+                    TarArchiveEntry entry = new TarArchiveEntry(fileName(i, baseExtension));
+                    entry.setSize(bytes.length);
+                    tos.putArchiveEntry(entry);
+                    tos.write(bytes);
+                    tos.closeArchiveEntry();
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < numSnapshots; i++) {
+            File file = new File(directory, fileName(i, baseExtension) + container.extension);
+            try (OutputStream os = wrap(container, new BufferedOutputStream(new FileOutputStream(file)))) {
+                os.write(generate(format, i).getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    private static String fileName(int snapshotIndex, String extension) {
+        return "vatsim-data_" + COMPACT_TIMESTAMP.format(getRecordTime(snapshotIndex)) + extension;
+    }
+
+    private static OutputStream wrap(Container container, OutputStream os) throws IOException {
+        switch (container) {
+            case PLAIN:
+                return os;
+            case GZ:
+                return new GzipCompressorOutputStream(os);
+            case BZ2:
+                return new BZip2CompressorOutputStream(os);
+            case XZ:
+                return new XZCompressorOutputStream(os);
+            default:
+                throw new IllegalArgumentException("unsupported container: " + container);
+        }
+    }
+
+    private static class PilotState {
+        final int vatsimId;
+        final String callsign;
+        final String realName;
+        final String departure;
+        final String destination;
+        final String aircraft;
+        final double latitude;
+        final double longitude;
+        final int altitude;
+        final int groundSpeed;
+        final int heading;
+        final int transponder;
+        final Instant logonTime;
+
+        PilotState(int pilotIndex, int snapshotIndex) {
+            Random random = new Random(pilotIndex);
+            vatsimId = 1_000_000 + pilotIndex;
+            callsign = "SYN" + pilotIndex;
+            realName = "Synthetic Pilot " + pilotIndex;
+            departure = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            destination = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            aircraft = AIRCRAFT[random.nextInt(AIRCRAFT.length)];
+            heading = random.nextInt(360);
+            groundSpeed = 250 + random.nextInt(250);
+            altitude = 10000 + random.nextInt(30) * 1000;
+            transponder = random.nextInt(8) * 1000 + random.nextInt(8) * 100 + random.nextInt(8) * 10 + random.nextInt(8);
+            logonTime = START_TIME.minusSeconds(random.nextInt(3600));
+
+            double startLatitude = random.nextDouble() * 120.0 - 60.0;
+            double startLongitude = random.nextDouble() * 340.0 - 170.0;
+            double distanceDegrees = groundSpeed / 60.0 * snapshotIndex * SNAPSHOT_INTERVAL_SECONDS / 3600.0;
+            latitude = Math.max(-89.0, Math.min(89.0, startLatitude + distanceDegrees * Math.cos(Math.toRadians(heading))));
+            longitude = normalizeLongitude(startLongitude + distanceDegrees * Math.sin(Math.toRadians(heading)));
+        }
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        double normalized = longitude % 360.0;
+        if (normalized > 180.0) {
+            normalized -= 360.0;
+        } else if (normalized < -180.0) {
+            normalized += 360.0;
+        }
+        return normalized;
+    }
+
+    private String controllerCallsign(int controllerIndex) {
+        return AIRPORTS[controllerIndex % AIRPORTS.length] + "_" + (controllerIndex / AIRPORTS.length) + "_TWR";
+    }
+
+    private int controllerFrequencyKilohertz(int controllerIndex) {
+        return 118000 + (controllerIndex % 400) * 25;
+    }
+
+    private String generateJson3(int snapshotIndex) {
+        Instant recordTime = getRecordTime(snapshotIndex);
+        StringBuilder sb = new StringBuilder(1024 * (numPilots + numControllers + 1));
+
+        sb.append("{\n  \"general\": {\n");
+        sb.append("    \"version\": 3,\n");
+        sb.append("    \"reload\": 1,\n");
+        sb.append("    \"update\": \"").append(COMPACT_TIMESTAMP.format(recordTime)).append("\",\n");
+        sb.append("    \"update_timestamp\": \"").append(recordTime).append("\",\n");
+        sb.append("    \"connected_clients\": ").append(numPilots + numControllers).append(",\n");
+        sb.append("    \"unique_users\": ").append(numPilots + numControllers).append("\n");
+        sb.append("  },\n  \"pilots\": [");
+
+        for (int i = 0; i < numPilots; i++) {
+            PilotState pilot = new PilotState(i, snapshotIndex);
+            sb.append((i > 0) ? ",\n" : "\n");
+            sb.append("    {\"cid\": ").append(pilot.vatsimId);
+            sb.append(", \"name\": \"").append(pilot.realName);
+            sb.append("\", \"callsign\": \"").append(pilot.callsign);
+            sb.append("\", \"server\": \"SYNTH\", \"pilot_rating\": 0");
+            sb.append(", \"latitude\": ").append(String.format(Locale.US, "%.5f", pilot.latitude));
+            sb.append(", \"longitude\": ").append(String.format(Locale.US, "%.5f", pilot.longitude));
+            sb.append(", \"altitude\": ").append(pilot.altitude);
+            sb.append(", \"groundspeed\": ").append(pilot.groundSpeed);
+            sb.append(", \"transponder\": \"").append(String.format("%04d", pilot.transponder));
+            sb.append("\", \"heading\": ").append(pilot.heading);
+            sb.append(", \"qnh_i_hg\": 29.92, \"qnh_mb\": 1013");
+            sb.append(", \"flight_plan\": {\"flight_rules\": \"I\"");
+            sb.append(", \"aircraft\": \"").append(pilot.aircraft).append("/L");
+            sb.append("\", \"aircraft_faa\": \"").append(pilot.aircraft).append("/L");
+            sb.append("\", \"aircraft_short\": \"").append(pilot.aircraft);
+            sb.append("\", \"departure\": \"").append(pilot.departure);
+            sb.append("\", \"arrival\": \"").append(pilot.destination);
+            sb.append("\", \"alternate\": \"\", \"cruise_tas\": \"").append(pilot.groundSpeed);
+            sb.append("\", \"altitude\": \"").append(pilot.altitude);
+            sb.append("\", \"deptime\": \"0000\", \"enroute_time\": \"0130\", \"fuel_time\": \"0300\"");
+            sb.append(", \"remarks\": \"/V/ SYNTHETIC\", \"route\": \"DCT\", \"revision_id\": 1");
+            sb.append(", \"assigned_transponder\": \"0000\"}");
+            sb.append(", \"logon_time\": \"").append(pilot.logonTime);
+            sb.append("\", \"last_updated\": \"").append(recordTime).append("\"}");
+        }
+
+        sb.append("\n  ],\n  \"controllers\": [");
+        for (int i = 0; i < numControllers; i++) {
+            int frequency = controllerFrequencyKilohertz(i);
+            sb.append((i > 0) ? ",\n" : "\n");
+            sb.append("    {\"cid\": ").append(2_000_000 + i);
+            sb.append(", \"name\": \"Synthetic Controller ").append(i);
+            sb.append("\", \"callsign\": \"").append(controllerCallsign(i));
+            sb.append("\", \"frequency\": \"").append(frequency / 1000).append('.');
+            sb.append(String.format("%03d", frequency % 1000));
+            sb.append("\", \"facility\": 4, \"rating\": 3, \"server\": \"SYNTH\", \"visual_range\": 50");
+            sb.append(", \"text_atis\": [\"synthetic controller\", \"for benchmarks\"]");
+            sb.append(", \"last_updated\": \"").append(recordTime);
+            sb.append("\", \"logon_time\": \"").append(START_TIME).append("\"}");
+        }
+
+        sb.append("\n  ],\n  \"atis\": [],\n  \"servers\": [\n");
+        sb.append("    {\"ident\": \"SYNTH\", \"hostname_or_ip\": \"127.0.0.1\", \"location\": \"Localhost\"");
+        sb.append(", \"name\": \"SYNTH\", \"clients_connection_allowed\": 1, \"client_connections_allowed\": true");
+        sb.append(", \"is_sweatbox\": false}\n");
+        sb.append("  ],\n  \"prefiles\": [],\n");
+        sb.append("  \"facilities\": [{\"id\": 0, \"short\": \"OBS\", \"long\": \"Observer\"}");
+        sb.append(", {\"id\": 4, \"short\": \"TWR\", \"long\": \"Tower\"}],\n");
+        sb.append("  \"ratings\": [{\"id\": 3, \"short\": \"S2\", \"long\": \"Tower Controller\"}],\n");
+        sb.append("  \"pilot_ratings\": [{\"id\": 0, \"short_name\": \"NEW\", \"long_name\": \"Basic Member\"}]\n");
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    private String generateLegacy(int snapshotIndex) {
+        Instant recordTime = getRecordTime(snapshotIndex);
+        StringBuilder sb = new StringBuilder(512 * (numPilots + numControllers + 1));
+
+        sb.append("; synthetic data file for benchmarks\n;\n");
+        sb.append("!GENERAL:\n");
+        sb.append("VERSION = 9\n");
+        sb.append("RELOAD = 1\n");
+        sb.append("UPDATE = ").append(COMPACT_TIMESTAMP.format(recordTime)).append('\n');
+        sb.append("ATIS ALLOW MIN = 5\n");
+        sb.append("CONNECTED CLIENTS = ").append(numPilots + numControllers).append('\n');
+        sb.append(";\n!VOICE SERVERS:\n;\n!CLIENTS:\n");
+
+        for (int i = 0; i < numPilots; i++) {
+            PilotState pilot = new PilotState(i, snapshotIndex);
+            sb.append(pilot.callsign).append(':');
+            sb.append(pilot.vatsimId).append(':');
+            sb.append(pilot.realName).append(':');
+            sb.append("PILOT::");
+            sb.append(String.format(Locale.US, "%.5f", pilot.latitude)).append(':');
+            sb.append(String.format(Locale.US, "%.5f", pilot.longitude)).append(':');
+            sb.append(pilot.altitude).append(':');
+            sb.append(pilot.groundSpeed).append(':');
+            sb.append(pilot.aircraft).append("/L:");
+            sb.append(pilot.groundSpeed).append(':');
+            sb.append(pilot.departure).append(':');
+            sb.append(pilot.altitude).append(':');
+            sb.append(pilot.destination).append(':');
+            sb.append("SYNTH:100:1:");
+            sb.append(String.format("%04d", pilot.transponder)).append(':');
+            sb.append("::1:I:0:0:1:30:3:0::/V/ SYNTHETIC:DCT:0:0:0:0:::");
+            sb.append(COMPACT_TIMESTAMP.format(pilot.logonTime)).append(':');
+            sb.append(pilot.heading).append(":29.92:1013:\n");
+        }
+
+        for (int i = 0; i < numControllers; i++) {
+            int frequency = controllerFrequencyKilohertz(i);
+            sb.append(controllerCallsign(i)).append(':');
+            sb.append(2_000_000 + i).append(':');
+            sb.append("Synthetic Controller ").append(i).append(':');
+            sb.append("ATC:");
+            sb.append(frequency / 1000).append('.').append(String.format("%03d", frequency % 1000)).append(':');
+            sb.append("0:0:0:0::::::SYNTH:100:3::4:50:0:::::::::::::::");
+            sb.append("synthetic controller^\u00a7for benchmarks:");
+            sb.append(COMPACT_TIMESTAMP.format(recordTime)).append(':');
+            sb.append(COMPACT_TIMESTAMP.format(START_TIME)).append(":0:0:0:\n");
+        }
+
+        sb.append(";\n!SERVERS:\n");
+        sb.append("SYNTH:127.0.0.1:Localhost:SYNTH:1:\n");
+        sb.append(";\n!PREFILE:\n;\n; END\n");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Member;
+import org.vatplanner.dataformats.vatsimpublic.examples.benchmarks.Fixtures;
+import org.vatplanner.dataformats.vatsimpublic.examples.benchmarks.SyntheticDataFiles;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.FileVisitor;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileFormat;
+
+/**
+ * Measures rendering the dump of all members of an imported graph; one
+ * operation renders all members. Located in the package of {@link Dump} to
+ * access its rendering methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DumpOutputBenchmark {
+
+    @Param({ "40" })
+    public int numSnapshots;
+
+    @Param({ "1000" })
+    public int numPilots;
+
+    private File directory;
+    private Dump dump;
+    private List<Member> members;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Fixtures.createDirectory("dump");
+        new SyntheticDataFiles(numPilots, numPilots / 10).write(
+            directory,
+            DataFileFormat.JSON3,
+            SyntheticDataFiles.Container.PLAIN,
+            numSnapshots //
+        );
+
+        Options options = new Options();
+        Dump.addOptions(options);
+        FileVisitor.addOptions(options);
+        CommandLine parameters = Fixtures.parse(
+            options,
+            "-" + FileVisitor.OPTION_NAME_READ_PATH, directory.getAbsolutePath(),
+            "-f", DataFileFormat.JSON3.name() //
+        );
+
+        dump = new Dump(parameters);
+        dump.configureParser();
+        new FileVisitor(parameters).visit(dump::importDataFile);
+
+        members = dump.getGraphIndex()
+            .getAllMembers()
+            .stream()
+            .sorted((a, b) -> Integer.compare(a.getVatsimId(), b.getVatsimId()))
+            .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public void renderAllMembers(Blackhole blackhole) {
+        for (Member member : members) {
+            blackhole.consume(dump.renderMember(member, null));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+#!/bin/bash
+
+args="$@"
+
+cd $(dirname "$0")
+
+mvn compile exec:java -Dexec.mainClass=org.vatplanner.dataformats.vatsimpublic.examples.repack.Repack -Dexec.args="${args}"
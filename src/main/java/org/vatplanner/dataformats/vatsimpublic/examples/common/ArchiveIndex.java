@@ -0,0 +1,244 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of all entries of an archive, the timestamps of the data files they
+ * hold and their position within the archive, cached in a sidecar file next to
+ * the archive.
+ * <p>
+ * Positions are offsets of entry content within the uncompressed archive
+ * stream. They are only recorded for TAR archives whose entries are stored
+ * contiguously and allow seeking directly to an entry if the archive is either
+ * uncompressed or compressed to a seekable multi-block XZ file (see
+ * {@link ArchiveRepacker}).
+ * </p>
+ * <p>
+ * The sidecar file is a text file holding one record per line, fields separated
+ * by tabs:
+ * </p>
+ * <ul>
+ * <li><code>V</code>, format version</li>
+ * <li><code>A</code>, archive size and modification time; the index is
+ * discarded if the archive does not match</li>
+ * <li><code>E</code>, data file timestamp in epoch milliseconds (<code>-</code>
+ * if unknown), content offset (<code>-</code> if unknown), content size and
+ * entry name</li>
+ * </ul>
+ */
+class ArchiveIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveIndex.class);
+
+    static final String FILE_SUFFIX = ".vpindex";
+
+    private static final int VERSION = 2;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String UNKNOWN = "-";
+
+    private final File archive;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private static class Entry {
+        final Instant timestamp;
+        final long offset;
+        final long size;
+
+        Entry(Instant timestamp, long offset, long size) {
+            this.timestamp = timestamp;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    ArchiveIndex(File archive) {
+        this.archive = archive;
+    }
+
+    static boolean isIndexFile(File file) {
+        String name = file.getName();
+        return name.endsWith(FILE_SUFFIX) || name.endsWith(FILE_SUFFIX + TEMP_SUFFIX);
+    }
+
+    private static File getIndexFile(File archive) {
+        return new File(archive.getPath() + FILE_SUFFIX);
+    }
+
+    /**
+     * Loads the cached index of given archive.
+     *
+     * @param archive archive to load index for
+     * @return index; null if not available or outdated
+     */
+    static ArchiveIndex load(File archive) {
+        File indexFile = getIndexFile(archive);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        ArchiveIndex index = new ArchiveIndex(archive);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+            boolean isVersionSupported = false;
+            boolean isArchiveUnchanged = false;
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.split("\t", 5);
+                if ("V".equals(fields[0])) {
+                    isVersionSupported = (Integer.parseInt(fields[1]) == VERSION);
+                } else if ("A".equals(fields[0])) {
+                    isArchiveUnchanged = (Long.parseLong(fields[1]) == archive.length())
+                        && (Long.parseLong(fields[2]) == archive.lastModified());
+                } else if ("E".equals(fields[0]) && (fields.length == 5)) {
+                    Instant timestamp = UNKNOWN.equals(fields[1]) ? null : Instant.ofEpochMilli(Long.parseLong(fields[1]));
+                    long offset = UNKNOWN.equals(fields[2]) ? -1 : Long.parseLong(fields[2]);
+                    index.entries.put(fields[4], new Entry(timestamp, offset, Long.parseLong(fields[3])));
+                }
+            }
+
+            if (!isVersionSupported || !isArchiveUnchanged) {
+                LOGGER.debug("discarding outdated index {}", indexFile);
+                return null;
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("failed to read archive index " + indexFile + ", index will be rebuilt", ex);
+            return null;
+        }
+
+        return index;
+    }
+
+    /**
+     * Records an entry.
+     *
+     * @param entryName name of entry
+     * @param timestamp timestamp of data file held by entry, null if unknown
+     * @param offset offset of entry content in uncompressed archive, negative if
+     *        unknown
+     * @param size size of entry content
+     */
+    void add(String entryName, Instant timestamp, long offset, long size) {
+        entries.put(entryName, new Entry(timestamp, (offset < 0) ? -1 : offset, size));
+    }
+
+    boolean contains(String entryName) {
+        return entries.containsKey(entryName);
+    }
+
+    Instant getTimestamp(String entryName) {
+        Entry entry = entries.get(entryName);
+        return (entry != null) ? entry.timestamp : null;
+    }
+
+    long getOffset(String entryName) {
+        Entry entry = entries.get(entryName);
+        return (entry != null) ? entry.offset : -1;
+    }
+
+    long getSize(String entryName) {
+        Entry entry = entries.get(entryName);
+        return (entry != null) ? entry.size : -1;
+    }
+
+    Collection<String> getEntryNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Checks if all entries can be read directly at their recorded offsets.
+     *
+     * @return true if offsets are known for all entries
+     */
+    boolean hasOffsets() {
+        for (Entry entry : entries.values()) {
+            if (entry.offset < 0) {
+                return false;
+            }
+        }
+        return !entries.isEmpty();
+    }
+
+    /**
+     * Checks if the archive may hold any relevant data file within given time
+     * window. Entries of unknown timestamp are relevant if their names are
+     * accepted by given filter.
+     *
+     * @param timeWindow time window to check
+     * @param entryNameFilter filter for entry names
+     * @return true if archive should be read
+     */
+    boolean mayContain(TimeWindow timeWindow, Predicate<String> entryNameFilter) {
+        Instant earliest = null;
+        Instant latest = null;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Instant timestamp = entry.getValue().timestamp;
+            if (timestamp == null) {
+                if (entryNameFilter.test(entry.getKey())) {
+                    return true;
+                }
+                continue;
+            }
+
+            if ((earliest == null) || timestamp.isBefore(earliest)) {
+                earliest = timestamp;
+            }
+            if ((latest == null) || timestamp.isAfter(latest)) {
+                latest = timestamp;
+            }
+        }
+
+        return (earliest != null) && timeWindow.overlaps(earliest, latest);
+    }
+
+    /**
+     * Writes the index next to the archive. Failures are only logged as the index
+     * is just a cache.
+     */
+    void save() {
+        File indexFile = getIndexFile(archive);
+        File tempFile = new File(indexFile.getPath() + TEMP_SUFFIX);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            writer.write("V\t" + VERSION + "\n");
+            writer.write("A\t" + archive.length() + "\t" + archive.lastModified() + "\n");
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                writer.write(
+                    "E\t" + ((value.timestamp != null) ? Long.toString(value.timestamp.toEpochMilli()) : UNKNOWN)
+                        + "\t" + ((value.offset >= 0) ? Long.toString(value.offset) : UNKNOWN)
+                        + "\t" + value.size
+                        + "\t" + entry.getKey() + "\n" //
+                );
+            }
+        } catch (IOException ex) {
+            LOGGER.debug("unable to write archive index " + indexFile, ex);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(indexFile)) {
+            indexFile.delete();
+            if (!tempFile.renameTo(indexFile)) {
+                LOGGER.debug("unable to move archive index to {}", indexFile);
+                tempFile.delete();
+            }
+        }
+    }
+}
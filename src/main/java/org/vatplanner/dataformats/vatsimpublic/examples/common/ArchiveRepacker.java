@@ -0,0 +1,202 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.UnsupportedOptionsException;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Repacks archives to TAR files compressed as multi-block XZ. Blocks are only
+ * ended between entries, so each entry can be read by decompressing only the
+ * blocks it is stored in. An index of all entries is written next to the
+ * repacked archive, allowing {@link FileVisitor} to seek directly to relevant
+ * entries.
+ * <p>
+ * Entries keep the order of the original archive. Timestamps are taken from
+ * an existing index of the original archive if available.
+ * </p>
+ */
+public class ArchiveRepacker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveRepacker.class);
+
+    // headers and padding are written immediately so blocks can be ended
+    // exactly between entries
+    private static final int TAR_RECORD_SIZE = 512;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final long blockSizeBytes;
+    private final LZMA2Options compressionOptions;
+
+    private final CompressorStreamFactory compressorStreamFactory = new CompressorStreamFactory();
+    private final ArchiveStreamFactory archiveStreamFactory = new ArchiveStreamFactory("UTF-8");
+
+    /**
+     * @param blockSizeBytes minimum uncompressed size of each XZ block
+     * @param preset XZ compression preset (0-9)
+     */
+    public ArchiveRepacker(long blockSizeBytes, int preset) {
+        if (blockSizeBytes < 1) {
+            throw new IllegalArgumentException("block size must be positive, got " + blockSizeBytes);
+        }
+
+        this.blockSizeBytes = blockSizeBytes;
+        try {
+            compressionOptions = new LZMA2Options(preset);
+        } catch (UnsupportedOptionsException ex) {
+            throw new IllegalArgumentException("unsupported XZ preset " + preset, ex);
+        }
+    }
+
+    /**
+     * Repacks the given archive.
+     *
+     * @param input archive to read, may be compressed in any supported format
+     * @param output file to write the repacked archive to
+     * @throws IOException if reading or writing fails
+     */
+    public void repack(File input, File output) throws IOException {
+        ArchiveIndex inputIndex = ArchiveIndex.load(input);
+        ArchiveIndex outputIndex = new ArchiveIndex(output);
+
+        int numEntries = 0;
+        int numBlocks = 1;
+        try (
+            ArchiveInputStream ais = openArchive(input);
+            XZOutputStream xzos = new XZOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output)),
+                compressionOptions //
+            );
+            CountingOutputStream cos = new CountingOutputStream(xzos);
+            TarArchiveOutputStream taos = new TarArchiveOutputStream(cos, TAR_RECORD_SIZE) //
+        ) {
+            taos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            taos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+            long blockStart = 0;
+            ArchiveEntry entry;
+            while ((entry = ais.getNextEntry()) != null) {
+                String name = entry.getName();
+
+                TarArchiveEntry outputEntry = new TarArchiveEntry(name);
+                outputEntry.setModTime(entry.getLastModifiedDate());
+
+                if (entry.isDirectory()) {
+                    taos.putArchiveEntry(outputEntry);
+                    taos.closeArchiveEntry();
+                    continue;
+                }
+
+                InputStream entryStream = new BufferedInputStream(ais, TimeWindow.HEAD_SIZE);
+                long size = entry.getSize();
+                if (size < 0) {
+                    // size must be known before writing the header
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    copy(entryStream, baos);
+                    size = baos.size();
+                    entryStream = new ByteArrayInputStream(baos.toByteArray());
+                }
+
+                Instant timestamp = ((inputIndex != null) && inputIndex.contains(name))
+                    ? inputIndex.getTimestamp(name)
+                    : TimeWindow.readTimestamp(entryStream);
+
+                outputEntry.setSize(size);
+                taos.putArchiveEntry(outputEntry);
+                outputIndex.add(name, timestamp, cos.getCount(), size);
+                copy(entryStream, taos);
+                taos.closeArchiveEntry();
+                numEntries++;
+
+                if (cos.getCount() - blockStart >= blockSizeBytes) {
+                    xzos.endBlock();
+                    blockStart = cos.getCount();
+                    numBlocks++;
+                }
+            }
+
+            taos.finish();
+        }
+
+        LOGGER.info("Repacked {} entries from {} into {} XZ blocks", numEntries, input, numBlocks);
+
+        outputIndex.save();
+    }
+
+    private ArchiveInputStream openArchive(File file) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            String compression = null;
+            try {
+                compression = CompressorStreamFactory.detect(is);
+            } catch (CompressorException ex) {
+                // not compressed
+                is.reset();
+            }
+
+            if (compression != null) {
+                is = new BufferedInputStream(compressorStreamFactory.createCompressorInputStream(compression, is));
+            }
+
+            return archiveStreamFactory.createArchiveInputStream(ArchiveStreamFactory.detect(is), is);
+        } catch (CompressorException | ArchiveException ex) {
+            is.close();
+            throw new IOException("unable to read " + file.getAbsolutePath() + " as archive", ex);
+        }
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            os.write(buffer, 0, read);
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps byte buffers released after reading a data file to reuse them for
+ * following data files instead of allocating new buffers for each of them.
+ * Buffers are handed out if they are large enough without wasting more than
+ * the requested size again. Newly allocated buffers get some headroom, so they
+ * can still be reused as data files grow over time.
+ * <p>
+ * Released buffers are only kept as long as the total size of all idle buffers
+ * stays within the configured limit. Instances are thread-safe.
+ * </p>
+ */
+class BufferPool {
+
+    // small buffers are cheap to allocate and not worth pooling
+    private static final int MIN_POOLED_SIZE = 64 * 1024;
+
+    private final long maxPooledBytes;
+
+    private final TreeMap<Integer, Deque<byte[]>> idleBuffers = new TreeMap<>();
+    private long pooledBytes = 0;
+
+    private long numHits = 0;
+    private long numMisses = 0;
+    private long numDropped = 0;
+
+    /**
+     * @param maxPooledBytes maximum total size of idle buffers to keep; 0 to
+     *        disable pooling
+     */
+    BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Provides a buffer of at least the given size. Content of the buffer is
+     * undefined.
+     *
+     * @param minSize minimum size of buffer
+     * @return buffer with a length of at least minSize
+     */
+    byte[] acquire(int minSize) {
+        if ((maxPooledBytes <= 0) || (minSize < MIN_POOLED_SIZE)) {
+            return new byte[minSize];
+        }
+
+        synchronized (this) {
+            long maxSize = 2L * minSize;
+            Map.Entry<Integer, Deque<byte[]>> entry = idleBuffers.ceilingEntry(minSize);
+            if ((entry != null) && (entry.getKey() <= maxSize)) {
+                // sizes without any idle buffers are removed, so this always succeeds
+                byte[] buffer = entry.getValue().poll();
+                if (entry.getValue().isEmpty()) {
+                    idleBuffers.remove(entry.getKey());
+                }
+                pooledBytes -= buffer.length;
+                numHits++;
+                return buffer;
+            }
+
+            numMisses++;
+        }
+
+        int headroom = minSize >>> 3;
+        return new byte[(int) Math.min(Integer.MAX_VALUE - 8, (long) minSize + headroom)];
+    }
+
+    /**
+     * Returns a buffer for reuse. The buffer must not be used by the caller
+     * afterwards.
+     *
+     * @param buffer buffer no longer in use, may be null
+     */
+    void release(byte[] buffer) {
+        if ((buffer == null) || (maxPooledBytes <= 0) || (buffer.length < MIN_POOLED_SIZE)) {
+            return;
+        }
+
+        synchronized (this) {
+            if (pooledBytes + buffer.length > maxPooledBytes) {
+                numDropped++;
+                return;
+            }
+
+            idleBuffers.computeIfAbsent(buffer.length, x -> new ArrayDeque<>()).add(buffer);
+            pooledBytes += buffer.length;
+        }
+    }
+
+    synchronized long getNumRequests() {
+        return numHits + numMisses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "%d of %d buffer requests served from pool, %d released buffers dropped, %d bytes idle",
+            numHits, numHits + numMisses, numDropped, pooledBytes //
+        );
+    }
+}
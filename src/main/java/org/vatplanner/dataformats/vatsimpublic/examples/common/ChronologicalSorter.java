@@ -0,0 +1,262 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Orders data files by the timestamp they have been generated at, regardless of
+ * the files and archives they have been read from. Data files are collected into
+ * sorted runs which are written to temporary files whenever the memory budget is
+ * exceeded. All runs are merged when handing the data files on, so memory usage
+ * only depends on the budget and the number of runs.
+ * <p>
+ * Data files without a recognizable timestamp are handed on first. Data files
+ * with equal timestamps keep the order they have been added in.
+ * </p>
+ */
+class ChronologicalSorter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChronologicalSorter.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int RUN_BUFFER_SIZE = 16 * 1024;
+
+    // rough memory overhead of each held record
+    private static final int RECORD_OVERHEAD_BYTES = 64;
+
+    private static final Comparator<Record> ORDER = Comparator
+        .comparing((Record record) -> record.timestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparingLong(record -> record.sequence);
+
+    private final long maxMemoryBytes;
+
+    private final List<Record> records = new ArrayList<>();
+    private long memoryBytes = 0;
+    private long nextSequence = 0;
+
+    private final List<Path> runs = new ArrayList<>();
+
+    private static class Record {
+        final Instant timestamp;
+        final long sequence;
+        final byte[] content;
+
+        Record(Instant timestamp, long sequence, byte[] content) {
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+            this.content = content;
+        }
+    }
+
+    private interface Run {
+        Record next() throws IOException;
+    }
+
+    private static class MemoryRun implements Run {
+        private final Iterator<Record> iterator;
+
+        MemoryRun(List<Record> records) {
+            iterator = records.iterator();
+        }
+
+        @Override
+        public Record next() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    private static class SpilledRun implements Run, Closeable {
+        private final DataInputStream dis;
+
+        SpilledRun(Path path) throws IOException {
+            dis = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(path)),
+                RUN_BUFFER_SIZE //
+            ));
+        }
+
+        @Override
+        public Record next() throws IOException {
+            if (!dis.readBoolean()) {
+                return null;
+            }
+
+            Instant timestamp = null;
+            if (dis.readBoolean()) {
+                timestamp = Instant.ofEpochSecond(dis.readLong(), dis.readInt());
+            }
+            long sequence = dis.readLong();
+            byte[] content = new byte[dis.readInt()];
+            dis.readFully(content);
+
+            return new Record(timestamp, sequence, content);
+        }
+
+        @Override
+        public void close() throws IOException {
+            dis.close();
+        }
+    }
+
+    private static class RunHead {
+        final Run run;
+        Record record;
+
+        RunHead(Run run, Record record) {
+            this.run = run;
+            this.record = record;
+        }
+    }
+
+    ChronologicalSorter(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * Reads the given data file completely and holds it for sorting.
+     *
+     * @param br data file to read, decoded as ISO-8859-1
+     * @throws IOException if reading or spilling fails
+     */
+    void add(BufferedReader br) throws IOException {
+        // data files are read as ISO-8859-1, so characters map back to bytes
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        char[] chars = new char[COPY_BUFFER_SIZE];
+        byte[] bytes = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = br.read(chars)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                bytes[i] = (byte) chars[i];
+            }
+            baos.write(bytes, 0, read);
+        }
+
+        byte[] content = baos.toByteArray();
+        Instant timestamp = TimeWindow.findTimestamp(content, Math.min(content.length, TimeWindow.HEAD_SIZE));
+
+        records.add(new Record(timestamp, nextSequence++, content));
+        memoryBytes += content.length + RECORD_OVERHEAD_BYTES;
+
+        if (memoryBytes > maxMemoryBytes) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        records.sort(ORDER);
+
+        Path path = Files.createTempFile("chronological", ".run");
+        runs.add(path);
+        LOGGER.debug("spilling {} data files ({} bytes) to {}", records.size(), memoryBytes, path);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+            new DeflaterOutputStream(Files.newOutputStream(path), deflater, RUN_BUFFER_SIZE),
+            RUN_BUFFER_SIZE //
+        ))) {
+            for (Record record : records) {
+                dos.writeBoolean(true);
+                dos.writeBoolean(record.timestamp != null);
+                if (record.timestamp != null) {
+                    dos.writeLong(record.timestamp.getEpochSecond());
+                    dos.writeInt(record.timestamp.getNano());
+                }
+                dos.writeLong(record.sequence);
+                dos.writeInt(record.content.length);
+                dos.write(record.content);
+            }
+            dos.writeBoolean(false);
+        } finally {
+            deflater.end();
+        }
+
+        records.clear();
+        memoryBytes = 0;
+    }
+
+    /**
+     * Hands all data files on in chronological order.
+     *
+     * @param consumer receives all data files
+     * @throws IOException if reading spilled data files fails
+     */
+    void drain(Consumer<BufferedReader> consumer) throws IOException {
+        records.sort(ORDER);
+
+        if (!runs.isEmpty()) {
+            LOGGER.info("Merging {} sorted runs of data files", runs.size() + (records.isEmpty() ? 0 : 1));
+        }
+
+        List<SpilledRun> spilledRuns = new ArrayList<>();
+        try {
+            PriorityQueue<RunHead> heads = new PriorityQueue<>(
+                Math.max(1, runs.size() + 1),
+                (a, b) -> ORDER.compare(a.record, b.record) //
+            );
+
+            for (Path path : runs) {
+                SpilledRun run = new SpilledRun(path);
+                spilledRuns.add(run);
+                offerNext(heads, run);
+            }
+            offerNext(heads, new MemoryRun(records));
+
+            while (!heads.isEmpty()) {
+                RunHead head = heads.poll();
+                consumer.accept(new BufferedReader(
+                    new InputStreamReader(new ByteArrayInputStream(head.record.content), FileVisitor.CHARSET_FILE) //
+                ));
+
+                head.record = head.run.next();
+                if (head.record != null) {
+                    heads.add(head);
+                }
+            }
+        } finally {
+            for (SpilledRun run : spilledRuns) {
+                run.close();
+            }
+        }
+
+        records.clear();
+        memoryBytes = 0;
+    }
+
+    private static void offerNext(PriorityQueue<RunHead> heads, Run run) throws IOException {
+        Record record = run.next();
+        if (record != null) {
+            heads.add(new RunHead(run, record));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Path path : runs) {
+            Files.deleteIfExists(path);
+        }
+        runs.clear();
+    }
+}
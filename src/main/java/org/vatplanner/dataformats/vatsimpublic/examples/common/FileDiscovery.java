@@ -0,0 +1,233 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds all files below a path, optionally listing multiple directories
+ * concurrently. Virtual threads are used if supported by the JVM, otherwise a
+ * pool of platform threads.
+ * <p>
+ * Files are provided in path order (depth-first, entries of each directory
+ * sorted by name) while the directory tree is still being listed. Eager
+ * iteration lists the whole tree as fast as possible, while lazy iteration only
+ * lists subdirectories of directories currently being iterated so memory usage
+ * does not depend on the size of the tree.
+ * </p>
+ */
+class FileDiscovery implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileDiscovery.class);
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    private static class Entry {
+        final Path path;
+        final boolean isDirectory;
+        Future<List<Entry>> children;
+
+        Entry(Path path, boolean isDirectory) {
+            this.path = path;
+            this.isDirectory = isDirectory;
+        }
+    }
+
+    /**
+     * @param numThreads maximum number of directories to list concurrently; 1 to
+     *        list on the calling thread
+     */
+    FileDiscovery(int numThreads) {
+        if (numThreads > 1) {
+            executor = createExecutor(numThreads);
+            permits = new Semaphore(numThreads);
+        } else {
+            executor = null;
+            permits = null;
+        }
+    }
+
+    private static ExecutorService createExecutor(int numThreads) {
+        // virtual threads require Java 21 while we still target Java 8
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+            LOGGER.debug("listing up to {} directories concurrently on virtual threads", numThreads);
+            return executor;
+        } catch (ReflectiveOperationException ex) {
+            LOGGER.debug("listing up to {} directories concurrently on platform threads", numThreads);
+            return Executors.newFixedThreadPool(numThreads, ReadAheadDecompressor.daemonThreadFactory("discovery-"));
+        }
+    }
+
+    /**
+     * Iterates all files below the given path in path order.
+     *
+     * @param base file or directory to start from
+     * @param isEager true to list the whole tree concurrently, false to only
+     *        list ahead of iteration
+     * @return all files found
+     */
+    Iterator<File> iterate(File base, boolean isEager) {
+        Path basePath = base.toPath();
+        if (!Files.isDirectory(basePath)) {
+            return (Files.isRegularFile(basePath) && !ArchiveIndex.isIndexFile(base))
+                ? Collections.singletonList(base).iterator()
+                : Collections.<File>emptyIterator();
+        }
+
+        Entry root = new Entry(basePath, true);
+        schedule(root, isEager);
+        return new DepthFirstIterator(root, isEager);
+    }
+
+    private void schedule(Entry directory, boolean isEager) {
+        if (directory.children != null) {
+            return;
+        }
+
+        if (executor == null) {
+            directory.children = CompletableFuture.completedFuture(list(directory.path, isEager));
+        } else {
+            directory.children = executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return list(directory.path, isEager);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    private List<Entry> list(Path directory, boolean isEager) {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    LOGGER.warn("failed to read attributes of {}", path, ex);
+                    continue;
+                }
+
+                if (attributes.isDirectory()) {
+                    entries.add(new Entry(path, true));
+                } else if (attributes.isRegularFile() && !ArchiveIndex.isIndexFile(path.toFile())) {
+                    entries.add(new Entry(path, false));
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("failed to list directory {}", directory, ex);
+        }
+
+        entries.sort((a, b) -> a.path.getFileName().toString().compareToIgnoreCase(b.path.getFileName().toString()));
+
+        if (isEager) {
+            for (Entry entry : entries) {
+                if (entry.isDirectory) {
+                    schedule(entry, true);
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    private class DepthFirstIterator implements Iterator<File> {
+        private final boolean isEager;
+        private final Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+        private File next;
+
+        DepthFirstIterator(Entry root, boolean isEager) {
+            this.isEager = isEager;
+            stack.push(childrenOf(root).iterator());
+        }
+
+        private List<Entry> childrenOf(Entry directory) {
+            List<Entry> children;
+            try {
+                children = directory.children.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("interrupted while listing " + directory.path));
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("failed to list " + directory.path, ex.getCause());
+            }
+
+            // list subdirectories ahead while iterating this directory
+            if (!isEager) {
+                for (Entry child : children) {
+                    if (child.isDirectory) {
+                        schedule(child, false);
+                    }
+                }
+            }
+
+            return children;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((next == null) && !stack.isEmpty()) {
+                Iterator<Entry> it = stack.peek();
+                if (!it.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+
+                Entry entry = it.next();
+                if (entry.isDirectory) {
+                    stack.push(childrenOf(entry).iterator());
+                } else {
+                    next = entry.path.toFile();
+                }
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            File file = next;
+            next = null;
+            return file;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -3,20 +3,35 @@ package org.vatplanner.dataformats.vatsimpublic.examples.common;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
@@ -25,10 +40,14 @@ import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
 
 public class FileVisitor {
 
@@ -37,6 +56,37 @@ public class FileVisitor {
     public static final String OPTION_NAME_READ_PATH = "rp";
     public static final String OPTION_NAME_READ_FILTER = "rf";
     public static final String OPTION_NAME_READ_REPORT = "rr";
+    public static final String OPTION_NAME_READ_STREAMING = "read-streaming";
+    public static final String OPTION_NAME_READ_REORDER_WINDOW = "read-reorder-window";
+    public static final String OPTION_NAME_READ_REORDER_MEMORY = "read-reorder-memory";
+    public static final String OPTION_NAME_READ_JOURNAL = "read-journal";
+    public static final String OPTION_NAME_READ_FOLLOW = "read-follow";
+    public static final String OPTION_NAME_READ_AHEAD = "read-ahead";
+    public static final String OPTION_NAME_READ_AHEAD_BUFFER = "read-ahead-buffer";
+    public static final String OPTION_NAME_READ_XZ_THREADS = "read-xz-threads";
+    public static final String OPTION_NAME_READ_MAPPED = "read-mapped";
+    public static final String OPTION_NAME_READ_BUFFER_POOL = "read-buffer-pool";
+    public static final String OPTION_NAME_READ_DISCOVERY_THREADS = "read-discovery-threads";
+    public static final String OPTION_NAME_READ_DISCOVERY_STREAMING = "read-discovery-streaming";
+    public static final String OPTION_NAME_READ_CHRONOLOGICAL = "read-chronological";
+    public static final String OPTION_NAME_READ_SORT_MEMORY = "read-sort-memory";
+    public static final String OPTION_NAME_READ_FROM = "from";
+    public static final String OPTION_NAME_READ_TO = "to";
+    public static final String OPTION_NAME_READ_INDEX = "read-index";
+    public static final String OPTION_NAME_READ_DEDUPLICATE = "read-dedupe";
+    public static final String OPTION_NAME_READ_DEDUPLICATE_FILE = "read-dedupe-file";
+    public static final String OPTION_NAME_READ_DEDUPLICATE_CAPACITY = "read-dedupe-capacity";
+
+    private static final int DEFAULT_REORDER_WINDOW = 16;
+    private static final int DEFAULT_REORDER_MEMORY_MEGABYTES = 64;
+    private static final int DEFAULT_READ_AHEAD_BUFFER_MEGABYTES = 16;
+    private static final int DEFAULT_BUFFER_POOL_MEGABYTES = 64;
+    private static final int DEFAULT_DEDUPLICATE_CAPACITY = 200000;
+    private static final int DEFAULT_SORT_MEMORY_MEGABYTES = 256;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // files modified more recently may still be in the process of being written
+    private static final long FOLLOW_SETTLE_MILLIS = 2000;
 
     private final File basePath;
     private final Pattern filterPattern;
@@ -44,77 +94,550 @@ public class FileVisitor {
     private final CompressorStreamFactory compressorStreamFactory = new CompressorStreamFactory();
     private final ArchiveStreamFactory archiveStreamFactory = new ArchiveStreamFactory("UTF-8");
 
-    private static final Charset CHARSET_FILE = StandardCharsets.ISO_8859_1;
+    static final Charset CHARSET_FILE = StandardCharsets.ISO_8859_1;
     private static final Charset CHARSET_ARCHIVE = StandardCharsets.UTF_8;
 
     private int count = 0;
     private final int reportCount;
 
-    private class NamedBufferedReader {
+    private final int reorderWindow;
+    private final long reorderMemoryBytes;
 
-        String name;
-        BufferedReader br;
+    private final ImportJournal journal;
+    private final PipelineMetrics metrics;
 
-        public NamedBufferedReader(String name, BufferedReader br) {
-            this.name = name;
-            this.br = br;
-        }
-    }
+    private final long followIntervalMillis;
+
+    private final int readAheadFiles;
+    private final long readAheadBufferBytes;
+    private final int xzThreads;
+
+    private final boolean readMapped;
+
+    private final BufferPool bufferPool;
+
+    private final int discoveryThreads;
+    private final boolean isDiscoveryStreaming;
+
+    private final boolean isChronological;
+    private final long sortMemoryBytes;
+
+    private final TimeWindow timeWindow;
+    private final boolean isIndexing;
+
+    private final SnapshotFingerprints fingerprints;
+    private final Map<File, ArchiveIndex> archiveIndexes = new HashMap<>();
 
     public FileVisitor(CommandLine parameters) {
+        this(parameters, PipelineMetrics.DISABLED);
+    }
+
+    public FileVisitor(CommandLine parameters, PipelineMetrics metrics) {
+        this.metrics = metrics;
+
         basePath = new File(parameters.getOptionValue(OPTION_NAME_READ_PATH));
         filterPattern = Pattern.compile(parameters.getOptionValue(OPTION_NAME_READ_FILTER, ".*"));
         reportCount = Integer.parseInt(parameters.getOptionValue(OPTION_NAME_READ_REPORT, "-1"));
 
+        if (parameters.hasOption(OPTION_NAME_READ_STREAMING)) {
+            reorderWindow = Integer.parseInt(
+                parameters.getOptionValue(OPTION_NAME_READ_REORDER_WINDOW, Integer.toString(DEFAULT_REORDER_WINDOW)) //
+            );
+            reorderMemoryBytes = 1024L * 1024L * Long.parseLong(
+                parameters.getOptionValue(
+                    OPTION_NAME_READ_REORDER_MEMORY,
+                    Integer.toString(DEFAULT_REORDER_MEMORY_MEGABYTES) //
+                ) //
+            );
+            LOGGER.debug(
+                "streaming archive entries, reorder window {} entries, spilling above {} bytes",
+                reorderWindow, reorderMemoryBytes //
+            );
+        } else {
+            reorderWindow = ReorderBuffer.UNLIMITED_WINDOW;
+            reorderMemoryBytes = ReorderBuffer.UNLIMITED_MEMORY;
+        }
+
         if (!basePath.exists()) {
             throw new IllegalArgumentException("Path does not exist: " + basePath.getAbsolutePath());
         }
-    }
 
-    private Collection<File> findAllFiles(File base) {
-        Collection<File> files = new ArrayList<>();
-        addAllFiles(base, files);
-        return files;
-    }
+        xzThreads = Integer.parseInt(parameters.getOptionValue(OPTION_NAME_READ_XZ_THREADS, "1"));
+        readAheadFiles = Integer.parseInt(
+            parameters.getOptionValue(OPTION_NAME_READ_AHEAD, (xzThreads > 1) ? "1" : "0") //
+        );
+        readAheadBufferBytes = 1024L * 1024L * Long.parseLong(
+            parameters.getOptionValue(
+                OPTION_NAME_READ_AHEAD_BUFFER,
+                Integer.toString(DEFAULT_READ_AHEAD_BUFFER_MEGABYTES) //
+            ) //
+        );
+
+        readMapped = parameters.hasOption(OPTION_NAME_READ_MAPPED);
 
-    private void addAllFiles(File base, Collection<File> files) {
-        if (base.isFile()) {
-            files.add(base);
-        } else if (base.isDirectory()) {
-            for (File file : base.listFiles()) {
-                addAllFiles(file, files);
+        bufferPool = new BufferPool(
+            1024L * 1024L * Long.parseLong(
+                parameters.getOptionValue(
+                    OPTION_NAME_READ_BUFFER_POOL,
+                    Integer.toString(DEFAULT_BUFFER_POOL_MEGABYTES) //
+                ) //
+            ) //
+        );
+
+        discoveryThreads = Integer.parseInt(parameters.getOptionValue(OPTION_NAME_READ_DISCOVERY_THREADS, "1"));
+        isDiscoveryStreaming = parameters.hasOption(OPTION_NAME_READ_DISCOVERY_STREAMING);
+
+        isChronological = parameters.hasOption(OPTION_NAME_READ_CHRONOLOGICAL);
+        sortMemoryBytes = 1024L * 1024L * Long.parseLong(
+            parameters.getOptionValue(
+                OPTION_NAME_READ_SORT_MEMORY,
+                Integer.toString(DEFAULT_SORT_MEMORY_MEGABYTES) //
+            ) //
+        );
+
+        String from = parameters.getOptionValue(OPTION_NAME_READ_FROM);
+        String to = parameters.getOptionValue(OPTION_NAME_READ_TO);
+        if ((from != null) || (to != null)) {
+            timeWindow = new TimeWindow(
+                (from != null) ? TimeWindow.parse(from) : null,
+                (to != null) ? TimeWindow.parse(to) : null //
+            );
+            LOGGER.debug("only reading data files generated within {}", timeWindow);
+        } else {
+            timeWindow = null;
+        }
+
+        isIndexing = parameters.hasOption(OPTION_NAME_READ_INDEX) || (timeWindow != null);
+
+        String fingerprintsPath = parameters.getOptionValue(OPTION_NAME_READ_DEDUPLICATE_FILE);
+        if (parameters.hasOption(OPTION_NAME_READ_DEDUPLICATE) || (fingerprintsPath != null)) {
+            int capacity = Integer.parseInt(
+                parameters.getOptionValue(
+                    OPTION_NAME_READ_DEDUPLICATE_CAPACITY,
+                    Integer.toString(DEFAULT_DEDUPLICATE_CAPACITY) //
+                ) //
+            );
+            try {
+                fingerprints = new SnapshotFingerprints(
+                    (fingerprintsPath != null) ? new File(fingerprintsPath) : null,
+                    capacity //
+                );
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to read fingerprints " + fingerprintsPath, ex);
+            }
+        } else {
+            fingerprints = null;
+        }
+
+        followIntervalMillis = 1000L * Long.parseLong(parameters.getOptionValue(OPTION_NAME_READ_FOLLOW, "0"));
+
+        String journalPath = parameters.getOptionValue(OPTION_NAME_READ_JOURNAL);
+        if (journalPath == null) {
+            // following requires to remember what has already been imported
+            journal = isFollowing() ? new ImportJournal() : null;
+        } else {
+            try {
+                journal = new ImportJournal(new File(journalPath));
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to read import journal " + journalPath, ex);
             }
         }
     }
 
     public void visit(Consumer<BufferedReader> dataConsumer) {
-        List<File> files = findAllFiles(basePath)
-            .stream()
-            .filter(this::matchesFilterPattern)
-            .sorted(this::compareFileNames)
-            .collect(Collectors.toList());
+        try (FileDiscovery discovery = new FileDiscovery(discoveryThreads)) {
+            Stream<File> discovered;
+            if (isDiscoveryStreaming) {
+                // files are handed on while directories are still being listed
+                discovered = StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(
+                        discovery.iterate(basePath, false),
+                        Spliterator.ORDERED | Spliterator.NONNULL //
+                    ),
+                    false //
+                );
+            } else {
+                List<File> allFiles = new ArrayList<>();
+                discovery.iterate(basePath, true).forEachRemaining(allFiles::add);
+                discovered = allFiles.stream().sorted(this::compareFileNames);
+            }
 
-        for (File file : files) {
+            Iterator<File> files = discovered
+                .filter(this::matchesFilterPattern)
+                .filter(this::isIncomplete)
+                .filter(this::isSettled)
+                .filter(this::mayContainRelevantData)
+                .iterator();
+
+            if (isChronological) {
+                visitChronologically(dataConsumer, files);
+            } else {
+                visitFiles(dataConsumer, files);
+            }
+        }
+
+        if ((fingerprints != null) && (fingerprints.getNumDuplicates() > 0)) {
+            LOGGER.info("Skipped {} duplicate data files", fingerprints.getNumDuplicates());
+        }
+
+        if (bufferPool.getNumRequests() > 0) {
+            LOGGER.info("Buffer pool: {}", bufferPool);
+        }
+    }
+
+    private void visitFiles(Consumer<BufferedReader> dataConsumer, Iterator<File> files) {
+        if (readAheadFiles > 0) {
+            visitWithReadAhead(dataConsumer, files);
+        } else {
+            visitSequentially(dataConsumer, files);
+        }
+    }
+
+    private void visitChronologically(Consumer<BufferedReader> dataConsumer, Iterator<File> files) {
+        LOGGER.debug("sorting data files chronologically, spilling above {} bytes", sortMemoryBytes);
+
+        try (ChronologicalSorter sorter = new ChronologicalSorter(sortMemoryBytes)) {
+            visitFiles(
+                br -> {
+                    try {
+                        sorter.add(br);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                },
+                files //
+            );
+
+            sorter.drain(dataConsumer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to sort data files chronologically", ex);
+        }
+    }
+
+    private void visitSequentially(Consumer<BufferedReader> dataConsumer, Iterator<File> files) {
+        while (files.hasNext()) {
+            File file = files.next();
             LOGGER.debug("reading " + file.getAbsolutePath());
 
             try {
+                if (isSeekable(file)) {
+                    visitIndexed(dataConsumer, file);
+                    markComplete(file);
+                    continue;
+                }
+
+                if (readMapped && isPlain(file)) {
+                    visitMapped(dataConsumer, file);
+                    markComplete(file);
+                    continue;
+                }
+
                 FileInputStream fis = new FileInputStream(file);
                 BufferedInputStream bis = new BufferedInputStream(fis);
-                visitAllParts(dataConsumer, decompress(bis));
+                visitAllParts(dataConsumer, file, decompress(bis));
+                markComplete(file);
             } catch (IOException | CompressorException | ArchiveException ex) {
                 LOGGER.error("failed to read " + file.getAbsolutePath(), ex);
             }
         }
     }
 
-    private void visitAllParts(Consumer<BufferedReader> dataConsumer, InputStream is) throws IOException, ArchiveException {
+    private void visitWithReadAhead(Consumer<BufferedReader> dataConsumer, Iterator<File> files) {
+        LOGGER.debug(
+            "decompressing up to {} files ahead, {} threads per XZ file",
+            readAheadFiles, xzThreads //
+        );
+
+        try (ReadAheadDecompressor readAhead = new ReadAheadDecompressor(
+            readAheadFiles,
+            readAheadBufferBytes,
+            xzThreads,
+            metrics,
+            bufferPool,
+            this::openDecompressed //
+        )) {
+            // seekable and mapped files are read directly, all others are handed to
+            // read-ahead; files are queued in order as read-ahead pulls them, so the
+            // queue is only empty once all files have been pulled
+            Set<File> seekableFiles = new HashSet<>();
+            Set<File> mappedFiles = new HashSet<>();
+            Deque<File> queuedFiles = new ArrayDeque<>();
+            readAhead.start(new Iterator<File>() {
+                private File next;
+
+                @Override
+                public boolean hasNext() {
+                    while ((next == null) && files.hasNext()) {
+                        File file = files.next();
+                        queuedFiles.add(file);
+                        if (isSeekable(file)) {
+                            seekableFiles.add(file);
+                        } else if (readMapped && isPlain(file)) {
+                            mappedFiles.add(file);
+                        } else {
+                            next = file;
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public File next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    File file = next;
+                    next = null;
+                    return file;
+                }
+            });
+
+            while (!queuedFiles.isEmpty()) {
+                File file = queuedFiles.removeFirst();
+                LOGGER.debug("reading " + file.getAbsolutePath());
+
+                if (seekableFiles.remove(file)) {
+                    try {
+                        visitIndexed(dataConsumer, file);
+                        markComplete(file);
+                    } catch (IOException ex) {
+                        LOGGER.error("failed to read " + file.getAbsolutePath(), ex);
+                    }
+                    continue;
+                }
+
+                if (mappedFiles.remove(file)) {
+                    try {
+                        visitMapped(dataConsumer, file);
+                        markComplete(file);
+                    } catch (IOException ex) {
+                        LOGGER.error("failed to read " + file.getAbsolutePath(), ex);
+                    }
+                    continue;
+                }
+
+                try (InputStream is = readAhead.next()) {
+                    visitAllParts(dataConsumer, file, new BufferedInputStream(is));
+                    markComplete(file);
+                } catch (IOException | ArchiveException ex) {
+                    LOGGER.error("failed to read " + file.getAbsolutePath(), ex);
+                }
+            }
+        }
+    }
+
+    // plain files are neither compressed nor archives and can be read directly from
+    // a memory-mapped buffer
+    private boolean isPlain(File file) {
+        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
+            try {
+                CompressorStreamFactory.detect(bis);
+                return false;
+            } catch (CompressorException ex) {
+                bis.reset();
+            }
+
+            try {
+                ArchiveStreamFactory.detect(bis);
+                return false;
+            } catch (ArchiveException ex) {
+                return file.length() <= Integer.MAX_VALUE;
+            }
+        } catch (IOException ex) {
+            // regular path will report the error
+            return false;
+        }
+    }
+
+    private void visitMapped(Consumer<BufferedReader> dataConsumer, File file) throws IOException {
+        LOGGER.trace("reading memory-mapped " + file.getAbsolutePath());
+
+        BufferedReader br = new BufferedReader(new MappedLatin1Reader(file));
+        Instant timestamp = isSniffing() ? TimeWindow.readTimestamp(br) : null;
+        if ((timeWindow != null) && !isWithinTimeWindow(file.getName(), timestamp)) {
+            br.close();
+            return;
+        }
+
+        if (fingerprints != null) {
+            long fingerprint;
+            if (timestamp != null) {
+                fingerprint = SnapshotFingerprints.of(timestamp);
+            } else {
+                try (InputStream is = new FileInputStream(file)) {
+                    fingerprint = SnapshotFingerprints.of(is);
+                }
+            }
+
+            if (isDuplicate(file.getName(), fingerprint)) {
+                br.close();
+                return;
+            }
+        }
+
+        dataConsumer.accept(br);
+        br.close();
+        count();
+    }
+
+    private InputStream openDecompressed(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        BufferedInputStream bis = new BufferedInputStream(fis);
+        try {
+            return decompress(bis);
+        } catch (CompressorException ex) {
+            bis.close();
+            throw new IOException("failed to decompress " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    private boolean isIncomplete(File file) {
+        if ((journal != null) && journal.isComplete(file)) {
+            LOGGER.debug("skipping already imported " + file.getAbsolutePath());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isSettled(File file) {
+        if (isFollowing() && (System.currentTimeMillis() - file.lastModified() < FOLLOW_SETTLE_MILLIS)) {
+            LOGGER.debug("deferring recently modified " + file.getAbsolutePath());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the read path should be visited repeatedly to read new files.
+     *
+     * @return true if following, false if reading only once
+     */
+    public boolean isFollowing() {
+        return followIntervalMillis > 0;
+    }
+
+    /**
+     * Waits until the read path should be checked for new files again.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitFollowInterval() throws InterruptedException {
+        Thread.sleep(followIntervalMillis);
+    }
+
+    private boolean mayContainRelevantData(File file) {
+        if (!isIndexing) {
+            return true;
+        }
+
+        ArchiveIndex index = ArchiveIndex.load(file);
+        if (index == null) {
+            return true;
+        }
+
+        if ((timeWindow != null) && !index.mayContain(timeWindow, this::matchesFilterPattern)) {
+            LOGGER.debug("skipping archive outside time window " + file.getAbsolutePath());
+            return false;
+        }
+
+        archiveIndexes.put(file, index);
+        return true;
+    }
+
+    // timestamps need to be read from data files for filtering by time and
+    // deduplication
+    private boolean isSniffing() {
+        return (timeWindow != null) || (fingerprints != null);
+    }
+
+    // returns the stream to read the data file from, null if it is a duplicate
+    private InputStream deduplicate(String name, InputStream is, Instant timestamp) throws IOException {
+        if (fingerprints == null) {
+            return is;
+        }
+
+        long fingerprint;
+        if (timestamp != null) {
+            fingerprint = SnapshotFingerprints.of(timestamp);
+        } else {
+            // content has to be hashed before it can be handed on
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) >= 0) {
+                baos.write(buffer, 0, read);
+            }
+            byte[] content = baos.toByteArray();
+            fingerprint = SnapshotFingerprints.of(content, content.length);
+            is = new ByteArrayInputStream(content);
+        }
+
+        return isDuplicate(name, fingerprint) ? null : is;
+    }
+
+    private boolean isDuplicate(String name, long fingerprint) {
+        if (fingerprints.isDuplicate(fingerprint)) {
+            LOGGER.trace("skipping duplicate {}", name);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isWithinTimeWindow(String name, Instant timestamp) {
+        if (timeWindow.contains(timestamp)) {
+            return true;
+        }
+
+        LOGGER.trace("skipping {} generated at {}, outside of time window", name, timestamp);
+        return false;
+    }
+
+    private void markComplete(File file) {
+        if (journal != null) {
+            journal.markComplete(file);
+        }
+    }
+
+    /**
+     * Returns the import journal records which will be written by the next
+     * {@link #commitJournal()}.
+     *
+     * @return uncommitted journal lines; empty if no journal is used
+     */
+    public List<String> getUncommittedJournalLines() {
+        return (journal != null) ? journal.getUncommittedLines() : Collections.emptyList();
+    }
+
+    /**
+     * Records all files read so far in the import journal and fingerprints of
+     * all data files for deduplication, if configured. Must only be called after
+     * all data handed to the consumer has been imported.
+     */
+    public void commitJournal() throws IOException {
+        if (journal != null) {
+            journal.commit();
+        }
+        if (fingerprints != null) {
+            fingerprints.commit();
+        }
+    }
+
+    private void visitAllParts(Consumer<BufferedReader> dataConsumer, File file, InputStream is) throws IOException, ArchiveException {
         String detected;
         try {
             detected = ArchiveStreamFactory.detect(is);
         } catch (ArchiveException ex) {
             // most-likely not an archive, otherwise we will fail later anyway
             is.reset();
-            InputStreamReader isr = new InputStreamReader(is, CHARSET_FILE);
+            Instant timestamp = isSniffing() ? TimeWindow.readTimestamp(is) : null;
+            if ((timeWindow != null) && !isWithinTimeWindow(file.getName(), timestamp)) {
+                return;
+            }
+            InputStream dataStream = deduplicate(file.getName(), is, timestamp);
+            if (dataStream == null) {
+                return;
+            }
+            InputStreamReader isr = new InputStreamReader(dataStream, CHARSET_FILE);
             BufferedReader br = new BufferedReader(isr);
             dataConsumer.accept(br);
             try {
@@ -126,40 +649,242 @@ public class FileVisitor {
             return;
         }
 
-        TreeSet<NamedBufferedReader> bufferedReadersSortedByFileName = new TreeSet<>(
-            (x, y) -> x.name.compareToIgnoreCase(y.name));
-
         ArchiveInputStream ais = archiveStreamFactory.createArchiveInputStream(detected, is);
-        ArchiveEntry entry;
-        while ((entry = ais.getNextEntry()) != null) {
-            if (!matchesFilterPattern(entry)) {
-                continue;
+        ArchiveIndex index = archiveIndexes.remove(file);
+        ArchiveIndex indexBuilder = (isIndexing && (index == null)) ? new ArchiveIndex(file) : null;
+        boolean isTar = ArchiveStreamFactory.TAR.equals(detected);
+        ReorderBuffer.EntryConsumer entryConsumer = (name, entryStream) -> {
+            visitEntry(dataConsumer, entryStream);
+            if (journal != null) {
+                journal.markImported(file, name);
             }
+        };
+        try (ReorderBuffer reorderBuffer = new ReorderBuffer(reorderWindow, reorderMemoryBytes, bufferPool, entryConsumer)) {
+            InputStream measuredAis = metrics.measure(ais, PipelineMetrics.Stage.EXTRACT);
+            ArchiveEntry entry;
+            while ((entry = nextEntry(ais)) != null) {
+                String name = entry.getName();
+                InputStream entryStream = measuredAis;
+                Instant timestamp = null;
+                boolean isIndexed = (index != null) && index.contains(name);
+
+                if (isIndexed) {
+                    timestamp = index.getTimestamp(name);
+                    if ((timeWindow != null) && !isWithinTimeWindow(name, timestamp)) {
+                        continue;
+                    }
+                } else if (((indexBuilder != null) || isSniffing()) && !entry.isDirectory()) {
+                    long offset = (isTar && !((TarArchiveEntry) entry).isSparse()) ? ais.getBytesRead() : -1;
+                    entryStream = new BufferedInputStream(measuredAis, TimeWindow.HEAD_SIZE);
+                    timestamp = TimeWindow.readTimestamp(entryStream);
 
-            byte[] bytes = new byte[(int) entry.getSize()];
-            int offset = 0;
-            while (offset < bytes.length) {
-                offset += ais.read(bytes, offset, bytes.length - offset);
+                    // all entries are recorded so the index can be reused with other filters
+                    if (indexBuilder != null) {
+                        indexBuilder.add(name, timestamp, offset, entry.getSize());
+                    }
+
+                    if ((timeWindow != null) && !isWithinTimeWindow(name, timestamp)) {
+                        continue;
+                    }
+                }
+
+                if (!matchesFilterPattern(entry)) {
+                    continue;
+                }
+
+                if ((journal != null) && journal.isImported(file, entry.getName())) {
+                    LOGGER.trace("skipping already imported entry " + entry.getName());
+                    continue;
+                }
+
+                if (!entry.isDirectory()) {
+                    entryStream = deduplicate(name, entryStream, timestamp);
+                    if (entryStream == null) {
+                        continue;
+                    }
+                }
+
+                metrics.count(PipelineMetrics.Stage.EXTRACT, 1, 0);
+                if (isChronological) {
+                    // entries are sorted later on; archive must stay open
+                    long size = (entry.getSize() >= 0) ? entry.getSize() : Long.MAX_VALUE;
+                    entryConsumer.accept(name, new EntryInputStream(entryStream, size));
+                } else {
+                    reorderBuffer.add(name, entry.getSize(), entryStream);
+                }
             }
 
-            ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
-            InputStreamReader isr = new InputStreamReader(bis, CHARSET_FILE);
-            BufferedReader br = new BufferedReader(isr);
-            bufferedReadersSortedByFileName.add(new NamedBufferedReader(entry.getName(), br));
+            reorderBuffer.flush();
         }
 
-        for (NamedBufferedReader namedBufferedReader : bufferedReadersSortedByFileName) {
-            dataConsumer.accept(namedBufferedReader.br);
-            try {
-                namedBufferedReader.br.close();
-            } catch (IOException ex2) {
-                // ignore
+        if (indexBuilder != null) {
+            indexBuilder.save();
+        }
+    }
+
+    // archives can be read by seeking to entries if they have been indexed and are
+    // either uncompressed or multi-block XZ
+    private boolean isSeekable(File file) {
+        ArchiveIndex index = archiveIndexes.get(file);
+        if ((index == null) || !index.hasOffsets()) {
+            return false;
+        }
+
+        try (SeekableInputStream sis = openSeekable(file)) {
+            return sis != null;
+        } catch (IOException ex) {
+            LOGGER.debug("unable to open " + file.getAbsolutePath() + " for seeking", ex);
+            return false;
+        }
+    }
+
+    private SeekableInputStream openSeekable(File file) throws IOException {
+        String compression;
+        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
+            compression = CompressorStreamFactory.detect(bis);
+        } catch (CompressorException ex) {
+            return new SeekableFileInputStream(file);
+        }
+
+        if (!CompressorStreamFactory.XZ.equals(compression)) {
+            return null;
+        }
+
+        SeekableXZInputStream sxis = new SeekableXZInputStream(new SeekableFileInputStream(file));
+        if (sxis.getBlockCount() < 2) {
+            // seeking would require decompressing from the start
+            sxis.close();
+            return null;
+        }
+
+        return sxis;
+    }
+
+    private void visitIndexed(Consumer<BufferedReader> dataConsumer, File file) throws IOException {
+        ArchiveIndex index = archiveIndexes.remove(file);
+
+        List<String> names = index.getEntryNames()
+            .stream()
+            .filter(name -> (timeWindow == null) || isWithinTimeWindow(name, index.getTimestamp(name)))
+            .filter(this::matchesFilterPattern)
+            .filter(name -> (journal == null) || !journal.isImported(file, name))
+            .sorted(String::compareToIgnoreCase)
+            .collect(Collectors.toList());
+
+        LOGGER.debug("seeking to {} of {} indexed entries", names.size(), index.getEntryNames().size());
+
+        try (SeekableInputStream sis = openSeekable(file)) {
+            for (String name : names) {
+                Instant timestamp = index.getTimestamp(name);
+                if ((fingerprints != null) && (timestamp != null) && isDuplicate(name, SnapshotFingerprints.of(timestamp))) {
+                    continue;
+                }
+
+                metrics.begin();
+                try {
+                    sis.seek(index.getOffset(name));
+                } finally {
+                    metrics.end(PipelineMetrics.Stage.EXTRACT, 0, 0);
+                }
+
+                metrics.count(PipelineMetrics.Stage.EXTRACT, 1, 0);
+                InputStream entryStream = metrics.measure(
+                    new EntryInputStream(sis, index.getSize(name)),
+                    PipelineMetrics.Stage.EXTRACT //
+                );
+                if (timestamp == null) {
+                    entryStream = deduplicate(name, entryStream, null);
+                    if (entryStream == null) {
+                        continue;
+                    }
+                }
+                visitEntry(dataConsumer, entryStream);
+                if (journal != null) {
+                    journal.markImported(file, name);
+                }
             }
-            namedBufferedReader.br = null;
-            count();
         }
     }
 
+    // limits reading to a single archive entry, leaving the archive open
+    private static class EntryInputStream extends FilterInputStream {
+        private long remaining;
+
+        EntryInputStream(InputStream in, long size) {
+            super(in);
+            remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // archive is closed after all entries have been read
+        }
+    }
+
+    private ArchiveEntry nextEntry(ArchiveInputStream ais) throws IOException {
+        metrics.begin();
+        try {
+            return ais.getNextEntry();
+        } finally {
+            metrics.end(PipelineMetrics.Stage.EXTRACT, 0, 0);
+        }
+    }
+
+    private void visitEntry(Consumer<BufferedReader> dataConsumer, InputStream entryStream) {
+        InputStreamReader isr = new InputStreamReader(entryStream, CHARSET_FILE);
+        BufferedReader br = new BufferedReader(isr);
+        dataConsumer.accept(br);
+        try {
+            br.close();
+        } catch (IOException ex2) {
+            // ignore
+        }
+        count();
+    }
+
     private void count() {
         count++;
         if ((reportCount > 0) && (count % reportCount == 0)) {
@@ -199,7 +924,13 @@ public class FileVisitor {
             return original;
         }
 
-        return new BufferedInputStream(compressorStreamFactory.createCompressorInputStream(detected, original));
+        metrics.count(PipelineMetrics.Stage.DECOMPRESS, 1, 0);
+        return new BufferedInputStream(
+            metrics.measure(
+                compressorStreamFactory.createCompressorInputStream(detected, original),
+                PipelineMetrics.Stage.DECOMPRESS //
+            ) //
+        );
     }
 
     public static void addOptions(Options options) {
@@ -230,5 +961,191 @@ public class FileVisitor {
             .argName("COUNT")
             .desc("logs a status report after reading every COUNT files")
             .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_STREAMING)
+            .desc(
+                "hands archive entries on while reading instead of holding all entries in memory until the archive has been read completely; archives should already be sorted by file name" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_REORDER_WINDOW)
+            .hasArg()
+            .argName("COUNT")
+            .desc(
+                "number of archive entries to hold back for sorting when streaming (default: " + DEFAULT_REORDER_WINDOW + ")" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_REORDER_MEMORY)
+            .hasArg()
+            .argName("MB")
+            .desc(
+                "maximum memory to use for held back archive entries when streaming, exceeding entries are spilled to temporary files (default: " + DEFAULT_REORDER_MEMORY_MEGABYTES + ")" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_JOURNAL)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "skips files and archive entries recorded in given journal FILE and records newly imported ones after a successful import" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_FOLLOW)
+            .hasArg()
+            .argName("SECONDS")
+            .desc(
+                "keeps running after all files have been read, checking for new files every given number of SECONDS; files are remembered in memory unless --" + OPTION_NAME_READ_JOURNAL + " is used" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_AHEAD)
+            .hasArg()
+            .argName("COUNT")
+            .desc("decompresses up to COUNT files on background threads ahead of reading them")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_AHEAD_BUFFER)
+            .hasArg()
+            .argName("MB")
+            .desc(
+                "maximum decompressed data to buffer per file when reading ahead (default: " + DEFAULT_READ_AHEAD_BUFFER_MEGABYTES + ")" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_XZ_THREADS)
+            .hasArg()
+            .argName("THREADS")
+            .desc(
+                "decompresses blocks of multi-block XZ files on given number of THREADS; implies reading ahead" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_FROM)
+            .hasArg()
+            .argName("TIME")
+            .desc(
+                "only reads data files generated at or after given TIME (ISO instant or date in UTC); archives are indexed on first read to skip them later" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_TO)
+            .hasArg()
+            .argName("TIME")
+            .desc(
+                "only reads data files generated before given TIME (ISO instant or date in UTC); archives are indexed on first read to skip them later" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_INDEX)
+            .desc(
+                "indexes archives on first read to seek directly to entries on following reads if archives are uncompressed TAR or multi-block XZ (see repack tool); implied by --" + OPTION_NAME_READ_FROM + " and --" + OPTION_NAME_READ_TO //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_DEDUPLICATE)
+            .desc(
+                "skips duplicate data files, identified by the timestamp they have been generated at or by a hash of their content if no timestamp can be found" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_DEDUPLICATE_FILE)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "loads fingerprints of data files read before from given FILE to also skip duplicates across runs and records all new fingerprints after a successful import; implies --" + OPTION_NAME_READ_DEDUPLICATE //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_DEDUPLICATE_CAPACITY)
+            .hasArg()
+            .argName("COUNT")
+            .desc(
+                "maximum number of most recent fingerprints to keep for deduplication (default: " + DEFAULT_DEDUPLICATE_CAPACITY + ")" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_DISCOVERY_THREADS)
+            .hasArg()
+            .argName("THREADS")
+            .desc(
+                "lists up to given number of directories concurrently when searching for files to read, using virtual threads if available (default: 1)" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_DISCOVERY_STREAMING)
+            .desc(
+                "starts reading files while directories are still being listed; files are read in order of their full paths instead of their names" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_CHRONOLOGICAL)
+            .desc(
+                "hands data files on ordered by the timestamp they have been generated at across all files and archives instead of ordering by file names; data files are temporarily written to disk if they exceed the memory set by --" + OPTION_NAME_READ_SORT_MEMORY //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_SORT_MEMORY)
+            .hasArg()
+            .argName("MB")
+            .desc(
+                "maximum memory to use for holding data files when reading chronologically (default: " + DEFAULT_SORT_MEMORY_MEGABYTES + ")" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_MAPPED)
+            .desc(
+                "reads uncompressed files which are not archives through memory-mapping instead of buffered streams" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_BUFFER_POOL)
+            .hasArg()
+            .argName("MB")
+            .desc(
+                "maximum size of idle read buffers to keep for reuse across data files, 0 to disable (default: " + DEFAULT_BUFFER_POOL_MEGABYTES + ")" //
+            )
+            .build());
     }
 }
@@ -0,0 +1,178 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records which files and archive entries have already been imported so they
+ * can be skipped by following runs.
+ * <p>
+ * Files are identified by their canonical path, size and modification time;
+ * archive entries by the archive's canonical path and the entry name. New
+ * records are only written to the journal file when {@link #commit()} is
+ * called, which should happen after all read data has actually been imported.
+ * Journals without a file are only held in memory.
+ * </p>
+ */
+public class ImportJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportJournal.class);
+
+    private static final String TYPE_FILE = "F";
+    private static final String TYPE_ENTRY = "E";
+    private static final String SEPARATOR = "\t";
+
+    private final File journalFile;
+
+    private final Map<String, String> completedFiles = new HashMap<>();
+    private final Set<String> importedEntries = new HashSet<>();
+    private final List<String> uncommittedLines = new ArrayList<>();
+
+    public ImportJournal() {
+        this.journalFile = null;
+    }
+
+    public ImportJournal(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+
+        if (!journalFile.exists()) {
+            LOGGER.info("Import journal {} does not exist yet and will be created", journalFile);
+            return;
+        }
+
+        try (BufferedReader br = new BufferedReader(
+            new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8) //
+        )) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                load(line);
+            }
+        }
+
+        LOGGER.info(
+            "Import journal {} lists {} completed files and {} imported archive entries",
+            journalFile, completedFiles.size(), importedEntries.size() //
+        );
+    }
+
+    private void load(String line) {
+        String[] fields = line.split(SEPARATOR, 3);
+        if (fields.length != 3) {
+            LOGGER.warn("ignoring malformed journal line: {}", line);
+            return;
+        }
+
+        if (TYPE_FILE.equals(fields[0])) {
+            int lastSeparator = fields[2].lastIndexOf(SEPARATOR);
+            if (lastSeparator < 0) {
+                LOGGER.warn("ignoring malformed journal line: {}", line);
+                return;
+            }
+            completedFiles.put(fields[1], fields[2]);
+        } else if (TYPE_ENTRY.equals(fields[0])) {
+            importedEntries.add(entryKey(fields[1], fields[2]));
+        } else {
+            LOGGER.warn("ignoring unknown journal line: {}", line);
+        }
+    }
+
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException ex) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static String fileState(File file) {
+        return file.length() + SEPARATOR + file.lastModified();
+    }
+
+    private static String entryKey(String archivePath, String entryName) {
+        return archivePath + SEPARATOR + entryName;
+    }
+
+    public boolean isComplete(File file) {
+        return fileState(file).equals(completedFiles.get(canonicalPath(file)));
+    }
+
+    public boolean isImported(File archive, String entryName) {
+        return importedEntries.contains(entryKey(canonicalPath(archive), entryName));
+    }
+
+    public void markComplete(File file) {
+        String path = canonicalPath(file);
+        String state = fileState(file);
+        completedFiles.put(path, state);
+        uncommittedLines.add(TYPE_FILE + SEPARATOR + path + SEPARATOR + state);
+    }
+
+    public void markImported(File archive, String entryName) {
+        String path = canonicalPath(archive);
+        if (importedEntries.add(entryKey(path, entryName))) {
+            uncommittedLines.add(TYPE_ENTRY + SEPARATOR + path + SEPARATOR + entryName);
+        }
+    }
+
+    /**
+     * Returns all records which have not been committed yet, in the format they
+     * will be written to the journal file.
+     *
+     * @return uncommitted journal lines
+     */
+    public List<String> getUncommittedLines() {
+        return new ArrayList<>(uncommittedLines);
+    }
+
+    public void commit() throws IOException {
+        if (journalFile == null) {
+            uncommittedLines.clear();
+            return;
+        }
+
+        if (uncommittedLines.isEmpty()) {
+            return;
+        }
+
+        append(journalFile, uncommittedLines);
+
+        LOGGER.info("Recorded {} new imports in journal {}", uncommittedLines.size(), journalFile);
+        uncommittedLines.clear();
+    }
+
+    /**
+     * Appends lines as previously returned by {@link #getUncommittedLines()} to
+     * the given journal file. Lines already present in the journal are
+     * harmless.
+     *
+     * @param journalFile journal file to append to
+     * @param lines journal lines to append
+     * @throws IOException if writing fails
+     */
+    public static void append(File journalFile, List<String> lines) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8) //
+        )) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an ISO-8859-1 encoded file by decoding directly from a memory-mapped
+ * buffer. ISO-8859-1 maps every byte to the character of the same value, so no
+ * charset decoder or intermediate byte buffers are needed.
+ */
+class MappedLatin1Reader extends Reader {
+
+    private ByteBuffer buffer;
+
+    MappedLatin1Reader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file.getAbsolutePath() + " is too large to be mapped: " + size + " bytes");
+            }
+
+            // mapping remains valid after the channel has been closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (buffer == null) {
+            throw new IOException("reader has been closed");
+        }
+
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return (len == 0) ? 0 : -1;
+        }
+
+        int length = Math.min(len, remaining);
+        int end = off + length;
+        for (int i = off; i < end; i++) {
+            cbuf[i] = (char) (buffer.get() & 0xFF);
+        }
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (buffer == null) {
+            throw new IOException("reader has been closed");
+        }
+
+        return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (buffer == null) {
+            throw new IOException("reader has been closed");
+        }
+
+        int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+        // called on Buffer to remain compatible with Java 8 runtimes
+        ((Buffer) buffer).position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() {
+        return (buffer != null) && buffer.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+        // unmapping happens when the buffer is garbage collected
+        buffer = null;
+    }
+}
@@ -0,0 +1,439 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects time spent, items and bytes processed per stage of the dump
+ * pipeline.
+ * <p>
+ * Stages are measured exclusively: time spent in a nested measurement on the
+ * same thread (e.g. decompression while an archive entry is being extracted) is
+ * only accounted to the innermost stage. Measurements are thread-safe, so stages
+ * running on multiple threads add up to more than wall time.
+ * </p>
+ */
+public class PipelineMetrics implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    public static final String OPTION_NAME_METRICS = "metrics";
+    public static final String OPTION_NAME_METRICS_INTERVAL = "metrics-interval";
+    public static final String OPTION_NAME_METRICS_FILE = "metrics-file";
+
+    private static final int DEFAULT_INTERVAL_SECONDS = 60;
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    public static final PipelineMetrics DISABLED = new PipelineMetrics();
+
+    public enum Stage {
+        DECOMPRESS("files"),
+        EXTRACT("entries"),
+        DESERIALIZE("files"),
+        IMPORT("files"),
+        OUTPUT("members");
+
+        private final String itemName;
+
+        private Stage(String itemName) {
+            this.itemName = itemName;
+        }
+
+        private String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static class StageCounters {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder items = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    private static class Frames {
+        long[] starts = new long[16];
+        long[] nestedNanos = new long[16];
+        int depth = -1;
+    }
+
+    private final boolean isEnabled;
+    private final File metricsFile;
+    private final StageCounters[] counters = new StageCounters[Stage.values().length];
+    private final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService reporter;
+
+    private PipelineMetrics() {
+        isEnabled = false;
+        metricsFile = null;
+        reporter = null;
+    }
+
+    private PipelineMetrics(int intervalSeconds, File metricsFile) {
+        isEnabled = true;
+        this.metricsFile = metricsFile;
+
+        for (Stage stage : Stage.values()) {
+            counters[stage.ordinal()] = new StageCounters();
+        }
+
+        if (intervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(
+                () -> log("Progress"),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS //
+            );
+        } else {
+            reporter = null;
+        }
+    }
+
+    public static PipelineMetrics create(CommandLine parameters) {
+        boolean isRequested = parameters.hasOption(OPTION_NAME_METRICS)
+            || parameters.hasOption(OPTION_NAME_METRICS_INTERVAL)
+            || parameters.hasOption(OPTION_NAME_METRICS_FILE);
+        if (!isRequested) {
+            return DISABLED;
+        }
+
+        int intervalSeconds = Integer.parseInt(
+            parameters.getOptionValue(OPTION_NAME_METRICS_INTERVAL, Integer.toString(DEFAULT_INTERVAL_SECONDS)) //
+        );
+        String metricsPath = parameters.getOptionValue(OPTION_NAME_METRICS_FILE);
+
+        return new PipelineMetrics(intervalSeconds, (metricsPath != null) ? new File(metricsPath) : null);
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Starts a measurement on the current thread. Every call must be followed by
+     * exactly one call to {@link #end(Stage, long, long)} on the same thread.
+     */
+    public void begin() {
+        if (!isEnabled) {
+            return;
+        }
+
+        Frames f = frames.get();
+        f.depth++;
+        if (f.depth >= f.starts.length) {
+            f.starts = Arrays.copyOf(f.starts, f.starts.length * 2);
+            f.nestedNanos = Arrays.copyOf(f.nestedNanos, f.nestedNanos.length * 2);
+        }
+        f.nestedNanos[f.depth] = 0;
+        f.starts[f.depth] = System.nanoTime();
+    }
+
+    public void end(Stage stage, long items, long bytes) {
+        if (!isEnabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        Frames f = frames.get();
+        long elapsed = now - f.starts[f.depth];
+        long exclusive = elapsed - f.nestedNanos[f.depth];
+        f.depth--;
+        if (f.depth >= 0) {
+            f.nestedNanos[f.depth] += elapsed;
+        }
+
+        StageCounters c = counters[stage.ordinal()];
+        c.nanos.add(exclusive);
+        if (items != 0) {
+            c.items.add(items);
+        }
+        if (bytes != 0) {
+            c.bytes.add(bytes);
+        }
+    }
+
+    public void count(Stage stage, long items, long bytes) {
+        if (!isEnabled) {
+            return;
+        }
+
+        StageCounters c = counters[stage.ordinal()];
+        c.items.add(items);
+        c.bytes.add(bytes);
+    }
+
+    /**
+     * Wraps the given stream to account time spent reading and bytes read to the
+     * given stage. Returns the original stream if metrics are disabled.
+     */
+    public InputStream measure(InputStream is, Stage stage) {
+        if (!isEnabled) {
+            return is;
+        }
+
+        return new FilterInputStream(is) {
+            @Override
+            public int read() throws IOException {
+                begin();
+                int b = -1;
+                try {
+                    b = super.read();
+                } finally {
+                    end(stage, 0, (b < 0) ? 0 : 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                begin();
+                int read = -1;
+                try {
+                    read = super.read(b, off, len);
+                } finally {
+                    end(stage, 0, Math.max(0, read));
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                begin();
+                long skipped = 0;
+                try {
+                    skipped = super.skip(n);
+                } finally {
+                    end(stage, 0, skipped);
+                }
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Wraps the given stream to count bytes written to the given stage. Time is
+     * not measured as writing is usually part of a larger operation.
+     */
+    public OutputStream count(OutputStream os, Stage stage) {
+        if (!isEnabled) {
+            return os;
+        }
+
+        StageCounters c = counters[stage.ordinal()];
+        return new FilterOutputStream(os) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                c.bytes.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                c.bytes.add(len);
+            }
+        };
+    }
+
+    /**
+     * Wraps the given reader to count characters read as bytes to the given stage
+     * (data files are read as ISO-8859-1). Returns the original reader if metrics
+     * are disabled.
+     */
+    public Reader count(Reader reader, Stage stage) {
+        if (!isEnabled) {
+            return reader;
+        }
+
+        StageCounters c = counters[stage.ordinal()];
+        return new FilterReader(reader) {
+            @Override
+            public int read() throws IOException {
+                int ch = super.read();
+                if (ch >= 0) {
+                    c.bytes.increment();
+                }
+                return ch;
+            }
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                int read = super.read(cbuf, off, len);
+                if (read > 0) {
+                    c.bytes.add(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private long sampleHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long inUse = runtime.totalMemory() - runtime.freeMemory();
+        peakHeapBytes.accumulateAndGet(inUse, Math::max);
+        return inUse;
+    }
+
+    private void log(String title) {
+        long heapBytes = sampleHeap();
+        double wallSeconds = (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(
+            Locale.ROOT,
+            "%s after %.1f s, heap in use %.0f MB (peak %.0f MB):",
+            title, wallSeconds, heapBytes / BYTES_PER_MEGABYTE, peakHeapBytes.get() / BYTES_PER_MEGABYTE //
+        ));
+
+        for (Stage stage : Stage.values()) {
+            StageCounters c = counters[stage.ordinal()];
+            double seconds = c.nanos.sum() / NANOS_PER_SECOND;
+            long items = c.items.sum();
+            double megabytes = c.bytes.sum() / BYTES_PER_MEGABYTE;
+            sb.append(String.format(
+                Locale.ROOT,
+                "%n  %-12s %10.1f s %10d %-7s %10.1f MB %10.1f %s/s %8.1f MB/s",
+                stage.getName(), seconds, items, stage.itemName, megabytes,
+                perSecond(items, seconds), stage.itemName, perSecond(megabytes, seconds) //
+            ));
+        }
+
+        LOGGER.info(sb.toString());
+    }
+
+    private static double perSecond(double value, double seconds) {
+        return (seconds > 0) ? value / seconds : 0.0;
+    }
+
+    private void writeMetricsFile() throws IOException {
+        double wallSeconds = (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+        double peakHeapMegabytes = peakHeapBytes.get() / BYTES_PER_MEGABYTE;
+        boolean isCsv = metricsFile.getName().toLowerCase(Locale.ROOT).endsWith(".csv");
+
+        try (PrintWriter pw = new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(metricsFile), StandardCharsets.UTF_8) //
+        )) {
+            if (isCsv) {
+                pw.println(
+                    "stage,seconds,items,item_name,bytes,items_per_second,megabytes_per_second,wall_seconds,heap_peak_megabytes" //
+                );
+            } else {
+                pw.println("{");
+                pw.println(String.format(Locale.ROOT, "  \"wallSeconds\": %.3f,", wallSeconds));
+                pw.println(String.format(Locale.ROOT, "  \"heapPeakMegabytes\": %.1f,", peakHeapMegabytes));
+                pw.println("  \"stages\": {");
+            }
+
+            Stage[] stages = Stage.values();
+            for (int i = 0; i < stages.length; i++) {
+                Stage stage = stages[i];
+                StageCounters c = counters[stage.ordinal()];
+                double seconds = c.nanos.sum() / NANOS_PER_SECOND;
+                long items = c.items.sum();
+                long bytes = c.bytes.sum();
+                double itemsPerSecond = perSecond(items, seconds);
+                double megabytesPerSecond = perSecond(bytes / BYTES_PER_MEGABYTE, seconds);
+
+                if (isCsv) {
+                    pw.println(String.format(
+                        Locale.ROOT,
+                        "%s,%.3f,%d,%s,%d,%.3f,%.3f,%.3f,%.1f",
+                        stage.getName(), seconds, items, stage.itemName, bytes,
+                        itemsPerSecond, megabytesPerSecond, wallSeconds, peakHeapMegabytes //
+                    ));
+                } else {
+                    pw.println(String.format(
+                        Locale.ROOT,
+                        "    \"%s\": {\"seconds\": %.3f, \"items\": %d, \"itemName\": \"%s\", \"bytes\": %d, \"itemsPerSecond\": %.3f, \"megabytesPerSecond\": %.3f}%s",
+                        stage.getName(), seconds, items, stage.itemName, bytes,
+                        itemsPerSecond, megabytesPerSecond, (i < stages.length - 1) ? "," : "" //
+                    ));
+                }
+            }
+
+            if (!isCsv) {
+                pw.println("  }");
+                pw.println("}");
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!isEnabled) {
+            return;
+        }
+
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+
+        log("Summary");
+
+        if (metricsFile != null) {
+            try {
+                writeMetricsFile();
+                LOGGER.info("Metrics written to {}", metricsFile);
+            } catch (IOException ex) {
+                LOGGER.error("Failed to write metrics to " + metricsFile, ex);
+            }
+        }
+    }
+
+    public static void addOptions(Options options) {
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_METRICS)
+            .desc("measures time and throughput of each processing stage and logs a summary when done")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_METRICS_INTERVAL)
+            .hasArg()
+            .argName("SECONDS")
+            .desc(
+                "logs metrics every given number of SECONDS, 0 to only log a summary (default: " + DEFAULT_INTERVAL_SECONDS + "); implies --" + OPTION_NAME_METRICS //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_METRICS_FILE)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "writes metrics summary to given FILE, CSV if file name ends in .csv, JSON otherwise; implies --" + OPTION_NAME_METRICS //
+            )
+            .build());
+    }
+}
@@ -0,0 +1,386 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+/**
+ * Decompresses files on background threads ahead of the consumer.
+ * <p>
+ * Each file is decompressed into its own bounded buffer, so decompression of
+ * following files can proceed while the current file is being consumed without
+ * holding complete files in memory. Multi-block XZ files can additionally be
+ * decompressed block-parallel. Blocks decompressed ahead of the consumer are
+ * held in addition to the buffer of each file but limited to the same size,
+ * so block-parallel decompression is only used if at least two blocks fit into
+ * that limit.
+ * </p>
+ * <p>
+ * Chunks of decompressed data are taken from and returned to the given buffer
+ * pool, so buffers are reused across files.
+ * </p>
+ */
+class ReadAheadDecompressor implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadAheadDecompressor.class);
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final long MAX_PARALLEL_XZ_BLOCK_SIZE = 256L * 1024L * 1024L;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final int numFilesAhead;
+    private final long bufferBytesPerFile;
+    private final int numBufferedChunks;
+    private final Decompressor decompressor;
+    private final PipelineMetrics metrics;
+    private final BufferPool bufferPool;
+
+    private final ExecutorService fileExecutor;
+    private final ExecutorService xzBlockExecutor;
+    private final int numXzThreads;
+    private final AtomicBoolean hasWarnedXzBlockSize = new AtomicBoolean();
+
+    private Iterator<File> remainingFiles;
+    private final Deque<Pipe> pendingPipes = new ArrayDeque<>();
+
+    @FunctionalInterface
+    interface Decompressor {
+        InputStream open(File file) throws IOException;
+    }
+
+    ReadAheadDecompressor(int numFilesAhead, long bufferBytesPerFile, int numXzThreads, PipelineMetrics metrics, BufferPool bufferPool, Decompressor decompressor) {
+        this.numFilesAhead = Math.max(1, numFilesAhead);
+        this.bufferBytesPerFile = bufferBytesPerFile;
+        this.numBufferedChunks = (int) Math.max(1, bufferBytesPerFile / CHUNK_SIZE);
+        this.numXzThreads = numXzThreads;
+        this.decompressor = decompressor;
+        this.metrics = metrics;
+        this.bufferPool = bufferPool;
+
+        fileExecutor = Executors.newFixedThreadPool(this.numFilesAhead, daemonThreadFactory("read-ahead-"));
+        xzBlockExecutor = (numXzThreads > 1)
+            ? Executors.newFixedThreadPool(numXzThreads, daemonThreadFactory("xz-block-"))
+            : null;
+    }
+
+    static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    void start(Iterator<File> files) {
+        remainingFiles = files;
+        while ((pendingPipes.size() < numFilesAhead) && remainingFiles.hasNext()) {
+            scheduleNext();
+        }
+    }
+
+    // streams are returned in order of the files given to start and should be closed
+    // after use
+    InputStream next() {
+        Pipe pipe = pendingPipes.removeFirst();
+        if (remainingFiles.hasNext()) {
+            scheduleNext();
+        }
+        return pipe;
+    }
+
+    private void scheduleNext() {
+        File file = remainingFiles.next();
+        Pipe pipe = new Pipe(numBufferedChunks, bufferPool);
+        pendingPipes.add(pipe);
+        fileExecutor.submit(() -> produce(file, pipe));
+    }
+
+    private void produce(File file, Pipe pipe) {
+        try {
+            if ((xzBlockExecutor != null) && isXz(file)) {
+                produceXz(file, pipe);
+            } else {
+                try (InputStream is = decompressor.open(file)) {
+                    copy(is, pipe);
+                }
+            }
+            pipe.finish(null);
+        } catch (IOException | RuntimeException ex) {
+            pipe.finish(ex);
+        } catch (InterruptedException ex) {
+            pipe.finish(ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isXz(File file) throws IOException {
+        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
+            return CompressorStreamFactory.XZ.equals(CompressorStreamFactory.detect(bis));
+        } catch (CompressorException ex) {
+            return false;
+        }
+    }
+
+    private void produceXz(File file, Pipe pipe) throws IOException, InterruptedException {
+        int numBlocks;
+        long largestBlockSize;
+        try (SeekableXZInputStream sxis = new SeekableXZInputStream(new SeekableFileInputStream(file))) {
+            numBlocks = sxis.getBlockCount();
+            largestBlockSize = sxis.getLargestBlockSize();
+        }
+
+        int maxPendingBlocks = (int) Math.min(numXzThreads, bufferBytesPerFile / Math.max(1, largestBlockSize));
+        if ((numBlocks >= 2) && (maxPendingBlocks < 2) && !hasWarnedXzBlockSize.getAndSet(true)) {
+            LOGGER.warn(
+                "XZ blocks of {} bytes are too large to be decompressed block-parallel within a read-ahead buffer of {} bytes; increase --read-ahead-buffer",
+                largestBlockSize, bufferBytesPerFile //
+            );
+        }
+
+        if ((numBlocks < 2) || (largestBlockSize > MAX_PARALLEL_XZ_BLOCK_SIZE) || (maxPendingBlocks < 2)) {
+            LOGGER.trace("{} cannot be decompressed block-parallel", file);
+            try (InputStream is = decompressor.open(file)) {
+                copy(is, pipe);
+            }
+            return;
+        }
+
+        LOGGER.trace("decompressing {} blocks of {} in parallel, up to {} at once", numBlocks, file, maxPendingBlocks);
+        metrics.count(PipelineMetrics.Stage.DECOMPRESS, 1, 0);
+
+        Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+        int nextBlock = 0;
+        try {
+            while ((nextBlock < numBlocks) || !pendingBlocks.isEmpty()) {
+                while ((nextBlock < numBlocks) && (pendingBlocks.size() < maxPendingBlocks)) {
+                    int blockNumber = nextBlock++;
+                    pendingBlocks.add(xzBlockExecutor.submit(() -> decompressXzBlock(file, blockNumber)));
+                }
+
+                byte[] block;
+                try {
+                    block = pendingBlocks.removeFirst().get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("failed to decompress XZ block of " + file, cause);
+                }
+
+                for (int offset = 0; offset < block.length; offset += CHUNK_SIZE) {
+                    int length = Math.min(CHUNK_SIZE, block.length - offset);
+                    byte[] chunk = bufferPool.acquire(length);
+                    System.arraycopy(block, offset, chunk, 0, length);
+                    pipe.put(new Chunk(chunk, length));
+                }
+            }
+        } finally {
+            for (Future<byte[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(true);
+            }
+        }
+    }
+
+    private byte[] decompressXzBlock(File file, int blockNumber) throws IOException {
+        metrics.begin();
+        long blockSize = 0;
+        try (SeekableXZInputStream sxis = new SeekableXZInputStream(new SeekableFileInputStream(file))) {
+            sxis.seekToBlock(blockNumber);
+            blockSize = sxis.getBlockSize(blockNumber);
+
+            byte[] block = new byte[(int) blockSize];
+            int offset = 0;
+            while (offset < block.length) {
+                int read = sxis.read(block, offset, block.length - offset);
+                if (read < 0) {
+                    throw new EOFException("XZ block " + blockNumber + " of " + file + " ended prematurely");
+                }
+                offset += read;
+            }
+            return block;
+        } finally {
+            metrics.end(PipelineMetrics.Stage.DECOMPRESS, 0, blockSize);
+        }
+    }
+
+    private void copy(InputStream is, Pipe pipe) throws IOException, InterruptedException {
+        while (true) {
+            byte[] chunk = bufferPool.acquire(CHUNK_SIZE);
+            int length = 0;
+            while (length < CHUNK_SIZE) {
+                int read = is.read(chunk, length, CHUNK_SIZE - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+            }
+
+            if (length == 0) {
+                bufferPool.release(chunk);
+                return;
+            }
+
+            pipe.put(new Chunk(chunk, length));
+
+            if (length < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Pipe pipe : pendingPipes) {
+            pipe.close();
+        }
+        pendingPipes.clear();
+
+        fileExecutor.shutdownNow();
+        if (xzBlockExecutor != null) {
+            xzBlockExecutor.shutdownNow();
+        }
+    }
+
+    private static class Chunk {
+        final byte[] bytes;
+        final int length;
+
+        Chunk(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    // bounded single-producer, single-consumer pipe of byte chunks; the producer
+    // gives up once the consumer has closed the stream
+    private static class Pipe extends InputStream {
+        private static final Chunk END_OF_STREAM = new Chunk(new byte[0], 0);
+
+        private final BlockingQueue<Chunk> chunks;
+        private final BufferPool bufferPool;
+        private volatile boolean closed = false;
+        private volatile Exception failure = null;
+
+        private Chunk current = null;
+        private int position = 0;
+
+        Pipe(int capacity, BufferPool bufferPool) {
+            chunks = new ArrayBlockingQueue<>(capacity);
+            this.bufferPool = bufferPool;
+        }
+
+        void put(Chunk chunk) throws InterruptedException, IOException {
+            while (!chunks.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    bufferPool.release(chunk.bytes);
+                    throw new IOException("pipe has been closed by consumer");
+                }
+            }
+        }
+
+        void finish(Exception failure) {
+            this.failure = failure;
+            try {
+                put(END_OF_STREAM);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ex) {
+                // consumer is gone, nothing left to signal
+            }
+        }
+
+        private boolean ensureData() throws IOException {
+            while ((current == null) || (position >= current.length)) {
+                if (current == END_OF_STREAM) {
+                    return false;
+                }
+
+                if (current != null) {
+                    bufferPool.release(current.bytes);
+                    current = null;
+                }
+
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for decompressed data");
+                }
+                position = 0;
+
+                if ((current == END_OF_STREAM) && (failure != null)) {
+                    if (failure instanceof IOException) {
+                        throw (IOException) failure;
+                    }
+                    throw new IOException("decompression failed", failure);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureData()) {
+                return -1;
+            }
+            return current.bytes[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+
+            int length = Math.min(len, current.length - position);
+            System.arraycopy(current.bytes, position, b, off, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+
+            if ((current != null) && (current != END_OF_STREAM)) {
+                bufferPool.release(current.bytes);
+            }
+            current = END_OF_STREAM;
+
+            Chunk chunk;
+            while ((chunk = chunks.poll()) != null) {
+                bufferPool.release(chunk.bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds back a limited number of named entries to emit them sorted by name.
+ * Entries exceeding the configured memory limit are spilled to temporary
+ * files. Entries held in memory use buffers of the given pool, which are
+ * released again after the entry has been emitted.
+ * <p>
+ * Spilled entries are appended to a segment file until it reaches a size
+ * limit, then a new segment is started. Segments are deleted as soon as all
+ * their entries have been emitted, so disk usage is bounded by the entries
+ * held back instead of growing with the number of entries passed through.
+ * </p>
+ */
+class ReorderBuffer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReorderBuffer.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_SPILL_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    static final int UNLIMITED_WINDOW = Integer.MAX_VALUE;
+    static final long UNLIMITED_MEMORY = Long.MAX_VALUE;
+
+    private final int window;
+    private final long maxMemoryBytes;
+    private final EntryConsumer consumer;
+    private final BufferPool bufferPool;
+    private final long spillSegmentBytes;
+
+    private final TreeMap<String, Entry> pending = new TreeMap<>(String::compareToIgnoreCase);
+    private long memoryBytes = 0;
+    private String lastEmittedName = null;
+
+    private final Set<SpillSegment> spillSegments = new LinkedHashSet<>();
+    private SpillSegment currentSpillSegment = null;
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(String name, InputStream is) throws IOException;
+    }
+
+    private interface Entry {
+        InputStream open() throws IOException;
+
+        long memorySize();
+
+        void release() throws IOException;
+    }
+
+    private class MemoryEntry implements Entry {
+        private byte[] bytes;
+        private final int length;
+
+        MemoryEntry(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(bytes, 0, length);
+        }
+
+        @Override
+        public long memorySize() {
+            return length;
+        }
+
+        @Override
+        public void release() {
+            bufferPool.release(bytes);
+            bytes = null;
+        }
+    }
+
+    private static class SpillSegment {
+        private final Path path;
+        private final FileChannel channel;
+        private long size = 0;
+        private int numPendingEntries = 0;
+
+        SpillSegment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private class SpilledEntry implements Entry {
+        private SpillSegment segment;
+        private final long offset;
+        private final long length;
+
+        SpilledEntry(SpillSegment segment, long offset, long length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream open() {
+            return new SpillInputStream(segment.channel, offset, length);
+        }
+
+        @Override
+        public long memorySize() {
+            return 0;
+        }
+
+        @Override
+        public void release() throws IOException {
+            if (segment != null) {
+                releaseSpilled(segment);
+                segment = null;
+            }
+        }
+    }
+
+    private static class SpillInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        SpillInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return (read < 0) ? -1 : (single[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long remaining = end - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int wanted = (int) Math.min(len, remaining);
+            int read = channel.read(ByteBuffer.wrap(b, off, wanted), position);
+            if (read < 0) {
+                throw new EOFException("spill file ended prematurely");
+            }
+            position += read;
+            return read;
+        }
+    }
+
+    ReorderBuffer(int window, long maxMemoryBytes, BufferPool bufferPool, EntryConsumer consumer) {
+        this(window, maxMemoryBytes, DEFAULT_SPILL_SEGMENT_BYTES, bufferPool, consumer);
+    }
+
+    ReorderBuffer(int window, long maxMemoryBytes, long spillSegmentBytes, BufferPool bufferPool, EntryConsumer consumer) {
+        this.window = window;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.spillSegmentBytes = spillSegmentBytes;
+        this.bufferPool = bufferPool;
+        this.consumer = consumer;
+    }
+
+    void add(String name, long size, InputStream is) throws IOException {
+        if ((lastEmittedName != null) && (lastEmittedName.compareToIgnoreCase(name) > 0)) {
+            LOGGER.warn(
+                "{} is out of order beyond reorder window (already emitted {}), passing it through unordered",
+                name, lastEmittedName //
+            );
+            emit(name, read(name, size, is));
+            return;
+        }
+
+        if (pending.containsKey(name)) {
+            LOGGER.debug("skipping duplicate entry {}", name);
+            return;
+        }
+
+        Entry entry = read(name, size, is);
+        pending.put(name, entry);
+        memoryBytes += entry.memorySize();
+
+        while (pending.size() > window) {
+            emitFirst();
+        }
+    }
+
+    void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            emitFirst();
+        }
+    }
+
+    private void emitFirst() throws IOException {
+        Map.Entry<String, Entry> first = pending.pollFirstEntry();
+        memoryBytes -= first.getValue().memorySize();
+        lastEmittedName = first.getKey();
+        emit(first.getKey(), first.getValue());
+    }
+
+    private void emit(String name, Entry entry) throws IOException {
+        try (InputStream is = entry.open()) {
+            consumer.accept(name, is);
+        } finally {
+            entry.release();
+        }
+    }
+
+    // holds the entry in memory if its size is known and within limits,
+    // otherwise spills it
+    private Entry read(String name, long size, InputStream is) throws IOException {
+        if ((size >= 0) && (size <= Integer.MAX_VALUE) && (memoryBytes + size <= maxMemoryBytes)) {
+            return readToMemory(name, (int) size, is);
+        }
+        return spill(is);
+    }
+
+    private Entry readToMemory(String name, int length, InputStream is) throws IOException {
+        byte[] bytes = bufferPool.acquire(length);
+        int offset = 0;
+        while (offset < length) {
+            int read = is.read(bytes, offset, length - offset);
+            if (read < 0) {
+                bufferPool.release(bytes);
+                throw new EOFException(name + " ended after " + offset + " of " + length + " bytes");
+            }
+            offset += read;
+        }
+
+        return new MemoryEntry(bytes, length);
+    }
+
+    private Entry spill(InputStream is) throws IOException {
+        if ((currentSpillSegment == null) || (currentSpillSegment.size >= spillSegmentBytes)) {
+            Path path = Files.createTempFile("reorder", ".spill");
+            FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE //
+            );
+            currentSpillSegment = new SpillSegment(path, channel);
+            spillSegments.add(currentSpillSegment);
+            LOGGER.debug("spilling entries to {}", path);
+        }
+
+        SpillSegment segment = currentSpillSegment;
+        long offset = segment.size;
+        long length = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, read);
+            while (bb.hasRemaining()) {
+                segment.channel.write(bb, offset + length + bb.position());
+            }
+            length += read;
+        }
+
+        segment.size += length;
+        segment.numPendingEntries++;
+
+        return new SpilledEntry(segment, offset, length);
+    }
+
+    private void releaseSpilled(SpillSegment segment) throws IOException {
+        segment.numPendingEntries--;
+        if (segment.numPendingEntries > 0) {
+            return;
+        }
+
+        if (segment == currentSpillSegment) {
+            // keep file for following entries but reclaim disk space
+            segment.channel.truncate(0);
+            segment.size = 0;
+        } else {
+            spillSegments.remove(segment);
+            segment.delete();
+        }
+    }
+
+    /**
+     * Returns the size of all spill files currently on disk.
+     *
+     * @return bytes held in spill files
+     * @throws IOException if file sizes cannot be determined
+     */
+    long getSpilledBytes() throws IOException {
+        long total = 0;
+        for (SpillSegment segment : spillSegments) {
+            total += segment.channel.size();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Entry entry : pending.values()) {
+            if (entry instanceof MemoryEntry) {
+                entry.release();
+            }
+        }
+        pending.clear();
+        memoryBytes = 0;
+
+        for (SpillSegment segment : spillSegments) {
+            segment.delete();
+        }
+        spillSegments.clear();
+        currentSpillSegment = null;
+    }
+}
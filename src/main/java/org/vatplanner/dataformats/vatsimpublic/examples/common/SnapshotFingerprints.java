@@ -0,0 +1,173 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers fingerprints of data files already read to skip duplicate
+ * snapshots. Data files are identified by the timestamp they have been
+ * generated at or, if no timestamp can be found, by a hash of their content.
+ * <p>
+ * Only the most recently added fingerprints are kept, up to the given
+ * capacity. If a file is given, fingerprints are loaded from it and written
+ * back on {@link #commit()}, which should happen after all read data has
+ * actually been imported.
+ * </p>
+ */
+class SnapshotFingerprints {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFingerprints.class);
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final int capacity;
+
+    private final LinkedHashSet<Long> fingerprints = new LinkedHashSet<>();
+    private boolean isModified = false;
+    private int numDuplicates = 0;
+
+    SnapshotFingerprints(File file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+        }
+
+        this.file = file;
+        this.capacity = capacity;
+
+        if ((file == null) || !file.exists()) {
+            return;
+        }
+
+        try (BufferedReader br = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8) //
+        )) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    remember(Long.parseUnsignedLong(line, 16));
+                }
+            }
+        } catch (NumberFormatException ex) {
+            throw new IOException("malformed fingerprint file " + file, ex);
+        }
+
+        isModified = false;
+        LOGGER.info("Loaded {} data file fingerprints from {}", fingerprints.size(), file);
+    }
+
+    // timestamp and content fingerprints are kept apart by the highest bit
+    static long of(Instant timestamp) {
+        MessageDigest digest = createDigest();
+        digest.update(timestamp.toString().getBytes(StandardCharsets.US_ASCII));
+        return toLong(digest.digest()) | Long.MIN_VALUE;
+    }
+
+    static long of(byte[] content, int length) {
+        MessageDigest digest = createDigest();
+        digest.update(content, 0, length);
+        return toLong(digest.digest()) & Long.MAX_VALUE;
+    }
+
+    static long of(InputStream is) throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            digest.update(buffer, 0, read);
+        }
+        return toLong(digest.digest()) & Long.MAX_VALUE;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is required to be available on all JVMs", ex);
+        }
+    }
+
+    private static long toLong(byte[] bytes) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Records the given fingerprint.
+     *
+     * @param fingerprint fingerprint of a data file
+     * @return true if the fingerprint is already known and the data file should
+     *         be skipped
+     */
+    boolean isDuplicate(long fingerprint) {
+        if (fingerprints.contains(fingerprint)) {
+            numDuplicates++;
+            return true;
+        }
+
+        remember(fingerprint);
+        isModified = true;
+        return false;
+    }
+
+    private void remember(long fingerprint) {
+        fingerprints.add(fingerprint);
+
+        if (fingerprints.size() > capacity) {
+            Iterator<Long> it = fingerprints.iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    int getNumDuplicates() {
+        return numDuplicates;
+    }
+
+    void commit() throws IOException {
+        if ((file == null) || !isModified) {
+            return;
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8) //
+        )) {
+            for (long fingerprint : fingerprints) {
+                writer.write(Long.toHexString(fingerprint));
+                writer.write('\n');
+            }
+        }
+
+        if (!tempFile.renameTo(file)) {
+            file.delete();
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("unable to move " + tempFile + " to " + file);
+            }
+        }
+
+        isModified = false;
+        LOGGER.info("Recorded {} data file fingerprints in {}", fingerprints.size(), file);
+    }
+}
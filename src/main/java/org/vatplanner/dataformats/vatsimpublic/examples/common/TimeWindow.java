@@ -0,0 +1,193 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time window to restrict data files to, based on the timestamp each data file
+ * has been generated at. Start is inclusive, end is exclusive; both are
+ * optional.
+ */
+public class TimeWindow {
+
+    // data files start with general information, so the timestamp can be found
+    // at the beginning
+    static final int HEAD_SIZE = 16 * 1024;
+
+    private static final Pattern PATTERN_JSON_TIMESTAMP = Pattern.compile("\"update_timestamp\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern PATTERN_JSON_UPDATE = Pattern.compile("\"update\"\\s*:\\s*\"(\\d{14})\"");
+    private static final Pattern PATTERN_LEGACY_UPDATE = Pattern.compile("(?m)^UPDATE\\s*=\\s*(\\d{14})");
+
+    private final Instant start;
+    private final Instant end;
+
+    TimeWindow(Instant start, Instant end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a point in time given either as ISO instant (e.g.
+     * <code>2020-09-13T16:00:00Z</code>) or date (e.g. <code>2020-09-13</code>, UTC
+     * midnight).
+     *
+     * @param s string to parse
+     * @return parsed instant
+     */
+    public static Instant parse(String s) {
+        try {
+            return Instant.parse(s);
+        } catch (DateTimeParseException ex) {
+            return LocalDate.parse(s).atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+    }
+
+    /**
+     * Checks if given timestamp is within this window. Unknown timestamps are
+     * always considered to be within the window.
+     *
+     * @param timestamp timestamp to check, may be null if unknown
+     * @return true if timestamp is within window or unknown
+     */
+    boolean contains(Instant timestamp) {
+        if (timestamp == null) {
+            return true;
+        }
+
+        return ((start == null) || !timestamp.isBefore(start))
+            && ((end == null) || timestamp.isBefore(end));
+    }
+
+    /**
+     * Checks if any time between given earliest and latest timestamps (both
+     * inclusive) is within this window.
+     *
+     * @param earliest earliest timestamp
+     * @param latest latest timestamp
+     * @return true if range overlaps with window
+     */
+    boolean overlaps(Instant earliest, Instant latest) {
+        return ((start == null) || !latest.isBefore(start))
+            && ((end == null) || earliest.isBefore(end));
+    }
+
+    /**
+     * Extracts the timestamp a data file has been generated at from the beginning
+     * of its content. Both JSON and legacy formats are recognized.
+     *
+     * @param head beginning of data file content
+     * @return timestamp; null if not found
+     */
+    static Instant findTimestamp(CharSequence head) {
+        Matcher matcher = PATTERN_JSON_TIMESTAMP.matcher(head);
+        if (matcher.find()) {
+            try {
+                return Instant.parse(matcher.group(1));
+            } catch (DateTimeParseException ex) {
+                // try other fields
+            }
+        }
+
+        matcher = PATTERN_JSON_UPDATE.matcher(head);
+        if (matcher.find()) {
+            return parseCompactTimestamp(matcher.group(1));
+        }
+
+        matcher = PATTERN_LEGACY_UPDATE.matcher(head);
+        if (matcher.find()) {
+            return parseCompactTimestamp(matcher.group(1));
+        }
+
+        return null;
+    }
+
+    /**
+     * Extracts the timestamp from the beginning of given stream without consuming
+     * it.
+     *
+     * @param is stream to read from, must support marks
+     * @return timestamp; null if not found
+     * @throws IOException if reading fails
+     */
+    static Instant readTimestamp(InputStream is) throws IOException {
+        byte[] head = new byte[HEAD_SIZE];
+        int length = 0;
+
+        is.mark(head.length);
+        while (length < head.length) {
+            int read = is.read(head, length, head.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        is.reset();
+
+        return findTimestamp(head, length);
+    }
+
+    /**
+     * Extracts the timestamp from the beginning of given reader without consuming
+     * it.
+     *
+     * @param br reader to read from
+     * @return timestamp; null if not found
+     * @throws IOException if reading fails
+     */
+    static Instant readTimestamp(BufferedReader br) throws IOException {
+        char[] head = new char[HEAD_SIZE];
+        int length = 0;
+
+        br.mark(head.length);
+        while (length < head.length) {
+            int read = br.read(head, length, head.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        br.reset();
+
+        return findTimestamp(CharBuffer.wrap(head, 0, length));
+    }
+
+    static Instant findTimestamp(byte[] head, int length) {
+        // data files are ISO-8859-1; all relevant characters are ASCII anyway
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (head[i] & 0xFF);
+        }
+        return findTimestamp(CharBuffer.wrap(chars));
+    }
+
+    private static Instant parseCompactTimestamp(String s) {
+        // yyyyMMddHHmmss in UTC
+        try {
+            return LocalDateTime.of(
+                Integer.parseInt(s.substring(0, 4)),
+                Integer.parseInt(s.substring(4, 6)),
+                Integer.parseInt(s.substring(6, 8)),
+                Integer.parseInt(s.substring(8, 10)),
+                Integer.parseInt(s.substring(10, 12)),
+                Integer.parseInt(s.substring(12, 14)) //
+            ).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[" + ((start != null) ? start : "") + ", " + ((end != null) ? end : "") + ")";
+    }
+}
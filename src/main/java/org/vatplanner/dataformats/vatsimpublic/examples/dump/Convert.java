@@ -0,0 +1,152 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.FileVisitor;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.PipelineMetrics;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+import org.vatplanner.dataformats.vatsimpublic.parser.Parser;
+
+/**
+ * Parses data files once and writes them to a binary file which can be
+ * imported by {@link Dump} without parsing again.
+ */
+public class Convert {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Convert.class);
+
+    private static final String OPTION_NAME_OUTPUT_FILE = "o";
+    private static final String OPTION_NAME_OUTPUT_OVERWRITE = "oo";
+    private static final String OPTION_NAME_VERIFY = "verify";
+    private static final String OPTION_NAME_HELP = "h";
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        addOptions(options);
+        FileVisitor.addOptions(options);
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine parameters = parser.parse(options, args);
+
+        boolean hasFiles = parameters.hasOption(FileVisitor.OPTION_NAME_READ_PATH) && parameters.hasOption(OPTION_NAME_OUTPUT_FILE);
+        if (!hasFiles || parameters.hasOption(OPTION_NAME_HELP)) {
+            new HelpFormatter().printHelp("convert|convert.sh", options);
+            System.exit(1);
+        }
+
+        if (parameters.hasOption(FileVisitor.OPTION_NAME_READ_JOURNAL) || parameters.hasOption(FileVisitor.OPTION_NAME_READ_FOLLOW)) {
+            System.err.println(
+                "Conversion always writes a new file and cannot be combined with --" + FileVisitor.OPTION_NAME_READ_JOURNAL
+                    + " or --" + FileVisitor.OPTION_NAME_READ_FOLLOW //
+            );
+            System.exit(1);
+        }
+
+        File output = new File(parameters.getOptionValue(OPTION_NAME_OUTPUT_FILE));
+        if (output.exists()) {
+            if (!parameters.hasOption(OPTION_NAME_OUTPUT_OVERWRITE)) {
+                System.err.println(
+                    "Requested output file " + output + " already exists; use --overwrite to replace it" //
+                );
+                System.exit(1);
+            }
+            LOGGER.info("Output file " + output + " already exists and will be overwritten");
+        }
+
+        Supplier<Parser<DataFile>> parserFactory = Dump.createParserFactory(parameters);
+        int parseThreads = Integer.parseInt(parameters.getOptionValue(Dump.OPTION_NAME_PARSE_THREADS, "1"));
+        boolean verify = parameters.hasOption(OPTION_NAME_VERIFY);
+
+        LOGGER.info("Starting to convert data files...");
+        FileVisitor fileVisitor = new FileVisitor(parameters);
+        try (PreparsedDataFiles.Writer writer = PreparsedDataFiles.create(output)) {
+            Consumer<DataFile> dataFileConsumer = dataFile -> {
+                if (verify) {
+                    try {
+                        PreparsedDataFiles.verifyRoundTrip(dataFile);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(
+                            "data file #" + (writer.getNumDataFiles() + 1) + " in read order cannot be restored losslessly", ex //
+                        );
+                    }
+                }
+
+                try {
+                    writer.write(dataFile);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("failed to write " + output, ex);
+                }
+            };
+
+            if (parseThreads > 1) {
+                PipelinedDataFileImporter importer = new PipelinedDataFileImporter(
+                    parserFactory,
+                    dataFileConsumer,
+                    parseThreads,
+                    PipelineMetrics.DISABLED //
+                );
+                fileVisitor.visit(importer);
+                importer.finish();
+            } else {
+                Parser<DataFile> dataFileParser = parserFactory.get();
+                fileVisitor.visit((BufferedReader reader) -> dataFileConsumer.accept(dataFileParser.deserialize(reader)));
+            }
+
+            LOGGER.info("Converted {} data files to {}", writer.getNumDataFiles(), output);
+            if (verify) {
+                LOGGER.info("All data files have been verified to be restored losslessly");
+            }
+        }
+    }
+
+    private static void addOptions(Options options) {
+        options.addOption(Option
+            .builder(OPTION_NAME_OUTPUT_FILE)
+            .longOpt("output")
+            .hasArg()
+            .argName("FILE")
+            .desc("writes parsed data files to given FILE for import using dump --read-preparsed; compressed if FILE ends with .gz or .xz")
+            .build());
+
+        options.addOption(Option
+            .builder(OPTION_NAME_OUTPUT_OVERWRITE)
+            .longOpt("overwrite")
+            .desc("overwrites the specified output file if it already exists")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_VERIFY)
+            .desc("checks that each data file is restored without losing stored information before writing it (slower)")
+            .build());
+
+        options.addOption(Dump.createFormatOption());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(Dump.OPTION_NAME_PARSE_THREADS)
+            .hasArg()
+            .argName("THREADS")
+            .desc("parses data files on given number of THREADS while still writing them in order")
+            .build());
+
+        options.addOption(Option
+            .builder(OPTION_NAME_HELP)
+            .longOpt("help")
+            .desc("displays this help message")
+            .build());
+    }
+}
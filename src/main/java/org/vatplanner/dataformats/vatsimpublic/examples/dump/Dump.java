@@ -1,19 +1,38 @@
 package org.vatplanner.dataformats.vatsimpublic.examples.dump;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
+import java.util.PriorityQueue;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
@@ -24,18 +43,12 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.vatplanner.dataformats.vatsimpublic.entities.TimeSpan;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.BarometricPressure;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.Connection;
 import org.vatplanner.dataformats.vatsimpublic.entities.status.DefaultStatusEntityFactory;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.Facility;
 import org.vatplanner.dataformats.vatsimpublic.entities.status.Flight;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.FlightPlan;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.GeoCoordinates;
 import org.vatplanner.dataformats.vatsimpublic.entities.status.Member;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.Report;
-import org.vatplanner.dataformats.vatsimpublic.entities.status.TrackPoint;
 import org.vatplanner.dataformats.vatsimpublic.examples.common.FileVisitor;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.PipelineMetrics;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.TimeWindow;
 import org.vatplanner.dataformats.vatsimpublic.graph.GraphImport;
 import org.vatplanner.dataformats.vatsimpublic.graph.GraphIndex;
 import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
@@ -49,40 +62,93 @@ public class Dump {
 
     private final GraphImport graphImport = new GraphImport(new DefaultStatusEntityFactory());
 
+    private Supplier<Parser<DataFile>> parserFactory;
     private Parser<DataFile> parser;
-    private PrintStream out = System.out;
+    private DumpWriter out;
+    private MemberPrinter printer;
+    private Charset outputCharset = Charset.defaultCharset();
+    private final ThreadLocal<MemberRenderer> renderers = ThreadLocal.withInitial(this::createRenderer);
 
-    private boolean isRoundingDisabled = false;
+    private final boolean isRoundingDisabled;
 
     private static final String OPTION_NAME_MEMBER_ID = "dm";
+    private static final String OPTION_NAME_FILTER_IMPORT = "filter-import";
+    private static final String OPTION_NAME_INTERN_STRINGS = "intern-strings";
     private static final String OPTION_NAME_OUTPUT_FILE = "of";
     private static final String OPTION_NAME_OUTPUT_OVERWRITE = "oo";
     private static final String OPTION_NAME_OUTPUT_APPEND = "oa";
-    private static final String OPTION_NAME_FORMAT = "f";
+    static final String OPTION_NAME_FORMAT = "f";
     private static final String OPTION_NAME_ROUNDING_DISABLE = "no-rounding";
+    static final String OPTION_NAME_PARSE_THREADS = "parse-threads";
+    private static final String OPTION_NAME_RENDER_THREADS = "render-threads";
+    private static final String OPTION_NAME_SNAPSHOT_WRITE = "snapshot-write";
+    private static final String OPTION_NAME_SNAPSHOT_READ = "snapshot-read";
+    private static final String OPTION_NAME_TRACK_EXPORT = "track-export";
+    private static final String OPTION_NAME_NO_DUMP = "no-dump";
+    private static final String OPTION_NAME_SHARD = "shard";
+    private static final String OPTION_NAME_SHARD_RANGE = "shard-range";
+    private static final String OPTION_NAME_SHARDS = "shards";
+    private static final String OPTION_NAME_DELTA_SINCE = "delta-since";
+    private static final String OPTION_NAME_DELTA_CHECKPOINT = "delta-checkpoint";
+    private static final String OPTION_NAME_QUERY_BOX = "query-box";
+    private static final String OPTION_NAME_QUERY_FROM = "query-from";
+    private static final String OPTION_NAME_QUERY_TO = "query-to";
+    private static final String OPTION_NAME_QUERY_CALLSIGN = "query-callsign";
+    private static final String OPTION_NAME_QUERY_TRACKS = "query-tracks";
+    private static final String OPTION_NAME_READ_PREPARSED = "read-preparsed";
     private static final String OPTION_NAME_HELP = "h";
 
     private static final DataFileFormat DEFAULT_FORMAT = DataFileFormat.JSON3;
+    private static final String FORMAT_AUTO = "AUTO";
+
+    private static final int MAX_PENDING_RENDERS_PER_THREAD = 4;
+    private static final int STRING_POOL_CAPACITY = 1000000;
 
     private final CommandLine parameters;
+    private final PipelineMetrics metrics;
+    private final int renderThreads;
+    private final MemberFilter importFilter;
+    private final StringPool stringPool;
+    private final JournalState journalState;
+
+    private long numImportedDataFiles = 0;
+
+    // only information recorded after this time is dumped if set; following
+    // always dumps only changes after the first dump
+    private final boolean isDelta;
+    private final boolean isFollowing;
+    private final File deltaCheckpointFile;
+    private Instant deltaSince;
+
+    private final boolean isQuery;
 
     public static void main(String[] args) throws Exception {
         Options options = new Options();
         addOptions(options);
         FileVisitor.addOptions(options);
+        PipelineMetrics.addOptions(options);
 
         CommandLineParser parser = new DefaultParser();
         CommandLine parameters = parser.parse(options, args);
 
-        if (!parameters.hasOption(FileVisitor.OPTION_NAME_READ_PATH) || parameters.hasOption(OPTION_NAME_HELP)) {
+        boolean hasInput = parameters.hasOption(FileVisitor.OPTION_NAME_READ_PATH)
+            || parameters.hasOption(OPTION_NAME_SNAPSHOT_READ)
+            || parameters.hasOption(OPTION_NAME_QUERY_TRACKS)
+            || parameters.hasOption(OPTION_NAME_READ_PREPARSED);
+        if (!hasInput || parameters.hasOption(OPTION_NAME_HELP)) {
             new HelpFormatter().printHelp("dump|dump.sh", options);
             System.exit(1);
         }
 
-        new Dump(parameters).run();
+        Dump dump = new Dump(parameters);
+        try {
+            dump.run();
+        } finally {
+            dump.metrics.close();
+        }
     }
 
-    private static void addOptions(Options options) {
+    static void addOptions(Options options) {
         options.addOption(Option
             .builder(OPTION_NAME_MEMBER_ID)
             .longOpt("dumpmember")
@@ -93,6 +159,22 @@ public class Dump {
             )
             .build());
 
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_FILTER_IMPORT)
+            .desc(
+                "only imports data of members selected by -" + OPTION_NAME_MEMBER_ID + " to reduce memory and CPU usage; other members will also be missing from snapshots" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_INTERN_STRINGS)
+            .desc(
+                "deduplicates strings repeated across data files (callsigns, airport codes, aircraft types, server IDs, real names) to reduce memory usage of the imported graph" //
+            )
+            .build());
+
         options.addOption(Option
             .builder(OPTION_NAME_OUTPUT_FILE)
             .longOpt("outputfile")
@@ -120,18 +202,161 @@ public class Dump {
             .build());
 
         options.addOption(Option
-            .builder(OPTION_NAME_FORMAT)
-            .longOpt("format")
+            .builder()
+            .longOpt(OPTION_NAME_PARSE_THREADS)
             .hasArg()
-            .argName("FORMAT")
+            .argName("THREADS")
             .desc(
-                "specifies the format of the data files to be parsed"
-                    + "\nDefault:   " + DEFAULT_FORMAT.name()
-                    + "\nAvailable: "
-                    + Arrays.stream(DataFileFormat.values()).map(Enum::name).collect(Collectors.joining(", ")) //
+                "parses data files on given number of THREADS while still importing them in order; default is to parse and import sequentially" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_RENDER_THREADS)
+            .hasArg()
+            .argName("THREADS")
+            .desc(
+                "renders members on given number of THREADS while still writing them in order; default is to render sequentially" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_SNAPSHOT_WRITE)
+            .hasArg()
+            .argName("FILE")
+            .desc("writes a snapshot of all imported members to given FILE for fast dumps using --" + OPTION_NAME_SNAPSHOT_READ)
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_SNAPSHOT_READ)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "dumps members from a snapshot FILE previously written by --" + OPTION_NAME_SNAPSHOT_WRITE + " instead of reading data files (repeat option to merge multiple snapshots, e.g. of shards)" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_NO_DUMP)
+            .desc("skips dumping members as text, e.g. if only a snapshot should be written")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_SHARD)
+            .hasArg()
+            .argName("INDEX/COUNT")
+            .desc(
+                "only imports members whose VATSIM ID hashes to shard INDEX (starting at 0) of COUNT shards; snapshots of all shards can be merged using --" + OPTION_NAME_SNAPSHOT_READ //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_SHARD_RANGE)
+            .hasArg()
+            .argName("FROM-TO")
+            .desc("only imports members whose VATSIM ID is within given inclusive range")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_SHARDS)
+            .hasArg()
+            .argName("COUNT")
+            .desc(
+                "splits import into COUNT shards imported by separate worker processes and merges their results; JVM options are passed on to workers" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_TRACK_EXPORT)
+            .hasArg()
+            .argName("FILE")
+            .desc("writes flights and their track points to given FILE in a compact binary columnar format instead of dumping as text")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_DELTA_SINCE)
+            .hasArg()
+            .argName("TIME")
+            .desc(
+                "only dumps information added or changed after given TIME (ISO instant or date in UTC), omitting unchanged members; snapshots and track exports remain complete" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_DELTA_CHECKPOINT)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "only dumps information added or changed after the time recorded in given FILE and records the latest dumped time in it; dumps everything if FILE does not exist yet" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_QUERY_BOX)
+            .hasArg()
+            .argName("MINLAT,MINLON,MAXLAT,MAXLON")
+            .desc(
+                "outputs all track points within given area (in degrees) instead of dumping members; wraps around the antimeridian if MINLON is greater than MAXLON" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_QUERY_FROM)
+            .hasArg()
+            .argName("TIME")
+            .desc("outputs all track points recorded at or after given TIME (ISO instant or date in UTC) instead of dumping members")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_QUERY_TO)
+            .hasArg()
+            .argName("TIME")
+            .desc("outputs all track points recorded before given TIME (ISO instant or date in UTC) instead of dumping members")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_QUERY_CALLSIGN)
+            .hasArg()
+            .argName("REGEX")
+            .desc("outputs all track points of flights whose callsign matches given regular expression instead of dumping members")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_QUERY_TRACKS)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "queries track points from given FILE previously written by --" + OPTION_NAME_TRACK_EXPORT + " instead of reading data files (repeat option for multiple files)" //
             )
             .build());
 
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_READ_PREPARSED)
+            .hasArg()
+            .argName("FILE")
+            .desc(
+                "imports data files from given FILE previously written by the convert tool instead of reading and parsing data files (repeat option for multiple files, imported in given order)" //
+            )
+            .build());
+
+        options.addOption(createFormatOption());
+
         options.addOption(Option
             .builder(OPTION_NAME_HELP)
             .longOpt("help")
@@ -139,15 +364,75 @@ public class Dump {
             .build());
     }
 
-    private Dump(CommandLine parameters) {
+    static Option createFormatOption() {
+        return Option
+            .builder(OPTION_NAME_FORMAT)
+            .longOpt("format")
+            .hasArg()
+            .argName("FORMAT")
+            .desc(
+                "specifies the format of the data files to be parsed; " + FORMAT_AUTO + " detects the format of each data file"
+                    + "\nDefault:   " + DEFAULT_FORMAT.name()
+                    + "\nAvailable: "
+                    + Arrays.stream(DataFileFormat.values()).map(Enum::name).collect(Collectors.joining(", "))
+                    + ", " + FORMAT_AUTO //
+            )
+            .build();
+    }
+
+    Dump(CommandLine parameters) {
         this.parameters = parameters;
+        this.metrics = PipelineMetrics.create(parameters);
+        this.isRoundingDisabled = parameters.hasOption(OPTION_NAME_ROUNDING_DISABLE);
+        this.renderThreads = Integer.parseInt(parameters.getOptionValue(OPTION_NAME_RENDER_THREADS, "1"));
+        this.importFilter = createImportFilter(parameters);
+        this.stringPool = parameters.hasOption(OPTION_NAME_INTERN_STRINGS) ? new StringPool(STRING_POOL_CAPACITY) : null;
+
+        String journalPath = parameters.getOptionValue(FileVisitor.OPTION_NAME_READ_JOURNAL);
+        this.journalState = (journalPath != null) ? new JournalState(new File(journalPath)) : null;
+
+        String deltaCheckpointPath = parameters.getOptionValue(OPTION_NAME_DELTA_CHECKPOINT);
+        this.deltaCheckpointFile = (deltaCheckpointPath != null) ? new File(deltaCheckpointPath) : null;
+        this.isDelta = parameters.hasOption(OPTION_NAME_DELTA_SINCE) || (deltaCheckpointFile != null);
+        this.isFollowing = parameters.hasOption(FileVisitor.OPTION_NAME_READ_FOLLOW);
+
+        this.isQuery = parameters.hasOption(OPTION_NAME_QUERY_BOX)
+            || parameters.hasOption(OPTION_NAME_QUERY_FROM)
+            || parameters.hasOption(OPTION_NAME_QUERY_TO)
+            || parameters.hasOption(OPTION_NAME_QUERY_CALLSIGN)
+            || parameters.hasOption(OPTION_NAME_QUERY_TRACKS);
+    }
+
+    private static MemberFilter createImportFilter(CommandLine parameters) {
+        MemberFilter filter = null;
+
+        String shard = parameters.getOptionValue(OPTION_NAME_SHARD);
+        if (shard != null) {
+            filter = MemberFilter.forShard(shard);
+        }
+
+        String range = parameters.getOptionValue(OPTION_NAME_SHARD_RANGE);
+        if (range != null) {
+            MemberFilter rangeFilter = MemberFilter.forRange(range);
+            filter = (filter != null) ? filter.and(rangeFilter) : rangeFilter;
+        }
+
+        String[] selectedMemberIds = parameters.getOptionValues(OPTION_NAME_MEMBER_ID);
+        if (parameters.hasOption(OPTION_NAME_FILTER_IMPORT) && (selectedMemberIds != null)) {
+            MemberFilter selectionFilter = MemberFilter.forMembers(getSelectedMemberIds(selectedMemberIds));
+            filter = (filter != null) ? filter.and(selectionFilter) : selectionFilter;
+        }
+
+        if (filter != null) {
+            LOGGER.info("Only importing {}", filter);
+        }
+
+        return filter;
     }
 
     private void run() {
         configureOutput(parameters);
-        configureParser();
-
-        isRoundingDisabled = parameters.hasOption(OPTION_NAME_ROUNDING_DISABLE);
+        configureDelta();
 
         SortedSet<Integer> selectedMemberIds = getSelectedMemberIds(parameters.getOptionValues(OPTION_NAME_MEMBER_ID));
         if (selectedMemberIds.isEmpty()) {
@@ -163,34 +448,700 @@ public class Dump {
             );
         }
 
+        if (isQuery && (parameters.hasOption(OPTION_NAME_TRACK_EXPORT) || parameters.hasOption(OPTION_NAME_SHARDS))) {
+            System.err.println(
+                "Track queries cannot be combined with --" + OPTION_NAME_TRACK_EXPORT + " or --" + OPTION_NAME_SHARDS
+                    + "; query exported tracks using --" + OPTION_NAME_QUERY_TRACKS + " instead" //
+            );
+            System.exit(1);
+        }
+
+        if (parameters.hasOption(OPTION_NAME_SNAPSHOT_READ) && (isQuery || parameters.hasOption(OPTION_NAME_TRACK_EXPORT))) {
+            System.err.println(
+                "Snapshots only hold members rendered as text and cannot be used for track queries or --" + OPTION_NAME_TRACK_EXPORT //
+            );
+            System.exit(1);
+        }
+
+        if (parameters.hasOption(OPTION_NAME_QUERY_TRACKS)) {
+            TrackQueryIndex.Builder builder = new TrackQueryIndex.Builder();
+            for (String path : parameters.getOptionValues(OPTION_NAME_QUERY_TRACKS)) {
+                try (TrackColumnFile file = new TrackColumnFile(new File(path))) {
+                    TrackColumnFile.Block block;
+                    while ((block = file.nextBlock()) != null) {
+                        builder.add(block);
+                    }
+                } catch (IOException ex) {
+                    LOGGER.error("Failed to read tracks from " + path, ex);
+                    System.exit(1);
+                }
+            }
+            queryTracks(builder);
+            return;
+        }
+
+        if (parameters.hasOption(OPTION_NAME_SNAPSHOT_READ)) {
+            List<File> files = Arrays.stream(parameters.getOptionValues(OPTION_NAME_SNAPSHOT_READ))
+                .map(File::new)
+                .collect(Collectors.toList());
+            dumpSnapshots(files, selectedMemberIds);
+            return;
+        }
+
+        if (parameters.hasOption(OPTION_NAME_SHARDS)) {
+            runShards(Integer.parseInt(parameters.getOptionValue(OPTION_NAME_SHARDS)), selectedMemberIds);
+            return;
+        }
+
+        if (parameters.hasOption(OPTION_NAME_READ_PREPARSED)) {
+            if (parameters.hasOption(FileVisitor.OPTION_NAME_READ_PATH)) {
+                System.err.println(
+                    "--" + OPTION_NAME_READ_PREPARSED + " cannot be combined with -" + FileVisitor.OPTION_NAME_READ_PATH
+                        + "; convert all data files to be imported instead" //
+                );
+                System.exit(1);
+            }
+
+            LOGGER.info("Starting to import preparsed data files...");
+            importPreparsedDataFiles();
+            LOGGER.info("Done importing data files, dumping...");
+            output(selectedMemberIds);
+            return;
+        }
+
+        configureParser();
+
+        if (journalState != null) {
+            restoreJournalState();
+        }
+
         LOGGER.info("Starting to import data files...");
-        new FileVisitor(parameters).visit(this::importDataFile);
+        FileVisitor fileVisitor = new FileVisitor(parameters, metrics);
+        importDataFiles(fileVisitor);
         LOGGER.info("Done importing data files, dumping...");
+        output(selectedMemberIds);
+
+        while (fileVisitor.isFollowing()) {
+            try {
+                fileVisitor.awaitFollowInterval();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.info("Interrupted, stopping to follow new data files");
+                return;
+            }
+
+            long previouslyImported = numImportedDataFiles;
+            importDataFiles(fileVisitor);
+            if (numImportedDataFiles > previouslyImported) {
+                LOGGER.info("Imported {} new data files, dumping...", numImportedDataFiles - previouslyImported);
+                output(selectedMemberIds);
+            }
+        }
+    }
+
+    private void importDataFiles(FileVisitor fileVisitor) {
+        int parseThreads = Integer.parseInt(parameters.getOptionValue(OPTION_NAME_PARSE_THREADS, "1"));
+        if (parseThreads > 1) {
+            LOGGER.debug("Parsing on {} threads", parseThreads);
+            PipelinedDataFileImporter importer = new PipelinedDataFileImporter(
+                parserFactory,
+                this::importNewDataFile,
+                parseThreads,
+                metrics //
+            );
+            fileVisitor.visit(importer);
+            importer.finish();
+        } else {
+            fileVisitor.visit(this::importDataFile);
+        }
+
+        try {
+            // journal must not list any files whose data has not been stored;
+            // stored data must not be restored without its files being listed
+            if (journalState != null) {
+                journalState.commit(fileVisitor.getUncommittedJournalLines());
+            }
+            fileVisitor.commitJournal();
+            if (journalState != null) {
+                journalState.confirm();
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Failed to update import journal", ex);
+            System.exit(1);
+        }
 
+        if (stringPool != null) {
+            LOGGER.info("String pool: {}", stringPool);
+        }
+    }
+
+    private void importPreparsedDataFiles() {
+        for (String path : parameters.getOptionValues(OPTION_NAME_READ_PREPARSED)) {
+            importPreparsedDataFiles(new File(path));
+        }
+
+        if (stringPool != null) {
+            LOGGER.info("String pool: {}", stringPool);
+        }
+    }
+
+    private void importPreparsedDataFiles(File file) {
+        try (PreparsedDataFiles.Reader reader = PreparsedDataFiles.open(file)) {
+            DataFile dataFile;
+            while ((dataFile = readPreparsedDataFile(reader)) != null) {
+                importParsedDataFile(dataFile);
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Failed to import preparsed data files from " + file, ex);
+            System.exit(1);
+        }
+    }
+
+    private void restoreJournalState() {
+        try {
+            journalState.recover();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to recover import journal", ex);
+            System.exit(1);
+        }
+
+        List<File> segments = journalState.getSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        LOGGER.info("Restoring data files imported by previous runs from {} journal segments...", segments.size());
+        for (File segment : segments) {
+            importPreparsedDataFiles(segment);
+        }
+        LOGGER.info("Restored {} data files", numImportedDataFiles);
+    }
+
+    private DataFile readPreparsedDataFile(PreparsedDataFiles.Reader reader) throws IOException {
+        DataFile dataFile = null;
+        metrics.begin();
+        try {
+            dataFile = reader.next();
+            return dataFile;
+        } finally {
+            metrics.end(PipelineMetrics.Stage.DESERIALIZE, (dataFile != null) ? 1 : 0, 0);
+        }
+    }
+
+    private void output(SortedSet<Integer> selectedMemberIds) {
         GraphIndex graphIndex = graphImport.getIndex();
 
+        if (parameters.hasOption(OPTION_NAME_SNAPSHOT_WRITE)) {
+            writeSnapshot(new File(parameters.getOptionValue(OPTION_NAME_SNAPSHOT_WRITE)), graphIndex);
+        }
+
+        if (parameters.hasOption(OPTION_NAME_NO_DUMP)) {
+            return;
+        }
+
+        List<Member> members;
         if (!selectedMemberIds.isEmpty()) {
-            selectedMemberIds
+            members = selectedMemberIds
                 .stream()
                 .sequential()
                 .map(graphIndex::getMemberByVatsimId)
                 .filter(Objects::nonNull)
-                .forEachOrdered(this::printMember);
+                .collect(Collectors.toList());
         } else {
-            graphIndex.getAllMembers()
+            members = graphIndex.getAllMembers()
                 .stream()
                 .sorted((a, b) -> Integer.compare(a.getVatsimId(), b.getVatsimId()))
-                .forEachOrdered(this::printMember);
+                .collect(Collectors.toList());
+        }
+
+        if (parameters.hasOption(OPTION_NAME_TRACK_EXPORT)) {
+            exportTracks(new File(parameters.getOptionValue(OPTION_NAME_TRACK_EXPORT)), members);
+            return;
+        }
+
+        if (isQuery) {
+            TrackQueryIndex.Builder builder = new TrackQueryIndex.Builder();
+            for (Member member : members) {
+                member.getFlights().forEach(builder::add);
+            }
+            queryTracks(builder);
+            return;
+        }
+
+        if (renderThreads > 1) {
+            LOGGER.info("Rendering on {} threads", renderThreads);
+            try {
+                renderOrdered(members, deltaSince, (member, rendered) -> printRendered(ByteBuffer.wrap(rendered)));
+            } catch (IOException ex) {
+                // only thrown by consumer which does not perform any checked I/O
+                throw new UncheckedIOException(ex);
+            }
+        } else {
+            members.forEach(this::printMember);
+        }
+        out.flush();
+
+        if (isDelta || isFollowing) {
+            if (!isDelta && (deltaSince == null)) {
+                LOGGER.info("Following dumps will only contain information recorded after this dump");
+            }
+            advanceDelta(members);
+        }
+    }
+
+    private void configureDelta() {
+        if (!isDelta) {
+            return;
+        }
+
+        if (parameters.hasOption(OPTION_NAME_SNAPSHOT_READ) || parameters.hasOption(OPTION_NAME_SHARDS)) {
+            System.err.println(
+                "--" + OPTION_NAME_DELTA_SINCE + " and --" + OPTION_NAME_DELTA_CHECKPOINT
+                    + " cannot be combined with --" + OPTION_NAME_SNAPSHOT_READ + " or --" + OPTION_NAME_SHARDS //
+            );
+            System.exit(1);
+        }
+
+        String since = parameters.getOptionValue(OPTION_NAME_DELTA_SINCE);
+        if (since != null) {
+            try {
+                deltaSince = TimeWindow.parse(since);
+            } catch (DateTimeException ex) {
+                System.err.println("Unable to parse --" + OPTION_NAME_DELTA_SINCE + " " + since);
+                System.exit(1);
+            }
+        }
+
+        if ((deltaCheckpointFile != null) && deltaCheckpointFile.exists()) {
+            try {
+                Instant checkpoint = Instant.parse(
+                    new String(Files.readAllBytes(deltaCheckpointFile.toPath()), StandardCharsets.UTF_8).trim() //
+                );
+                deltaSince = later(deltaSince, checkpoint);
+            } catch (IOException | DateTimeException ex) {
+                LOGGER.error("Failed to read delta checkpoint " + deltaCheckpointFile, ex);
+                System.exit(1);
+            }
+        }
+
+        if (deltaSince != null) {
+            LOGGER.info("Only dumping information recorded after {}", deltaSince);
+        } else {
+            LOGGER.info("No delta checkpoint recorded yet, dumping all information");
+        }
+    }
+
+    // following deltas start after the latest information dumped so far
+    private void advanceDelta(List<Member> members) {
+        for (Member member : members) {
+            deltaSince = later(deltaSince, MemberPrinter.getLatestRecordTime(member));
+        }
+
+        if ((deltaCheckpointFile == null) || (deltaSince == null)) {
+            return;
+        }
+
+        File tempFile = new File(deltaCheckpointFile.getPath() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), (deltaSince.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), deltaCheckpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to record delta checkpoint " + deltaCheckpointFile, ex);
+            System.exit(1);
+        }
+
+        LOGGER.debug("recorded delta checkpoint {}", deltaSince);
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+    @FunctionalInterface
+    interface RenderedConsumer<T> {
+        void accept(T item, byte[] rendered) throws IOException;
+    }
+
+    private void renderOrdered(List<Member> members, Instant since, RenderedConsumer<Member> consumer) throws IOException {
+        renderOrdered(members, renderThreads, member -> renderMember(member, since), consumer);
+    }
+
+    /**
+     * Renders items on the given number of threads, handing them to the consumer
+     * in original order.
+     */
+    static <T> void renderOrdered(List<T> items, int numThreads, Function<T, byte[]> renderer, RenderedConsumer<T> consumer) throws IOException {
+        if (numThreads <= 1) {
+            for (T item : items) {
+                consumer.accept(item, renderer.apply(item));
+            }
+            return;
+        }
+
+        int maxPending = numThreads * MAX_PENDING_RENDERS_PER_THREAD;
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        Deque<T> pendingItems = new ArrayDeque<>();
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+        try {
+            Iterator<T> remaining = items.iterator();
+            while (remaining.hasNext() || !pending.isEmpty()) {
+                while (remaining.hasNext() && (pending.size() < maxPending)) {
+                    T item = remaining.next();
+                    pendingItems.add(item);
+                    pending.add(pool.submit(() -> renderer.apply(item)));
+                }
+
+                byte[] rendered = pending.removeFirst().join();
+                consumer.accept(pendingItems.removeFirst(), rendered);
+            }
+        } finally {
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(true);
+            }
+            pool.shutdown();
+        }
+    }
+
+    private void exportTracks(File file, List<Member> members) {
+        LOGGER.info("Exporting tracks to {}", file);
+
+        int numFlights = 0;
+        try (TrackColumnFile.Writer writer = new TrackColumnFile.Writer(file)) {
+            for (Member member : members) {
+                List<Flight> flights = member.getFlights()
+                    .stream()
+                    .sorted(MemberPrinter::compareFlights)
+                    .collect(Collectors.toList());
+
+                for (Flight flight : flights) {
+                    metrics.begin();
+                    try {
+                        if (writer.add(flight)) {
+                            numFlights++;
+                        }
+                    } finally {
+                        metrics.end(PipelineMetrics.Stage.OUTPUT, 0, 0);
+                    }
+                }
+
+                metrics.count(PipelineMetrics.Stage.OUTPUT, 1, 0);
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Failed to export tracks to " + file, ex);
+            System.exit(1);
+        }
+
+        LOGGER.info("Tracks of {} flights exported", numFlights);
+    }
+
+    private void queryTracks(TrackQueryIndex.Builder builder) {
+        long fromMillis = Long.MIN_VALUE;
+        long toMillis = Long.MAX_VALUE;
+        TrackQueryIndex.BoundingBox box = null;
+        Pattern callsignPattern = null;
+        try {
+            if (parameters.hasOption(OPTION_NAME_QUERY_FROM)) {
+                fromMillis = TimeWindow.parse(parameters.getOptionValue(OPTION_NAME_QUERY_FROM)).toEpochMilli();
+            }
+            if (parameters.hasOption(OPTION_NAME_QUERY_TO)) {
+                toMillis = TimeWindow.parse(parameters.getOptionValue(OPTION_NAME_QUERY_TO)).toEpochMilli();
+            }
+            if (parameters.hasOption(OPTION_NAME_QUERY_BOX)) {
+                box = TrackQueryIndex.BoundingBox.parse(parameters.getOptionValue(OPTION_NAME_QUERY_BOX));
+            }
+            if (parameters.hasOption(OPTION_NAME_QUERY_CALLSIGN)) {
+                callsignPattern = Pattern.compile(
+                    parameters.getOptionValue(OPTION_NAME_QUERY_CALLSIGN),
+                    Pattern.CASE_INSENSITIVE //
+                );
+            }
+        } catch (DateTimeException | IllegalArgumentException ex) {
+            System.err.println("Invalid track query: " + ex.getMessage());
+            System.exit(1);
+        }
+
+        long startTime = System.nanoTime();
+        TrackQueryIndex index = builder.build();
+        LOGGER.info(
+            "Indexed {} track points of {} flights in {} ms",
+            index.getNumberOfPoints(), index.getNumberOfFlights(), (System.nanoTime() - startTime) / 1000000 //
+        );
+
+        out.append("                time latitude longitude   alt callsign vatsim ID").newLine();
+
+        startTime = System.nanoTime();
+        int[] numMatches = new int[1];
+        index.query(
+            fromMillis, toMillis, box, callsignPattern,
+            point -> {
+                out.appendPadded(Instant.ofEpochMilli(index.getTime(point)), !isRoundingDisabled, 20)
+                    .append(' ').appendFixed(index.getLatitude(point), 8, 4)
+                    .append(' ').appendFixed(index.getLongitude(point), 9, 4)
+                    .append(' ').appendPadded(index.getAltitudeFeet(point), 5, false)
+                    .append(' ').append(index.getCallsign(point))
+                    .append(' ').append(index.getVatsimId(point))
+                    .newLine();
+                numMatches[0]++;
+            } //
+        );
+        out.flush();
+
+        LOGGER.info("Query matched {} track points in {} ms", numMatches[0], (System.nanoTime() - startTime) / 1000000);
+    }
+
+    private void writeSnapshot(File file, GraphIndex graphIndex) {
+        LOGGER.info("Writing snapshot to {}", file);
+
+        List<Member> members = graphIndex.getAllMembers()
+            .stream()
+            .sorted((a, b) -> Integer.compare(a.getVatsimId(), b.getVatsimId()))
+            .collect(Collectors.toList());
+
+        writeSnapshotFile(
+            file,
+            writer -> renderOrdered(members, null, (member, rendered) -> writer.add(member.getVatsimId(), rendered)) //
+        );
+
+        LOGGER.info("Snapshot of {} members written", members.size());
+    }
+
+    private void runShards(int numShards, SortedSet<Integer> selectedMemberIds) {
+        if (parameters.hasOption(FileVisitor.OPTION_NAME_READ_JOURNAL)
+            || parameters.hasOption(FileVisitor.OPTION_NAME_READ_FOLLOW)
+            || parameters.hasOption(OPTION_NAME_TRACK_EXPORT)
+            || parameters.hasOption(OPTION_NAME_SHARD)) {
+            System.err.println(
+                "--" + OPTION_NAME_SHARDS + " cannot be combined with --" + FileVisitor.OPTION_NAME_READ_JOURNAL
+                    + ", --" + FileVisitor.OPTION_NAME_READ_FOLLOW
+                    + ", --" + OPTION_NAME_TRACK_EXPORT + " or --" + OPTION_NAME_SHARD //
+            );
+            System.exit(1);
+        }
+
+        LOGGER.info("Importing in {} shards...", numShards);
+
+        ShardCoordinator coordinator = new ShardCoordinator(
+            parameters,
+            numShards,
+            Arrays.asList(
+                OPTION_NAME_SHARDS,
+                OPTION_NAME_OUTPUT_FILE,
+                OPTION_NAME_OUTPUT_OVERWRITE,
+                OPTION_NAME_OUTPUT_APPEND,
+                OPTION_NAME_SNAPSHOT_WRITE,
+                OPTION_NAME_NO_DUMP,
+                PipelineMetrics.OPTION_NAME_METRICS_FILE //
+            ) //
+        );
+        try {
+            List<File> snapshotFiles = coordinator.run(OPTION_NAME_SHARD, OPTION_NAME_SNAPSHOT_WRITE, "--" + OPTION_NAME_NO_DUMP);
+            LOGGER.info("All shards have been imported, merging...");
+
+            if (parameters.hasOption(OPTION_NAME_SNAPSHOT_WRITE)) {
+                mergeSnapshots(snapshotFiles, new File(parameters.getOptionValue(OPTION_NAME_SNAPSHOT_WRITE)));
+            }
+
+            if (!parameters.hasOption(OPTION_NAME_NO_DUMP)) {
+                dumpSnapshots(snapshotFiles, selectedMemberIds);
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Failed to import shards", ex);
+            System.exit(1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for shards", ex);
+            System.exit(1);
+        } finally {
+            coordinator.cleanUp();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SnapshotMemberConsumer {
+        void accept(int vatsimId, ByteBuffer rendered) throws IOException;
+    }
+
+    // visits members of all snapshots ordered by VATSIM ID
+    private void visitSnapshots(List<File> files, SortedSet<Integer> selectedMemberIds, SnapshotMemberConsumer consumer) throws IOException {
+        List<DumpSnapshot> snapshots = new ArrayList<>();
+        try {
+            for (File file : files) {
+                DumpSnapshot snapshot = new DumpSnapshot(file);
+                snapshots.add(snapshot);
+
+                if (snapshot.isRoundingDisabled() != isRoundingDisabled) {
+                    LOGGER.warn(
+                        "Snapshot {} has been written with rounding {}, output will not reflect current setting",
+                        file, snapshot.isRoundingDisabled() ? "disabled" : "enabled" //
+                    );
+                }
+            }
+
+            if (!selectedMemberIds.isEmpty()) {
+                for (int vatsimId : selectedMemberIds) {
+                    for (DumpSnapshot snapshot : snapshots) {
+                        ByteBuffer rendered = snapshot.getMember(vatsimId);
+                        if (rendered != null) {
+                            consumer.accept(vatsimId, rendered);
+                        }
+                    }
+                }
+                return;
+            }
+
+            // k-way merge; queue holds next index position per snapshot
+            int[] positions = new int[snapshots.size()];
+            PriorityQueue<Integer> queue = new PriorityQueue<>(
+                Math.max(1, snapshots.size()),
+                Comparator.comparingInt((Integer i) -> snapshots.get(i).getVatsimId(positions[i])).thenComparingInt(i -> i) //
+            );
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (snapshots.get(i).getNumberOfMembers() > 0) {
+                    queue.add(i);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                int i = queue.poll();
+                DumpSnapshot snapshot = snapshots.get(i);
+                consumer.accept(snapshot.getVatsimId(positions[i]), snapshot.getMemberAt(positions[i]));
+
+                positions[i]++;
+                if (positions[i] < snapshot.getNumberOfMembers()) {
+                    queue.add(i);
+                }
+            }
+        } finally {
+            for (DumpSnapshot snapshot : snapshots) {
+                snapshot.close();
+            }
+        }
+    }
+
+    private void dumpSnapshots(List<File> files, SortedSet<Integer> selectedMemberIds) {
+        LOGGER.info("Dumping from snapshots {}", files);
+
+        try {
+            visitSnapshots(files, selectedMemberIds, (vatsimId, rendered) -> printRendered(rendered));
+        } catch (IOException ex) {
+            LOGGER.error("Failed to read snapshots from " + files, ex);
+            System.exit(1);
+        }
+
+        out.flush();
+    }
+
+    private void mergeSnapshots(List<File> files, File target) {
+        LOGGER.info("Writing merged snapshot to {}", target);
+
+        writeSnapshotFile(
+            target,
+            writer -> visitSnapshots(
+                files,
+                new TreeSet<>(),
+                (vatsimId, rendered) -> {
+                    byte[] bytes = new byte[rendered.remaining()];
+                    rendered.get(bytes);
+                    writer.add(vatsimId, bytes);
+                } //
+            ) //
+        );
+    }
+
+    @FunctionalInterface
+    private interface SnapshotContent {
+        void writeTo(DumpSnapshot.Writer writer) throws IOException;
+    }
+
+    // snapshots are only finished if all content has been written, partial
+    // files are deleted
+    private void writeSnapshotFile(File file, SnapshotContent content) {
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, isRoundingDisabled)) {
+            content.writeTo(writer);
+            writer.finish();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("Failed to write snapshot to " + file, ex);
+            if (file.exists() && !file.delete()) {
+                LOGGER.error("Failed to delete incomplete snapshot {}", file);
+            }
+            System.exit(1);
+        }
+    }
+
+    byte[] renderMember(Member member, Instant since) {
+        metrics.begin();
+        try {
+            return renderers.get().render(member, since);
+        } finally {
+            metrics.end(PipelineMetrics.Stage.OUTPUT, 1, 0);
         }
     }
 
-    private void configureParser() {
+    private MemberRenderer createRenderer() {
+        return new MemberRenderer(outputCharset, isRoundingDisabled);
+    }
+
+    // renders members to byte arrays, reusing buffers; one instance per thread
+    private static class MemberRenderer {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DumpWriter writer;
+        private final MemberPrinter printer;
+
+        MemberRenderer(Charset charset, boolean isRoundingDisabled) {
+            writer = new DumpWriter(Channels.newChannel(buffer), charset);
+            printer = new MemberPrinter(writer, isRoundingDisabled);
+        }
+
+        byte[] render(Member member, Instant since) {
+            buffer.reset();
+            printer.print(member, since);
+            writer.flush();
+            return buffer.toByteArray();
+        }
+    }
+
+    private void printRendered(ByteBuffer rendered) {
+        out.write(rendered);
+    }
+
+    void configureParser() {
+        parserFactory = createParserFactory(parameters);
+        parser = parserFactory.get();
+    }
+
+    /**
+     * Creates a factory for parsers of the format requested by parameters. Each
+     * thread parsing data files should use its own parser.
+     */
+    static Supplier<Parser<DataFile>> createParserFactory(CommandLine parameters) {
+        Supplier<Parser<DataFile>> parserFactory = null;
         String wantedFormatName = parameters.getOptionValue(OPTION_NAME_FORMAT, DEFAULT_FORMAT.name());
+        if (FORMAT_AUTO.equalsIgnoreCase(wantedFormatName)) {
+            try {
+                parserFactory = () -> new FormatDetectingParser(new DataFileParserFactory());
+                parserFactory.get();
+            } catch (IllegalArgumentException ex) {
+                ex.printStackTrace();
+                System.err.println();
+                System.err.println("Automatic format detection requires parsers for all formats which are not available.");
+                System.exit(1);
+            }
+
+            LOGGER.info("Format will be detected for each data file");
+            return parserFactory;
+        }
+
         DataFileFormat wantedFormat = null;
         try {
-            DataFileParserFactory factory = new DataFileParserFactory();
-            wantedFormat = DataFileFormat.valueOf(wantedFormatName.toUpperCase());
-            parser = factory.createDataFileParser(wantedFormat);
+            DataFileFormat format = DataFileFormat.valueOf(wantedFormatName.toUpperCase());
+            parserFactory = () -> new DataFileParserFactory().createDataFileParser(format);
+            parserFactory.get();
+            wantedFormat = format;
         } catch (IllegalArgumentException ex) {
             ex.printStackTrace();
             System.err.println();
@@ -201,12 +1152,19 @@ public class Dump {
         }
 
         LOGGER.info("Format {} will be parsed", wantedFormat);
+        return parserFactory;
     }
 
     private void configureOutput(CommandLine parameters) {
         String outputPath = parameters.getOptionValue(OPTION_NAME_OUTPUT_FILE);
         if (outputPath == null) {
             LOGGER.info("Will print dump to STDOUT.");
+            outputCharset = getCharset(System.out);
+            out = new DumpWriter(
+                Channels.newChannel(metrics.count(System.out, PipelineMetrics.Stage.OUTPUT)),
+                outputCharset //
+            );
+            printer = new MemberPrinter(out, isRoundingDisabled);
             return;
         }
 
@@ -239,10 +1197,23 @@ public class Dump {
             ex.printStackTrace();
             System.exit(1);
         }
-        out = new PrintStream(fos, true);
+        WritableByteChannel channel = metrics.isEnabled()
+            ? Channels.newChannel(metrics.count(fos, PipelineMetrics.Stage.OUTPUT))
+            : fos.getChannel();
+        out = new DumpWriter(channel, outputCharset);
+        printer = new MemberPrinter(out, isRoundingDisabled);
+    }
+
+    private static Charset getCharset(PrintStream printStream) {
+        // PrintStream only exposes its charset since Java 18
+        try {
+            return (Charset) PrintStream.class.getMethod("charset").invoke(printStream);
+        } catch (ReflectiveOperationException ex) {
+            return Charset.defaultCharset();
+        }
     }
 
-    private SortedSet<Integer> getSelectedMemberIds(String[] optionValues) {
+    private static SortedSet<Integer> getSelectedMemberIds(String[] optionValues) {
         SortedSet<Integer> memberIds = new TreeSet<>(Integer::compareTo);
         if (optionValues != null) {
             for (String optionValue : optionValues) {
@@ -253,209 +1224,57 @@ public class Dump {
         return memberIds;
     }
 
-    private void importDataFile(BufferedReader contentReader) {
-        // TODO: check if it makes sense to parallelize parsing again (import moving
-        // segments, ordered by record time)
-        DataFile dataFile = parser.deserialize(contentReader);
-        graphImport.importDataFile(dataFile);
-    }
-
-    private void printMember(Member member) {
-        out.println("\n\n----- Member: " + member.getVatsimId());
-        out.println("Facilities:");
-        printFacilities(member);
-
-        out.println("\nFlights:");
-        printFlights(member);
-    }
-
-    private void printFlights(Member member) {
-        member.getFlights()
-            .stream()
-            .sorted(this::compareFlights)
-            .forEachOrdered(this::printFlight);
+    GraphIndex getGraphIndex() {
+        return graphImport.getIndex();
     }
 
-    private int compareFlights(Flight a, Flight b) {
-        // earliest time first
-        int byEarliestVisibleTime = a.getEarliestVisibleTime().compareTo(b.getEarliestVisibleTime());
-        if (byEarliestVisibleTime != 0) {
-            return byEarliestVisibleTime;
-        }
-
-        // refilings result in same earlierst time for both flights
-        // try to fall back to track point time
-        SortedSet<TrackPoint> trackA = a.getTrack();
-        SortedSet<TrackPoint> trackB = b.getTrack();
-        if (!trackA.isEmpty() && !trackB.isEmpty()) {
-            Instant timeA = trackA.first().getReport().getRecordTime();
-            Instant timeB = trackB.first().getReport().getRecordTime();
-            return timeA.compareTo(timeB);
-        }
-
-        // try to fall back to flight plan time
-        SortedSet<FlightPlan> plansA = a.getFlightPlans();
-        SortedSet<FlightPlan> plansB = b.getFlightPlans();
-        if (!plansA.isEmpty() && !plansB.isEmpty()) {
-            Instant timeA = plansA.first().getReportFirstSeen().getRecordTime();
-            Instant timeB = plansB.first().getReportFirstSeen().getRecordTime();
-            return timeA.compareTo(timeB);
+    void importDataFile(BufferedReader contentReader) {
+        metrics.begin();
+        DataFile dataFile;
+        try {
+            dataFile = parser.deserialize(metrics.count(contentReader, PipelineMetrics.Stage.DESERIALIZE));
+        } finally {
+            metrics.end(PipelineMetrics.Stage.DESERIALIZE, 1, 0);
         }
 
-        return 0;
+        importNewDataFile(dataFile);
     }
 
-    private void printFlight(Flight flight) {
-        TimeSpan timeSpan = flight.getVisibleTimeSpan();
-        out.println(
-            round(timeSpan.getStart())
-                + "-" + round(timeSpan.getEnd())
-                + " " + flight.getCallsign()
-                + " " + flight.getMember().getVatsimId() //
-        );
-
-        flight.getFlightPlans().forEach(this::printFlightPlan);
-
-        SortedSet<TrackPoint> track = flight.getTrack();
-        if (!track.isEmpty()) {
-            out.println("  track:             time latitude longitude   alt  FL hdg   GS  inHg  hPa xpdr");
-            track.forEach(this::printTrackPoint);
-        }
-
-        Set<Connection> connections = flight.getConnections();
-        if (!connections.isEmpty()) {
-            out.println(
-                "  connections:      logon           first seen            last seen     server   v base real name");
-            for (Connection connection : connections) {
-                out.println(String.format(
-                    "     %20s %20s %20s %10s %3d %4s %s",
-                    round(connection.getLogonTime()),
-                    round(connection.getFirstReport().getRecordTime()),
-                    round(connection.getLastReport().getRecordTime()),
-                    connection.getServerId(), connection.getProtocolVersion(), connection.getHomeBase(),
-                    connection.getRealName() //
-                ) //
-                );
-            }
-        }
+    private void importNewDataFile(DataFile dataFile) {
+        importParsedDataFile(dataFile);
 
-        List<Report> reconstructedReports = flight.getReconstructedReports()
-            .stream()
-            .sorted(this::compareRecordTime)
-            .collect(Collectors.toList());
-        if (!reconstructedReports.isEmpty()) {
-            out.println("  reconstructed reports: (data files held incomplete or broken information)");
-            for (Report reconstructedReport : reconstructedReports) {
-                out.println("     " + round(reconstructedReport.getRecordTime()));
+        if (journalState != null) {
+            try {
+                journalState.record(dataFile);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("failed to store imported data file for import journal", ex);
             }
         }
-
-        out.println();
     }
 
-    private void printTrackPoint(TrackPoint point) {
-        GeoCoordinates coords = point.getGeoCoordinates();
-        double latitude = (coords != null) ? coords.getLatitude() : Double.NaN;
-        double longitude = (coords != null) ? coords.getLongitude() : Double.NaN;
-        int altitudeFeet = (coords != null) ? coords.getAltitudeFeet() : 0;
-        int flightLevel = point.getFlightLevel();
-        if (flightLevel < 0) {
-            flightLevel = 0;
+    private void importParsedDataFile(DataFile dataFile) {
+        metrics.begin();
+        try {
+            if (importFilter != null) {
+                importFilter.apply(dataFile);
+            }
+            if (stringPool != null) {
+                stringPool.apply(dataFile);
+            }
+            graphImport.importDataFile(dataFile);
+            numImportedDataFiles++;
+        } finally {
+            metrics.end(PipelineMetrics.Stage.IMPORT, 1, 0);
         }
-
-        BarometricPressure qnh = point.getQnh();
-        double qnhInHg = (qnh != null) ? qnh.getInchesOfMercury() : Double.NaN;
-        int qnhHpa = (int) Math.round((qnh != null) ? qnh.getHectopascals() : 0);
-
-        out.println(
-            String.format(
-                "     %20s %8.4f %9.4f %5d %03d %03d %4d %5.2f %4d %04d",
-                round(point.getReport().getRecordTime()),
-                latitude, longitude, altitudeFeet, flightLevel,
-                point.getHeading(), point.getGroundSpeed(),
-                qnhInHg, qnhHpa,
-                point.getTransponderCode() //
-            ) //
-        );
-    }
-
-    private void printFlightPlan(FlightPlan flightPlan) {
-        out.println("  #" + flightPlan.getRevision() + " " + round(flightPlan.getReportFirstSeen().getRecordTime()));
-        out.println(
-            "     " + flightPlan.getFlightPlanType()
-                + " " + flightPlan.getDepartureAirportCode()
-                + "-" + flightPlan.getDestinationAirportCode()
-                + "/" + flightPlan.getAlternateAirportCode()
-                + " " + flightPlan.getCommunicationMode()
-                + " " + round(flightPlan.getDepartureTimePlanned())
-                + " " + round(flightPlan.getDepartureTimeActual()) //
-        );
-        out.println(
-            "     alt " + flightPlan.getAltitudeFeet()
-                + ", TAS " + flightPlan.getTrueAirSpeed()
-                + ", enroute " + flightPlan.getEstimatedTimeEnroute()
-                + ", fuel " + flightPlan.getEstimatedTimeFuel() //
-        );
-        out.println(
-            "     " + flightPlan.getAircraftType()
-                + " " + flightPlan.getSimpleEquipmentSpecification()
-                + " " + flightPlan.getWakeTurbulenceCategory() //
-        );
-        out.println("     " + flightPlan.getRoute());
-        out.println("     " + flightPlan.getRemarks());
-    }
-
-    private <T> int compareRecordTime(T a, T b, Function<T, Report> getterMethod) {
-        return compareRecordTime(getterMethod.apply(a), getterMethod.apply(b));
-    }
-
-    private int compareRecordTime(Report a, Report b) {
-        return a.getRecordTime().compareTo(b.getRecordTime());
-    }
-
-    private void printFacilities(Member member) {
-        member.getFacilities()
-            .stream()
-            .sorted((a, b) -> compareRecordTime(a, b, x -> x.getConnection().getFirstReport()))
-            .forEachOrdered(this::printFacility);
-    }
-
-    private void printFacility(Facility x) {
-        Connection conn = x.getConnection();
-        out.println(
-            round(conn.getLogonTime())
-                + "/" + round(conn.getFirstReport().getRecordTime())
-                + " - " + round(conn.getLastReport().getRecordTime())
-                + " " + x.getName()
-                + " " + x.getFrequencyKilohertz()
-                + " " + x.getType()
-                + " " + conn.getRealName() //
-        );
-
-        x.getMessages()
-            .stream()
-            .sorted((a, b) -> a.getReportFirstSeen().getRecordTime().compareTo(b.getReportFirstSeen().getRecordTime()))
-            .forEachOrdered(
-                msg -> out.println(
-                    "    " + round(msg.getReportFirstSeen().getRecordTime()) + " "
-                        + msg.getMessage().replace("\n", " | ") //
-                ) //
-            );
     }
 
-    private Instant round(Instant original) {
-        if (original == null) {
-            return null;
-        }
-
-        if (isRoundingDisabled || (original.getNano() == 0)) {
-            return original;
+    private void printMember(Member member) {
+        metrics.begin();
+        try {
+            printer.print(member, deltaSince);
+        } finally {
+            metrics.end(PipelineMetrics.Stage.OUTPUT, 1, 0);
         }
-
-        Instant truncated = original.truncatedTo(ChronoUnit.SECONDS);
-        Instant rounded = (original.getNano() >= 500_000_000) ? truncated.plusSeconds(1) : truncated;
-
-        return rounded;
     }
 
 }
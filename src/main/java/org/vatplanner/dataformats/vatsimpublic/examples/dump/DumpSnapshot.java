@@ -0,0 +1,224 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of rendered member dumps, indexed by VATSIM ID.
+ * <p>
+ * Layout: header (magic, version, flags), rendered member blocks, index of
+ * (VATSIM ID, offset, length) sorted by ID, footer (index offset, magic).
+ * Readers memory-map the index and look up members by binary search. Members
+ * are read into a reused buffer instead, as mapping each of them separately
+ * would create millions of mappings which are only released by garbage
+ * collection.
+ * </p>
+ * <p>
+ * Buffers are repositioned through {@link Buffer} to remain compatible with
+ * Java 8 runtimes when compiled on later JDKs.
+ * </p>
+ */
+class DumpSnapshot implements Closeable {
+
+    private static final int MAGIC = 0x56504453; // "VPDS"
+    private static final int VERSION = 1;
+
+    private static final int FLAG_ROUNDING_DISABLED = 1;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int FOOTER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final int flags;
+    private final int numMembers;
+    private final MappedByteBuffer index;
+    private ByteBuffer memberBuffer = ByteBuffer.allocate(64 * 1024);
+
+    static class Writer implements Closeable {
+        private final DataOutputStream dos;
+        private long position;
+
+        private int numMembers = 0;
+        private int lastVatsimId = Integer.MIN_VALUE;
+        private boolean isFinished = false;
+        private ByteBuffer indexBuffer = ByteBuffer.allocate(1024 * INDEX_ENTRY_SIZE);
+
+        Writer(File file, boolean isRoundingDisabled) throws IOException {
+            dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024));
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeInt(isRoundingDisabled ? FLAG_ROUNDING_DISABLED : 0);
+            position = HEADER_SIZE;
+        }
+
+        void add(int vatsimId, byte[] renderedMember) throws IOException {
+            if (isFinished) {
+                throw new IllegalStateException("snapshot has already been finished");
+            }
+            if (vatsimId <= lastVatsimId) {
+                throw new IllegalArgumentException(
+                    "members must be added in ascending order of VATSIM ID: " + vatsimId + " after " + lastVatsimId //
+                );
+            }
+            lastVatsimId = vatsimId;
+
+            if (!indexBuffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(indexBuffer.capacity() * 2);
+                ((Buffer) indexBuffer).flip();
+                grown.put(indexBuffer);
+                indexBuffer = grown;
+            }
+            indexBuffer.putInt(vatsimId);
+            indexBuffer.putLong(position);
+            indexBuffer.putInt(renderedMember.length);
+            numMembers++;
+
+            dos.write(renderedMember);
+            position += renderedMember.length;
+        }
+
+        /**
+         * Completes the snapshot by writing index and footer. Snapshots which have
+         * not been finished are incomplete and cannot be opened.
+         *
+         * @throws IOException if writing fails
+         */
+        void finish() throws IOException {
+            if (isFinished) {
+                throw new IllegalStateException("snapshot has already been finished");
+            }
+            isFinished = true;
+
+            long indexOffset = position;
+            dos.writeInt(numMembers);
+            dos.write(indexBuffer.array(), 0, indexBuffer.position());
+            dos.writeLong(indexOffset);
+            dos.writeInt(MAGIC);
+            dos.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            dos.close();
+        }
+    }
+
+    DumpSnapshot(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        ByteBuffer header = read(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException(file + " is not a dump snapshot");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported snapshot version " + version);
+        }
+        flags = header.getInt();
+
+        long size = channel.size();
+        if (size < HEADER_SIZE + 4 + FOOTER_SIZE) {
+            throw new IOException(file + " is truncated");
+        }
+
+        ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+        long indexOffset = footer.getLong();
+        if ((footer.getInt() != MAGIC) || (indexOffset < HEADER_SIZE) || (indexOffset > size - FOOTER_SIZE - 4)) {
+            throw new IOException(file + " is truncated");
+        }
+
+        numMembers = read(indexOffset, 4).getInt();
+        if ((numMembers < 0) || (indexOffset + 4 + (long) numMembers * INDEX_ENTRY_SIZE != size - FOOTER_SIZE)) {
+            throw new IOException(file + " has an inconsistent index");
+        }
+        index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset + 4, (long) numMembers * INDEX_ENTRY_SIZE);
+    }
+
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("unexpected end of snapshot file");
+            }
+        }
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    boolean isRoundingDisabled() {
+        return (flags & FLAG_ROUNDING_DISABLED) != 0;
+    }
+
+    int getNumberOfMembers() {
+        return numMembers;
+    }
+
+    int getVatsimId(int indexPosition) {
+        return index.getInt(indexPosition * INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Looks up a member by VATSIM ID.
+     *
+     * @param vatsimId VATSIM ID of member
+     * @return rendered member, only valid until the next member is read; null if
+     *         not found
+     */
+    ByteBuffer getMember(int vatsimId) throws IOException {
+        int low = 0;
+        int high = numMembers - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = getVatsimId(middle);
+            if (middleId < vatsimId) {
+                low = middle + 1;
+            } else if (middleId > vatsimId) {
+                high = middle - 1;
+            } else {
+                return getMemberAt(middle);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the member at given position of the index.
+     *
+     * @param indexPosition position in index
+     * @return rendered member, only valid until the next member is read
+     */
+    ByteBuffer getMemberAt(int indexPosition) throws IOException {
+        int entryOffset = indexPosition * INDEX_ENTRY_SIZE;
+        long offset = index.getLong(entryOffset + 4);
+        int length = index.getInt(entryOffset + 12);
+
+        if (memberBuffer.capacity() < length) {
+            memberBuffer = ByteBuffer.allocate(length);
+        }
+        ((Buffer) memberBuffer).clear();
+        ((Buffer) memberBuffer).limit(length);
+        while (memberBuffer.hasRemaining()) {
+            if (channel.read(memberBuffer, offset + memberBuffer.position()) < 0) {
+                throw new IOException("unexpected end of snapshot file");
+            }
+        }
+        ((Buffer) memberBuffer).flip();
+        return memberBuffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
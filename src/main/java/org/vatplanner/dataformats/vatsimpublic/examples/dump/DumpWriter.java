@@ -0,0 +1,402 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Buffered text output formatting numbers and timestamps without allocating
+ * intermediate strings.
+ * <p>
+ * Output is identical to what would be written through a {@link java.io.PrintStream}
+ * using the same charset by formatting with {@link String#format(String, Object...)}
+ * in the default locale and by {@link Instant#toString()}. Rare cases which
+ * cannot be reproduced directly (unsupported locales, values close to a
+ * rounding tie) fall back to those methods.
+ * </p>
+ */
+class DumpWriter implements Flushable, Closeable {
+
+    private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+    private static final int BYTE_BUFFER_SIZE = 256 * 1024;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final long[] POWERS_OF_TEN = new long[] { 1, 10, 100, 1000, 10000, 100000, 1000000 };
+
+    // doubles are only formatted directly if the scaled value can be rounded
+    // reliably without knowing its shortest decimal representation
+    private static final double MAX_SCALED_DOUBLE = 1e9;
+    private static final double ROUNDING_TIE_TOLERANCE = 1e-6;
+
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final long DAYS_0000_TO_1970 = 719528;
+    private static final long MIN_DIRECT_EPOCH_SECOND = -62167219200L; // 0000-01-01T00:00:00Z
+    private static final long MAX_DIRECT_EPOCH_SECOND = 253402300799L; // 9999-12-31T23:59:59Z
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+
+    private final char[] chars = new char[CHAR_BUFFER_SIZE];
+    private final CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+    private int length = 0;
+
+    private final char[] digits = new char[24];
+
+    private final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    private final boolean isLocaleSupported;
+    private final char decimalSeparator;
+
+    DumpWriter(WritableByteChannel channel, Charset charset) {
+        this.channel = channel;
+
+        // same replacement behaviour as PrintStream
+        encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        isLocaleSupported = (symbols.getZeroDigit() == '0');
+        decimalSeparator = symbols.getDecimalSeparator();
+    }
+
+    DumpWriter append(char ch) {
+        if (length == chars.length) {
+            drainChars();
+        }
+        chars[length++] = ch;
+        return this;
+    }
+
+    DumpWriter append(String s) {
+        if (s == null) {
+            s = "null";
+        }
+
+        int offset = 0;
+        int remaining = s.length();
+        while (remaining > 0) {
+            if (length == chars.length) {
+                drainChars();
+            }
+
+            int copied = Math.min(remaining, chars.length - length);
+            s.getChars(offset, offset + copied, chars, length);
+            length += copied;
+            offset += copied;
+            remaining -= copied;
+        }
+
+        return this;
+    }
+
+    DumpWriter append(Object o) {
+        return append(String.valueOf(o));
+    }
+
+    DumpWriter append(int value) {
+        int numDigits = formatDigits(value);
+        if (value < 0) {
+            append('-');
+        }
+        return appendDigits(numDigits);
+    }
+
+    // same as String.valueOf(s).replace(target, replacement)
+    DumpWriter appendReplacing(String s, char target, String replacement) {
+        if (s == null) {
+            return append("null");
+        }
+
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == target) {
+                append(replacement);
+            } else {
+                append(ch);
+            }
+        }
+
+        return this;
+    }
+
+    // same as %<width>s
+    DumpWriter appendPadded(String s, int width) {
+        if (s == null) {
+            s = "null";
+        }
+        appendSpaces(width - s.length());
+        return append(s);
+    }
+
+    // same as %<width>d or %0<width>d
+    DumpWriter appendPadded(int value, int width, boolean isZeroPadded) {
+        if (!isLocaleSupported) {
+            return append(String.format(locale, "%" + (isZeroPadded ? "0" : "") + width + "d", value));
+        }
+
+        int numDigits = formatDigits(value);
+        int totalLength = numDigits + ((value < 0) ? 1 : 0);
+
+        if (isZeroPadded) {
+            if (value < 0) {
+                append('-');
+            }
+            appendRepeated('0', width - totalLength);
+        } else {
+            appendSpaces(width - totalLength);
+            if (value < 0) {
+                append('-');
+            }
+        }
+
+        return appendDigits(numDigits);
+    }
+
+    // same as %<width>.<precision>f
+    DumpWriter appendFixed(double value, int width, int precision) {
+        if (Double.isNaN(value)) {
+            return appendPadded("NaN", width);
+        }
+
+        if (!isLocaleSupported || (precision <= 0) || (precision >= POWERS_OF_TEN.length)) {
+            return append(String.format(locale, "%" + width + "." + precision + "f", value));
+        }
+
+        boolean isNegative = (value < 0.0) || (Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(-0.0));
+        double scaled = Math.abs(value) * POWERS_OF_TEN[precision];
+        double fraction = scaled - Math.floor(scaled);
+        boolean isDirectlyFormattable = (scaled < MAX_SCALED_DOUBLE)
+            && (Math.abs(fraction - 0.5) > ROUNDING_TIE_TOLERANCE);
+        if (!isDirectlyFormattable) {
+            return append(String.format(locale, "%" + width + "." + precision + "f", value));
+        }
+
+        long rounded = (long) scaled + ((fraction > 0.5) ? 1 : 0);
+        long integerPart = rounded / POWERS_OF_TEN[precision];
+        long fractionPart = rounded % POWERS_OF_TEN[precision];
+
+        int numDigits = formatDigits(integerPart);
+        int totalLength = (isNegative ? 1 : 0) + numDigits + 1 + precision;
+        appendSpaces(width - totalLength);
+        if (isNegative) {
+            append('-');
+        }
+        appendDigits(numDigits);
+        append(decimalSeparator);
+        appendDigits(formatDigits(fractionPart, precision));
+
+        return this;
+    }
+
+    // same as String.valueOf(instant), optionally rounded to full seconds
+    DumpWriter append(Instant instant, boolean isRounded) {
+        if (instant == null) {
+            return append("null");
+        }
+
+        long epochSecond = instant.getEpochSecond();
+        int nanos = instant.getNano();
+        if (isRounded && (nanos != 0)) {
+            if (nanos >= 500_000_000) {
+                epochSecond++;
+            }
+            nanos = 0;
+        }
+
+        if ((epochSecond < MIN_DIRECT_EPOCH_SECOND) || (epochSecond > MAX_DIRECT_EPOCH_SECOND)) {
+            return append(Instant.ofEpochSecond(epochSecond, nanos).toString());
+        }
+
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        appendDate(epochDay);
+        append('T');
+        appendTwoDigits(secondOfDay / 3600);
+        append(':');
+        appendTwoDigits((secondOfDay / 60) % 60);
+        append(':');
+        appendTwoDigits(secondOfDay % 60);
+
+        if (nanos > 0) {
+            append('.');
+            if (nanos % 1_000_000 == 0) {
+                appendDigits(formatDigits(nanos / 1_000_000, 3));
+            } else if (nanos % 1000 == 0) {
+                appendDigits(formatDigits(nanos / 1000, 6));
+            } else {
+                appendDigits(formatDigits(nanos, 9));
+            }
+        }
+
+        return append('Z');
+    }
+
+    // same as %<width>s applied to String.valueOf(instant), optionally rounded
+    DumpWriter appendPadded(Instant instant, boolean isRounded, int width) {
+        if (instant == null) {
+            return appendPadded((String) null, width);
+        }
+
+        // ISO instants are at least 20 characters long, so only wider columns
+        // require padding
+        if (width > 20) {
+            Instant rounded = (isRounded && (instant.getNano() != 0))
+                ? Instant.ofEpochSecond(instant.getEpochSecond() + ((instant.getNano() >= 500_000_000) ? 1 : 0))
+                : instant;
+            return appendPadded(rounded.toString(), width);
+        }
+
+        return append(instant, isRounded);
+    }
+
+    DumpWriter newLine() {
+        return append(LINE_SEPARATOR);
+    }
+
+    // writes already encoded bytes, bypassing the character buffer
+    void write(ByteBuffer encoded) {
+        drainChars();
+        flushBytes();
+        try {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void flush() {
+        drainChars();
+        flushBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        drainChars();
+
+        // replaces an incomplete surrogate pair left at the end
+        rewindChars();
+        encoder.encode(charBuffer, bytes, true);
+        encoder.flush(bytes);
+        length = 0;
+
+        flushBytes();
+        channel.close();
+    }
+
+    private void appendDate(long epochDay) {
+        // civil date from days, see Howard Hinnant's date algorithms
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+        long era = Math.floorDiv(zeroDay, 146097L);
+        long dayOfEra = zeroDay - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) ((shiftedMonth < 10) ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+
+        appendDigits(formatDigits(year, 4));
+        append('-');
+        appendTwoDigits(month);
+        append('-');
+        appendTwoDigits(day);
+    }
+
+    private void appendTwoDigits(int value) {
+        append((char) ('0' + value / 10));
+        append((char) ('0' + value % 10));
+    }
+
+    private void appendSpaces(int count) {
+        appendRepeated(' ', count);
+    }
+
+    private void appendRepeated(char ch, int count) {
+        for (int i = 0; i < count; i++) {
+            append(ch);
+        }
+    }
+
+    // formats the magnitude of value right-aligned into digits and returns the
+    // number of digits
+    private int formatDigits(long value) {
+        return formatDigits(value, 1);
+    }
+
+    private int formatDigits(long value, int minDigits) {
+        int position = digits.length;
+        do {
+            long quotient = value / 10;
+            digits[--position] = (char) ('0' + Math.abs(value - quotient * 10));
+            value = quotient;
+        } while (value != 0);
+
+        while (digits.length - position < minDigits) {
+            digits[--position] = '0';
+        }
+
+        return digits.length - position;
+    }
+
+    private DumpWriter appendDigits(int numDigits) {
+        for (int i = digits.length - numDigits; i < digits.length; i++) {
+            append(digits[i]);
+        }
+        return this;
+    }
+
+    private void drainChars() {
+        rewindChars();
+
+        while (true) {
+            CoderResult result = encoder.encode(charBuffer, bytes, false);
+            if (result.isOverflow()) {
+                flushBytes();
+            } else {
+                break;
+            }
+        }
+
+        // keep incomplete surrogate pairs for next call
+        int remaining = charBuffer.remaining();
+        System.arraycopy(chars, charBuffer.position(), chars, 0, remaining);
+        length = remaining;
+    }
+
+    // Buffer methods are called on Buffer to remain compatible with Java 8
+    // runtimes when compiled on later JDKs (covariant overrides since Java 9)
+    private void rewindChars() {
+        ((Buffer) charBuffer).limit(length);
+        ((Buffer) charBuffer).position(0);
+    }
+
+    private void flushBytes() {
+        ((Buffer) bytes).flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            ((Buffer) bytes).clear();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileFormat;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFileParserFactory;
+import org.vatplanner.dataformats.vatsimpublic.parser.Parser;
+
+/**
+ * Parses each data file with the parser matching its format, so histories
+ * spanning multiple formats can be imported at once. JSON data files start
+ * with an object while legacy data files are plain text.
+ * <p>
+ * Parsers for all formats are created once per instance. Instances are not
+ * thread-safe as the underlying parsers are not documented to be; parsing on
+ * multiple threads requires one instance per thread.
+ * </p>
+ */
+class FormatDetectingParser implements Parser<DataFile> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FormatDetectingParser.class);
+
+    // maximum leading whitespace and byte order marks to skip
+    private static final int MAX_DETECTION_LENGTH = 1024;
+
+    // data files are decoded as ISO-8859-1, so UTF-8 byte order marks show up as
+    // three characters instead of one
+    private static final String BYTE_ORDER_MARKS = "\uFEFF\u00EF\u00BB\u00BF";
+
+    // shared by all instances to only log actual changes of formats
+    private static final AtomicReference<DataFileFormat> LAST_FORMAT = new AtomicReference<>();
+
+    private final Map<DataFileFormat, Parser<DataFile>> parsers = new EnumMap<>(DataFileFormat.class);
+
+    FormatDetectingParser(DataFileParserFactory factory) {
+        for (DataFileFormat format : new DataFileFormat[] { DataFileFormat.LEGACY, DataFileFormat.JSON3 }) {
+            parsers.put(format, factory.createDataFileParser(format));
+        }
+    }
+
+    @Override
+    public DataFile deserialize(Reader reader) {
+        BufferedReader br = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+
+        DataFileFormat format;
+        try {
+            format = detect(br);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to detect data file format", ex);
+        }
+
+        DataFileFormat previousFormat = LAST_FORMAT.getAndSet(format);
+        if (format != previousFormat) {
+            LOGGER.info("Detected data file format {}", format);
+        }
+
+        return parsers.get(format).deserialize(br);
+    }
+
+    static DataFileFormat detect(BufferedReader br) throws IOException {
+        br.mark(MAX_DETECTION_LENGTH);
+        try {
+            for (int i = 0; i < MAX_DETECTION_LENGTH; i++) {
+                int ch = br.read();
+                if (ch < 0) {
+                    break;
+                } else if ((BYTE_ORDER_MARKS.indexOf(ch) >= 0) || Character.isWhitespace(ch)) {
+                    continue;
+                }
+
+                return (ch == '{') ? DataFileFormat.JSON3 : DataFileFormat.LEGACY;
+            }
+        } finally {
+            br.reset();
+        }
+
+        return DataFileFormat.LEGACY;
+    }
+}
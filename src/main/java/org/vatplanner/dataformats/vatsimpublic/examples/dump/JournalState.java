@@ -0,0 +1,168 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.ImportJournal;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+
+/**
+ * Keeps all data files imported by runs using an import journal, so following
+ * runs can restore the previously imported graph before importing new files.
+ * <p>
+ * Data files are stored as preparsed data files in segments next to the
+ * journal ({@code <journal>.<n>.vppd.gz}), one segment per committed import.
+ * Segments are written to a pending file first and only become visible on
+ * {@link #commit(List)}. The journal lines listing the imported files are
+ * stored next to the segment ({@code <journal>.<n>.lines}) before it becomes
+ * visible and are removed by {@link #confirm()} once the journal itself has
+ * been written. If a run ends in between, {@link #recover()} completes the
+ * journal, so data restored from a segment is never imported a second time.
+ * </p>
+ */
+class JournalState {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalState.class);
+
+    private static final String SEGMENT_SUFFIX = ".vppd.gz";
+    private static final String LINES_SUFFIX = ".lines";
+    private static final String PENDING_INFIX = ".pending";
+
+    private final File journalFile;
+    private final File directory;
+    private final String baseName;
+    private final Pattern segmentPattern;
+    private final Pattern linesPattern;
+
+    private int nextSegment = 0;
+    private File pendingFile;
+    private PreparsedDataFiles.Writer pendingWriter;
+    private File unconfirmedLinesFile;
+
+    JournalState(File journalFile) {
+        this.journalFile = journalFile.getAbsoluteFile();
+        this.directory = this.journalFile.getParentFile();
+        this.baseName = this.journalFile.getName();
+        this.segmentPattern = Pattern.compile(Pattern.quote(baseName + ".") + "(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+        this.linesPattern = Pattern.compile(Pattern.quote(baseName + ".") + "(\\d+)" + Pattern.quote(LINES_SUFFIX));
+    }
+
+    /**
+     * Completes journal updates interrupted by a previous run. Journal lines of
+     * committed segments are appended to the journal, lines of segments which
+     * never became visible are discarded. Must be called before the journal is
+     * read.
+     *
+     * @throws IOException if the journal cannot be completed
+     */
+    void recover() throws IOException {
+        for (File linesFile : list(linesPattern).values()) {
+            File segmentFile = new File(
+                directory,
+                linesFile.getName().substring(0, linesFile.getName().length() - LINES_SUFFIX.length()) + SEGMENT_SUFFIX //
+            );
+
+            if (segmentFile.exists()) {
+                List<String> lines = Files.readAllLines(linesFile.toPath(), StandardCharsets.UTF_8);
+                ImportJournal.append(journalFile, lines);
+                LOGGER.warn("Previous run ended before updating the journal, recovered {} lines for {}", lines.size(), segmentFile);
+            } else {
+                LOGGER.warn("Discarding journal lines of incomplete segment {}", linesFile);
+            }
+
+            Files.delete(linesFile.toPath());
+        }
+    }
+
+    /**
+     * Lists all committed segments in the order they have been written.
+     *
+     * @return segment files to be imported in order
+     */
+    List<File> getSegments() {
+        TreeMap<Integer, File> segments = list(segmentPattern);
+        nextSegment = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        return new ArrayList<>(segments.values());
+    }
+
+    private TreeMap<Integer, File> list(Pattern pattern) {
+        TreeMap<Integer, File> files = new TreeMap<>();
+
+        File[] candidates = directory.listFiles();
+        if (candidates != null) {
+            for (File file : candidates) {
+                Matcher matcher = pattern.matcher(file.getName());
+                if (matcher.matches()) {
+                    files.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Stores the given data file to the pending segment.
+     *
+     * @param dataFile data file which has been imported
+     * @throws IOException if writing fails
+     */
+    void record(DataFile dataFile) throws IOException {
+        if (pendingWriter == null) {
+            pendingFile = new File(directory, baseName + PENDING_INFIX + SEGMENT_SUFFIX);
+            pendingWriter = PreparsedDataFiles.create(pendingFile);
+        }
+        pendingWriter.write(dataFile);
+    }
+
+    /**
+     * Completes the pending segment, if any data files have been recorded,
+     * together with the journal lines listing them. The journal must be written
+     * afterwards, followed by {@link #confirm()}.
+     *
+     * @param journalLines journal lines to be committed next
+     * @throws IOException if the segment cannot be completed
+     */
+    void commit(List<String> journalLines) throws IOException {
+        if (pendingWriter == null) {
+            return;
+        }
+
+        int numDataFiles = pendingWriter.getNumDataFiles();
+        pendingWriter.close();
+        pendingWriter = null;
+
+        File linesFile = new File(directory, baseName + "." + nextSegment + LINES_SUFFIX);
+        Files.write(linesFile.toPath(), journalLines, StandardCharsets.UTF_8);
+        unconfirmedLinesFile = linesFile;
+
+        File segmentFile = new File(directory, baseName + "." + nextSegment + SEGMENT_SUFFIX);
+        Files.move(pendingFile.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        nextSegment++;
+
+        LOGGER.info("Stored {} imported data files to {}", numDataFiles, segmentFile);
+    }
+
+    /**
+     * Confirms that the journal lines of the last committed segment have been
+     * written to the journal.
+     *
+     * @throws IOException if the journal lines cannot be removed
+     */
+    void confirm() throws IOException {
+        if (unconfirmedLinesFile != null) {
+            Files.delete(unconfirmedLinesFile.toPath());
+            unconfirmedLinesFile = null;
+        }
+    }
+}
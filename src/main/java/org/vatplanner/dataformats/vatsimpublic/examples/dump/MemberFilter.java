@@ -0,0 +1,117 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import org.vatplanner.dataformats.vatsimpublic.parser.Client;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+
+/**
+ * Restricts imports to a subset of members by removing clients of all other
+ * members from parsed data files before they are handed to the graph import.
+ */
+class MemberFilter {
+
+    private final IntPredicate predicate;
+    private final String description;
+
+    private MemberFilter(IntPredicate predicate, String description) {
+        this.predicate = predicate;
+        this.description = description;
+    }
+
+    /**
+     * Accepts all members whose VATSIM ID hashes to the given shard.
+     *
+     * @param spec shard index and number of shards as <code>INDEX/COUNT</code>,
+     *        index starting at 0
+     * @return filter for given shard
+     */
+    static MemberFilter forShard(String spec) {
+        String[] parts = spec.split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("shard must be specified as INDEX/COUNT: " + spec);
+        }
+
+        int index = Integer.parseInt(parts[0].trim());
+        int count = Integer.parseInt(parts[1].trim());
+        if ((count < 1) || (index < 0) || (index >= count)) {
+            throw new IllegalArgumentException("shard index must be between 0 and " + (count - 1) + ": " + spec);
+        }
+
+        return new MemberFilter(vatsimId -> getShard(vatsimId, count) == index, "shard " + index + "/" + count);
+    }
+
+    /**
+     * Accepts all members whose VATSIM ID is within given range.
+     *
+     * @param spec inclusive range as <code>FROM-TO</code>
+     * @return filter for given range
+     */
+    static MemberFilter forRange(String spec) {
+        String[] parts = spec.split("-");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("range must be specified as FROM-TO: " + spec);
+        }
+
+        int from = Integer.parseInt(parts[0].trim());
+        int to = Integer.parseInt(parts[1].trim());
+        if (from > to) {
+            throw new IllegalArgumentException("range must not end before it starts: " + spec);
+        }
+
+        return new MemberFilter(vatsimId -> (vatsimId >= from) && (vatsimId <= to), "range " + from + "-" + to);
+    }
+
+    /**
+     * Accepts only given members.
+     *
+     * @param vatsimIds VATSIM IDs of members to accept
+     * @return filter for given members
+     */
+    static MemberFilter forMembers(Set<Integer> vatsimIds) {
+        Set<Integer> copy = new HashSet<>(vatsimIds);
+        return new MemberFilter(copy::contains, "members " + new TreeSet<>(copy));
+    }
+
+    static int getShard(int vatsimId, int numShards) {
+        // spread consecutive IDs
+        int hash = vatsimId * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, numShards);
+    }
+
+    MemberFilter and(MemberFilter other) {
+        if (other == null) {
+            return this;
+        }
+
+        return new MemberFilter(predicate.and(other.predicate), description + " and " + other.description);
+    }
+
+    boolean accepts(int vatsimId) {
+        return predicate.test(vatsimId);
+    }
+
+    void apply(DataFile dataFile) {
+        Collection<Client> clients = dataFile.getClients();
+        if (clients == null) {
+            return;
+        }
+
+        dataFile.setClients(
+            clients.stream()
+                .filter(client -> accepts(client.getVatsimID()))
+                .collect(Collectors.toList()) //
+        );
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
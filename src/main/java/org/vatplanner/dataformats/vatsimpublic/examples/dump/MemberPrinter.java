@@ -0,0 +1,295 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.vatplanner.dataformats.vatsimpublic.entities.TimeSpan;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.BarometricPressure;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Connection;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Facility;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Flight;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.FlightPlan;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.GeoCoordinates;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Member;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Report;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.TrackPoint;
+
+/**
+ * Prints all information about a {@link Member} to a {@link DumpWriter}.
+ * Instances are not thread-safe; use one printer per output.
+ */
+class MemberPrinter {
+
+    private final DumpWriter out;
+    private final boolean isRoundingDisabled;
+
+    MemberPrinter(DumpWriter out, boolean isRoundingDisabled) {
+        this.out = out;
+        this.isRoundingDisabled = isRoundingDisabled;
+    }
+
+    void print(Member member) {
+        print(member, null);
+    }
+
+    /**
+     * Prints only information which has been added or changed after the given
+     * time. Facilities and flights are printed with all still relevant header
+     * information; members without any changes are omitted completely.
+     *
+     * @param member member to print
+     * @param since only information recorded after this time is printed; null
+     *        to print everything
+     */
+    void print(Member member, Instant since) {
+        List<Facility> facilities = member.getFacilities()
+            .stream()
+            .filter(facility -> isChanged(facility, since))
+            .sorted((a, b) -> compareRecordTime(a, b, x -> x.getConnection().getFirstReport()))
+            .collect(Collectors.toList());
+
+        List<Flight> flights = member.getFlights()
+            .stream()
+            .filter(flight -> isChanged(flight, since))
+            .sorted(MemberPrinter::compareFlights)
+            .collect(Collectors.toList());
+
+        if ((since != null) && facilities.isEmpty() && flights.isEmpty()) {
+            return;
+        }
+
+        out.append("\n\n----- Member: ").append(member.getVatsimId()).newLine();
+        out.append("Facilities:").newLine();
+        facilities.forEach(facility -> printFacility(facility, since));
+
+        out.append("\nFlights:").newLine();
+        flights.forEach(flight -> printFlight(flight, since));
+    }
+
+    private static boolean isAfter(Report report, Instant since) {
+        return (since == null) || report.getRecordTime().isAfter(since);
+    }
+
+    private static boolean isChanged(Facility facility, Instant since) {
+        return isAfter(facility.getConnection().getLastReport(), since)
+            || facility.getMessages().stream().anyMatch(msg -> isAfter(msg.getReportFirstSeen(), since));
+    }
+
+    private static boolean isChanged(Flight flight, Instant since) {
+        return (since == null)
+            || flight.getTrack().stream().anyMatch(point -> isAfter(point.getReport(), since))
+            || flight.getFlightPlans().stream().anyMatch(plan -> isAfter(plan.getReportFirstSeen(), since))
+            || flight.getConnections().stream().anyMatch(connection -> isAfter(connection.getLastReport(), since))
+            || flight.getReconstructedReports().stream().anyMatch(report -> isAfter(report, since));
+    }
+
+    /**
+     * Determines the latest record time of any information printed for the given
+     * member, to be used as start of following deltas.
+     *
+     * @param member member to check
+     * @return latest record time; null if member holds no information
+     */
+    static Instant getLatestRecordTime(Member member) {
+        Stream<Report> facilityReports = member.getFacilities()
+            .stream()
+            .flatMap(facility -> Stream.concat(
+                Stream.of(facility.getConnection().getLastReport()),
+                facility.getMessages().stream().map(msg -> msg.getReportFirstSeen()) //
+            ));
+
+        Stream<Report> flightReports = member.getFlights()
+            .stream()
+            .flatMap(flight -> Stream.of(
+                flight.getTrack().stream().map(TrackPoint::getReport),
+                flight.getFlightPlans().stream().map(FlightPlan::getReportFirstSeen),
+                flight.getConnections().stream().map(Connection::getLastReport),
+                flight.getReconstructedReports().stream() //
+            ).flatMap(Function.identity()));
+
+        return Stream.concat(facilityReports, flightReports)
+            .filter(Objects::nonNull)
+            .map(Report::getRecordTime)
+            .max(Comparator.naturalOrder())
+            .orElse(null);
+    }
+
+    static int compareFlights(Flight a, Flight b) {
+        // earliest time first
+        int byEarliestVisibleTime = a.getEarliestVisibleTime().compareTo(b.getEarliestVisibleTime());
+        if (byEarliestVisibleTime != 0) {
+            return byEarliestVisibleTime;
+        }
+
+        // refilings result in same earlierst time for both flights
+        // try to fall back to track point time
+        SortedSet<TrackPoint> trackA = a.getTrack();
+        SortedSet<TrackPoint> trackB = b.getTrack();
+        if (!trackA.isEmpty() && !trackB.isEmpty()) {
+            Instant timeA = trackA.first().getReport().getRecordTime();
+            Instant timeB = trackB.first().getReport().getRecordTime();
+            return timeA.compareTo(timeB);
+        }
+
+        // try to fall back to flight plan time
+        SortedSet<FlightPlan> plansA = a.getFlightPlans();
+        SortedSet<FlightPlan> plansB = b.getFlightPlans();
+        if (!plansA.isEmpty() && !plansB.isEmpty()) {
+            Instant timeA = plansA.first().getReportFirstSeen().getRecordTime();
+            Instant timeB = plansB.first().getReportFirstSeen().getRecordTime();
+            return timeA.compareTo(timeB);
+        }
+
+        return 0;
+    }
+
+    private void printFlight(Flight flight, Instant since) {
+        TimeSpan timeSpan = flight.getVisibleTimeSpan();
+        out.append(timeSpan.getStart(), isRounded())
+            .append('-').append(timeSpan.getEnd(), isRounded())
+            .append(' ').append(flight.getCallsign())
+            .append(' ').append(flight.getMember().getVatsimId())
+            .newLine();
+
+        flight.getFlightPlans()
+            .stream()
+            .filter(plan -> isAfter(plan.getReportFirstSeen(), since))
+            .forEachOrdered(this::printFlightPlan);
+
+        List<TrackPoint> track = flight.getTrack()
+            .stream()
+            .filter(point -> isAfter(point.getReport(), since))
+            .collect(Collectors.toList());
+        if (!track.isEmpty()) {
+            out.append("  track:             time latitude longitude   alt  FL hdg   GS  inHg  hPa xpdr").newLine();
+            track.forEach(this::printTrackPoint);
+        }
+
+        List<Connection> connections = flight.getConnections()
+            .stream()
+            .filter(connection -> isAfter(connection.getLastReport(), since))
+            .collect(Collectors.toList());
+        if (!connections.isEmpty()) {
+            out.append(
+                "  connections:      logon           first seen            last seen     server   v base real name" //
+            ).newLine();
+            for (Connection connection : connections) {
+                out.append("     ").appendPadded(connection.getLogonTime(), isRounded(), 20)
+                    .append(' ').appendPadded(connection.getFirstReport().getRecordTime(), isRounded(), 20)
+                    .append(' ').appendPadded(connection.getLastReport().getRecordTime(), isRounded(), 20)
+                    .append(' ').appendPadded(connection.getServerId(), 10)
+                    .append(' ').appendPadded(connection.getProtocolVersion(), 3, false)
+                    .append(' ').appendPadded(connection.getHomeBase(), 4)
+                    .append(' ').append(connection.getRealName())
+                    .newLine();
+            }
+        }
+
+        List<Report> reconstructedReports = flight.getReconstructedReports()
+            .stream()
+            .filter(report -> isAfter(report, since))
+            .sorted(this::compareRecordTime)
+            .collect(Collectors.toList());
+        if (!reconstructedReports.isEmpty()) {
+            out.append("  reconstructed reports: (data files held incomplete or broken information)").newLine();
+            for (Report reconstructedReport : reconstructedReports) {
+                out.append("     ").append(reconstructedReport.getRecordTime(), isRounded()).newLine();
+            }
+        }
+
+        out.newLine();
+    }
+
+    private void printTrackPoint(TrackPoint point) {
+        GeoCoordinates coords = point.getGeoCoordinates();
+        double latitude = (coords != null) ? coords.getLatitude() : Double.NaN;
+        double longitude = (coords != null) ? coords.getLongitude() : Double.NaN;
+        int altitudeFeet = (coords != null) ? coords.getAltitudeFeet() : 0;
+        int flightLevel = point.getFlightLevel();
+        if (flightLevel < 0) {
+            flightLevel = 0;
+        }
+
+        BarometricPressure qnh = point.getQnh();
+        double qnhInHg = (qnh != null) ? qnh.getInchesOfMercury() : Double.NaN;
+        int qnhHpa = (int) Math.round((qnh != null) ? qnh.getHectopascals() : 0);
+
+        out.append("     ").appendPadded(point.getReport().getRecordTime(), isRounded(), 20)
+            .append(' ').appendFixed(latitude, 8, 4)
+            .append(' ').appendFixed(longitude, 9, 4)
+            .append(' ').appendPadded(altitudeFeet, 5, false)
+            .append(' ').appendPadded(flightLevel, 3, true)
+            .append(' ').appendPadded(point.getHeading(), 3, true)
+            .append(' ').appendPadded(point.getGroundSpeed(), 4, false)
+            .append(' ').appendFixed(qnhInHg, 5, 2)
+            .append(' ').appendPadded(qnhHpa, 4, false)
+            .append(' ').appendPadded(point.getTransponderCode(), 4, true)
+            .newLine();
+    }
+
+    private void printFlightPlan(FlightPlan flightPlan) {
+        out.append("  #").append(flightPlan.getRevision())
+            .append(' ').append(flightPlan.getReportFirstSeen().getRecordTime(), isRounded())
+            .newLine();
+        out.append("     ").append(flightPlan.getFlightPlanType())
+            .append(' ').append(flightPlan.getDepartureAirportCode())
+            .append('-').append(flightPlan.getDestinationAirportCode())
+            .append('/').append(flightPlan.getAlternateAirportCode())
+            .append(' ').append(flightPlan.getCommunicationMode())
+            .append(' ').append(flightPlan.getDepartureTimePlanned(), isRounded())
+            .append(' ').append(flightPlan.getDepartureTimeActual(), isRounded())
+            .newLine();
+        out.append("     alt ").append(flightPlan.getAltitudeFeet())
+            .append(", TAS ").append(flightPlan.getTrueAirSpeed())
+            .append(", enroute ").append(flightPlan.getEstimatedTimeEnroute())
+            .append(", fuel ").append(flightPlan.getEstimatedTimeFuel())
+            .newLine();
+        out.append("     ").append(flightPlan.getAircraftType())
+            .append(' ').append(flightPlan.getSimpleEquipmentSpecification())
+            .append(' ').append(flightPlan.getWakeTurbulenceCategory())
+            .newLine();
+        out.append("     ").append(flightPlan.getRoute()).newLine();
+        out.append("     ").append(flightPlan.getRemarks()).newLine();
+    }
+
+    private <T> int compareRecordTime(T a, T b, Function<T, Report> getterMethod) {
+        return compareRecordTime(getterMethod.apply(a), getterMethod.apply(b));
+    }
+
+    private int compareRecordTime(Report a, Report b) {
+        return a.getRecordTime().compareTo(b.getRecordTime());
+    }
+
+    private void printFacility(Facility x, Instant since) {
+        Connection conn = x.getConnection();
+        out.append(conn.getLogonTime(), isRounded())
+            .append('/').append(conn.getFirstReport().getRecordTime(), isRounded())
+            .append(" - ").append(conn.getLastReport().getRecordTime(), isRounded())
+            .append(' ').append(x.getName())
+            .append(' ').append(x.getFrequencyKilohertz())
+            .append(' ').append(x.getType())
+            .append(' ').append(conn.getRealName())
+            .newLine();
+
+        x.getMessages()
+            .stream()
+            .filter(msg -> isAfter(msg.getReportFirstSeen(), since))
+            .sorted((a, b) -> a.getReportFirstSeen().getRecordTime().compareTo(b.getReportFirstSeen().getRecordTime()))
+            .forEachOrdered(
+                msg -> out.append("    ").append(msg.getReportFirstSeen().getRecordTime(), isRounded())
+                    .append(' ').appendReplacing(msg.getMessage(), '\n', " | ")
+                    .newLine() //
+            );
+    }
+
+    private boolean isRounded() {
+        return !isRoundingDisabled;
+    }
+
+}
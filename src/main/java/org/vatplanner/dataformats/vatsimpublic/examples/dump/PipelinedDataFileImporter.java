@@ -0,0 +1,129 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.PipelineMetrics;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+import org.vatplanner.dataformats.vatsimpublic.parser.Parser;
+
+/**
+ * Parses data files on multiple threads while handing them on in the order
+ * they have been read. Parsers provided by the library are not documented to
+ * be thread-safe, so each thread uses its own parser instance.
+ */
+class PipelinedDataFileImporter implements Consumer<BufferedReader> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedDataFileImporter.class);
+
+    private static final int PENDING_FILES_PER_THREAD = 2;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ThreadLocal<Parser<DataFile>> parsers;
+    private final Consumer<DataFile> sequencer;
+    private final PipelineMetrics metrics;
+    private final ExecutorService executor;
+    private final int maxPendingFiles;
+
+    private final Deque<Future<DataFile>> pendingDataFiles = new ArrayDeque<>();
+    private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+
+    PipelinedDataFileImporter(Supplier<Parser<DataFile>> parserFactory, Consumer<DataFile> sequencer, int numThreads, PipelineMetrics metrics) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("at least one parser thread is required, got " + numThreads);
+        }
+
+        this.parsers = ThreadLocal.withInitial(parserFactory);
+        this.sequencer = sequencer;
+        this.metrics = metrics;
+        this.maxPendingFiles = numThreads * PENDING_FILES_PER_THREAD;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "parser-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        LOGGER.debug("parsing on {} threads, holding at most {} pending files", numThreads, maxPendingFiles);
+    }
+
+    @Override
+    public void accept(BufferedReader contentReader) {
+        // readers get closed by FileVisitor after returning, so content needs to be
+        // copied before parsing can be deferred to another thread
+        String content = readFully(contentReader);
+
+        // imports must happen in read order which is the record-time order files are
+        // visited in; limit files held in memory by waiting for the oldest one
+        while (pendingDataFiles.size() >= maxPendingFiles) {
+            importOldest();
+        }
+
+        pendingDataFiles.add(executor.submit(() -> parse(content)));
+    }
+
+    private DataFile parse(String content) {
+        metrics.begin();
+        try {
+            return parsers.get().deserialize(new BufferedReader(new StringReader(content)));
+        } finally {
+            metrics.end(PipelineMetrics.Stage.DESERIALIZE, 1, content.length());
+        }
+    }
+
+    void finish() {
+        try {
+            while (!pendingDataFiles.isEmpty()) {
+                importOldest();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void importOldest() {
+        Future<DataFile> future = pendingDataFiles.removeFirst();
+
+        DataFile dataFile;
+        try {
+            dataFile = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for parser", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("parser failed", cause);
+        }
+
+        sequencer.accept(dataFile);
+    }
+
+    private String readFully(BufferedReader reader) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            int read;
+            while ((read = reader.read(readBuffer)) >= 0) {
+                sb.append(readBuffer, 0, read);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("failed to read data file content", ex);
+        }
+        return sb.toString();
+    }
+}
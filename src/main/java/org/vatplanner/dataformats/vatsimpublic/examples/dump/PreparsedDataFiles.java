@@ -0,0 +1,882 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+
+/**
+ * Binary file of data files which have already been parsed, so they can be
+ * imported again without parsing text or JSON.
+ * <p>
+ * Objects are stored by their bean properties (getters with a matching setter)
+ * and restored through their default constructor and setters, so the format
+ * follows the classes of the parser library in use without having to list
+ * their fields here. Class and property names are only recorded on first use
+ * in each file; properties which are unknown when reading are skipped.
+ * Properties which cannot be stored (no setter or unsupported type) are
+ * reported as warnings once per class, {@link #verifyRoundTrip(Object)} checks
+ * that all stored information is restored.
+ * <p>
+ * Only classes of the parser library (and enums) below
+ * {@value #RESTORABLE_PACKAGE_PREFIX} are stored and restored, so files cannot
+ * instantiate arbitrary classes. Lengths read from files are checked against
+ * fixed limits, so corrupted files fail with an {@link IOException} instead of
+ * exhausting memory.
+ * </p>
+ * <p>
+ * Layout: header (magic, version), records of parsed data files, end marker.
+ * Each value starts with a tag byte describing its type, numbers are
+ * variable-length encoded. Strings are stored on first use and referenced
+ * afterwards, which also deduplicates them in memory when reading.
+ * </p>
+ */
+class PreparsedDataFiles {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreparsedDataFiles.class);
+
+    private static final int MAGIC = 0x56505044; // "VPPD"
+    private static final int VERSION = 1;
+
+    private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+
+    // limits the string table held by both writer and reader
+    private static final int MAX_STRINGS = 1 << 20;
+
+    // protects against cyclic object graphs
+    private static final int MAX_DEPTH = 32;
+
+    // protects against corrupted lengths when reading
+    private static final int MAX_COLLECTION_SIZE = 1 << 24;
+    private static final int MAX_STRING_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_PROPERTIES = 1024;
+    private static final int MAX_INITIAL_COLLECTION_CAPACITY = 1024;
+
+    static final String RESTORABLE_PACKAGE_PREFIX = "org.vatplanner.dataformats.vatsimpublic.";
+
+    private static final int RECORD_END = 0;
+    private static final int RECORD_DATA_FILE = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_CHAR = 7;
+    private static final int TAG_STRING_REF = 8;
+    private static final int TAG_STRING_NEW = 9;
+    private static final int TAG_STRING_INLINE = 10;
+    private static final int TAG_ENUM = 11;
+    private static final int TAG_INSTANT = 12;
+    private static final int TAG_DURATION = 13;
+    private static final int TAG_LOCAL_DATE = 14;
+    private static final int TAG_LOCAL_TIME = 15;
+    private static final int TAG_LOCAL_DATE_TIME = 16;
+    private static final int TAG_COLLECTION = 17;
+    private static final int TAG_OBJECT = 18;
+
+    private static final Map<Class<?>, BeanType> BEAN_TYPES = new ConcurrentHashMap<>();
+
+    private PreparsedDataFiles() {
+        // utility class
+    }
+
+    /**
+     * Creates a new file, compressed if the name ends with .gz or .xz.
+     *
+     * @param file file to write
+     * @return writer for data files
+     * @throws IOException if the file cannot be created
+     */
+    static Writer create(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        OutputStream os = new FileOutputStream(file);
+        try {
+            if (name.endsWith(".xz")) {
+                os = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.XZ, os);
+            } else if (name.endsWith(".gz")) {
+                os = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.GZIP, os);
+            }
+        } catch (CompressorException ex) {
+            os.close();
+            throw new IOException("unable to compress " + file, ex);
+        }
+        return new Writer(os);
+    }
+
+    /**
+     * Opens a file previously written by {@link Writer}, decompressing it if
+     * needed.
+     *
+     * @param file file to read
+     * @return reader for data files
+     * @throws IOException if the file cannot be opened or is not in the expected
+     *         format
+     */
+    static Reader open(File file) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE);
+        try {
+            is = new CompressorStreamFactory().createCompressorInputStream(is);
+        } catch (CompressorException ex) {
+            // not compressed
+        }
+
+        try {
+            return new Reader(is);
+        } catch (IOException ex) {
+            is.close();
+            throw new IOException("unable to read preparsed data files from " + file, ex);
+        }
+    }
+
+    /**
+     * Checks that the given value is restored without losing any stored
+     * information by writing it, reading it back and writing the restored value
+     * again. Both serializations must be identical.
+     *
+     * @param value value to check
+     * @throws IOException if the restored value differs from the original
+     */
+    static void verifyRoundTrip(Object value) throws IOException {
+        byte[] original = serialize(value);
+
+        Object restored;
+        try (Reader reader = new Reader(new ByteArrayInputStream(original))) {
+            restored = reader.nextRecord();
+        }
+
+        if (!Arrays.equals(original, serialize(restored))) {
+            throw new IOException("restored " + value.getClass().getName() + " differs from the original");
+        }
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer writer = new Writer(baos)) {
+            writer.writeRecord(value);
+        }
+        return baos.toByteArray();
+    }
+
+    static class Writer implements Closeable {
+        private final DataOutputStream dos;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final Map<Class<?>, Integer> classIds = new HashMap<>();
+        private int numDataFiles = 0;
+
+        Writer(OutputStream os) throws IOException {
+            dos = new DataOutputStream(new BufferedOutputStream(os, STREAM_BUFFER_SIZE));
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+        }
+
+        void write(DataFile dataFile) throws IOException {
+            writeRecord(dataFile);
+        }
+
+        // accepts any storable value, not only data files, to be testable on its own
+        void writeRecord(Object value) throws IOException {
+            dos.writeByte(RECORD_DATA_FILE);
+            writeValue(value, 0);
+            numDataFiles++;
+        }
+
+        int getNumDataFiles() {
+            return numDataFiles;
+        }
+
+        private void writeValue(Object value, int depth) throws IOException {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("values are nested too deeply, possibly cyclic");
+            }
+
+            if (value == null) {
+                dos.writeByte(TAG_NULL);
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                dos.writeByte(((Boolean) value) ? TAG_TRUE : TAG_FALSE);
+            } else if ((value instanceof Integer) || (value instanceof Short) || (value instanceof Byte)) {
+                dos.writeByte(TAG_INT);
+                writeSignedVarLong(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                dos.writeByte(TAG_LONG);
+                writeSignedVarLong((Long) value);
+            } else if (value instanceof Float) {
+                dos.writeByte(TAG_FLOAT);
+                dos.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                dos.writeByte(TAG_DOUBLE);
+                dos.writeDouble((Double) value);
+            } else if (value instanceof Character) {
+                dos.writeByte(TAG_CHAR);
+                writeVarLong((Character) value);
+            } else if (value instanceof Enum) {
+                Enum<?> constant = (Enum<?>) value;
+                if (!isRestorable(constant.getDeclaringClass().getName())) {
+                    throw new IllegalArgumentException("unable to store values of " + constant.getDeclaringClass().getName());
+                }
+                dos.writeByte(TAG_ENUM);
+                writeString(constant.getDeclaringClass().getName());
+                writeString(constant.name());
+            } else if (value instanceof Instant) {
+                Instant instant = (Instant) value;
+                dos.writeByte(TAG_INSTANT);
+                writeSignedVarLong(instant.getEpochSecond());
+                writeVarLong(instant.getNano());
+            } else if (value instanceof Duration) {
+                Duration duration = (Duration) value;
+                dos.writeByte(TAG_DURATION);
+                writeSignedVarLong(duration.getSeconds());
+                writeVarLong(duration.getNano());
+            } else if (value instanceof LocalDate) {
+                dos.writeByte(TAG_LOCAL_DATE);
+                writeSignedVarLong(((LocalDate) value).toEpochDay());
+            } else if (value instanceof LocalTime) {
+                dos.writeByte(TAG_LOCAL_TIME);
+                writeVarLong(((LocalTime) value).toNanoOfDay());
+            } else if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                dos.writeByte(TAG_LOCAL_DATE_TIME);
+                writeSignedVarLong(dateTime.toLocalDate().toEpochDay());
+                writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                dos.writeByte(TAG_COLLECTION);
+                writeVarLong(collection.size());
+                for (Object element : collection) {
+                    writeValue(element, depth + 1);
+                }
+            } else {
+                writeObject(value, depth);
+            }
+        }
+
+        private void writeObject(Object value, int depth) throws IOException {
+            BeanType type = BeanType.of(value.getClass());
+            if (type == null) {
+                throw new IllegalArgumentException("unable to store values of " + value.getClass().getName());
+            }
+
+            dos.writeByte(TAG_OBJECT);
+
+            // classes are defined inline on first use
+            Integer classId = classIds.get(type.type);
+            if (classId != null) {
+                writeVarLong(classId);
+            } else {
+                classId = classIds.size();
+                classIds.put(type.type, classId);
+                writeVarLong(classId);
+                writeString(type.type.getName());
+                writeVarLong(type.properties.size());
+                for (Property property : type.properties) {
+                    writeString(property.name);
+                }
+            }
+
+            for (Property property : type.properties) {
+                Object propertyValue;
+                try {
+                    propertyValue = property.getter.invoke(value);
+                } catch (IllegalAccessException | InvocationTargetException ex) {
+                    throw new IllegalArgumentException(
+                        "failed to read " + property.name + " of " + type.type.getName(), ex //
+                    );
+                }
+                writeValue(propertyValue, depth + 1);
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer id = stringIds.get(s);
+            if (id != null) {
+                dos.writeByte(TAG_STRING_REF);
+                writeVarLong(id);
+                return;
+            }
+
+            if (stringIds.size() < MAX_STRINGS) {
+                stringIds.put(s, stringIds.size());
+                dos.writeByte(TAG_STRING_NEW);
+            } else {
+                dos.writeByte(TAG_STRING_INLINE);
+            }
+
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            dos.write(bytes);
+        }
+
+        private void writeSignedVarLong(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                dos.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            dos.writeByte((int) value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            dos.writeByte(RECORD_END);
+            dos.close();
+        }
+    }
+
+    static class Reader implements Closeable {
+        private final DataInputStream dis;
+        private final List<String> strings = new ArrayList<>();
+        private final List<StoredClass> classes = new ArrayList<>();
+        private final Map<String, Class<?>> enumClasses = new HashMap<>();
+        private final Set<String> reportedProblems = new HashSet<>();
+        private boolean isEnd = false;
+
+        private static class StoredClass {
+            final String name;
+            final BeanType type;
+            final Property[] properties;
+
+            StoredClass(String name, BeanType type, Property[] properties) {
+                this.name = name;
+                this.type = type;
+                this.properties = properties;
+            }
+        }
+
+        Reader(InputStream is) throws IOException {
+            dis = new DataInputStream((is instanceof BufferedInputStream) ? is : new BufferedInputStream(is, STREAM_BUFFER_SIZE));
+
+            int magic = dis.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("not a file of preparsed data files");
+            }
+
+            int version = dis.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version + ", expected " + VERSION);
+            }
+        }
+
+        /**
+         * Restores the next data file.
+         *
+         * @return next data file; null at end of file
+         * @throws IOException if the file cannot be read
+         */
+        DataFile next() throws IOException {
+            if (!hasNextRecord()) {
+                return null;
+            }
+
+            Object value = readRecord();
+            if (!(value instanceof DataFile)) {
+                throw new IOException("expected a data file but read " + value);
+            }
+            return (DataFile) value;
+        }
+
+        // counterpart to Writer#writeRecord, null if the value cannot be restored
+        Object nextRecord() throws IOException {
+            if (!hasNextRecord()) {
+                throw new EOFException("no more records");
+            }
+            return readRecord();
+        }
+
+        private boolean hasNextRecord() throws IOException {
+            if (isEnd) {
+                return false;
+            }
+
+            int record = dis.read();
+            if (record < 0) {
+                throw new EOFException("file ended without end marker, may be incomplete");
+            } else if (record == RECORD_END) {
+                isEnd = true;
+                return false;
+            } else if (record != RECORD_DATA_FILE) {
+                throw new IOException("unexpected record type " + record);
+            }
+
+            return true;
+        }
+
+        private Object readRecord() throws IOException {
+            try {
+                return readValue();
+            } catch (DateTimeException | ArithmeticException ex) {
+                throw new IOException("malformed value, file may be corrupted", ex);
+            }
+        }
+
+        private Object readValue() throws IOException {
+            int tag = dis.readUnsignedByte();
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_INT:
+                    return (int) readSignedVarLong();
+                case TAG_LONG:
+                    return readSignedVarLong();
+                case TAG_FLOAT:
+                    return dis.readFloat();
+                case TAG_DOUBLE:
+                    return dis.readDouble();
+                case TAG_CHAR:
+                    return (char) readVarLong();
+                case TAG_STRING_REF:
+                case TAG_STRING_NEW:
+                case TAG_STRING_INLINE:
+                    return readString(tag);
+                case TAG_ENUM:
+                    return readEnum();
+                case TAG_INSTANT:
+                    return Instant.ofEpochSecond(readSignedVarLong(), readVarLong());
+                case TAG_DURATION:
+                    return Duration.ofSeconds(readSignedVarLong(), readVarLong());
+                case TAG_LOCAL_DATE:
+                    return LocalDate.ofEpochDay(readSignedVarLong());
+                case TAG_LOCAL_TIME:
+                    return LocalTime.ofNanoOfDay(readVarLong());
+                case TAG_LOCAL_DATE_TIME:
+                    return LocalDateTime.of(LocalDate.ofEpochDay(readSignedVarLong()), LocalTime.ofNanoOfDay(readVarLong()));
+                case TAG_COLLECTION:
+                    return readCollection();
+                case TAG_OBJECT:
+                    return readObject();
+                default:
+                    throw new IOException("unexpected value tag " + tag);
+            }
+        }
+
+        private List<Object> readCollection() throws IOException {
+            int size = readLength(MAX_COLLECTION_SIZE, "collection size");
+            List<Object> list = new ArrayList<>(Math.min(size, MAX_INITIAL_COLLECTION_CAPACITY));
+            for (int i = 0; i < size; i++) {
+                list.add(readValue());
+            }
+            return list;
+        }
+
+        private String readString() throws IOException {
+            return readString(dis.readUnsignedByte());
+        }
+
+        private String readString(int tag) throws IOException {
+            if (tag == TAG_STRING_REF) {
+                long id = readVarLong();
+                if ((id < 0) || (id >= strings.size())) {
+                    throw new IOException("reference to unknown string " + id);
+                }
+                return strings.get((int) id);
+            } else if ((tag != TAG_STRING_NEW) && (tag != TAG_STRING_INLINE)) {
+                throw new IOException("expected a string but got tag " + tag);
+            }
+
+            byte[] bytes = new byte[readLength(MAX_STRING_BYTES, "string length")];
+            dis.readFully(bytes);
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            if (tag == TAG_STRING_NEW) {
+                strings.add(s);
+            }
+            return s;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Object readEnum() throws IOException {
+            String className = readString();
+            String name = readString();
+
+            Class<?> enumClass = enumClasses.computeIfAbsent(className, this::findClass);
+            if ((enumClass == null) || !enumClass.isEnum()) {
+                reportOnce("enum " + className + " is not available, values are skipped");
+                return null;
+            }
+
+            try {
+                return Enum.valueOf((Class) enumClass, name);
+            } catch (IllegalArgumentException ex) {
+                reportOnce(className + "." + name + " is not available, values are skipped");
+                return null;
+            }
+        }
+
+        private Class<?> findClass(String name) {
+            if (!isRestorable(name)) {
+                return null;
+            }
+
+            try {
+                return Class.forName(name);
+            } catch (ClassNotFoundException ex) {
+                return null;
+            }
+        }
+
+        private Object readObject() throws IOException {
+            long classId = readVarLong();
+            StoredClass storedClass;
+            if ((classId >= 0) && (classId < classes.size())) {
+                storedClass = classes.get((int) classId);
+            } else if (classId == classes.size()) {
+                storedClass = readClassDefinition();
+                classes.add(storedClass);
+            } else {
+                throw new IOException("reference to unknown class " + classId);
+            }
+
+            // values are self-describing, so they can be read even if they cannot be restored
+            Object instance = null;
+            if (storedClass.type != null) {
+                try {
+                    instance = storedClass.type.constructor.newInstance();
+                } catch (ReflectiveOperationException ex) {
+                    throw new IOException("failed to instantiate " + storedClass.name, ex);
+                }
+            }
+
+            for (Property property : storedClass.properties) {
+                Object value = readValue();
+                if ((instance != null) && (property != null)) {
+                    set(instance, property, value);
+                }
+            }
+
+            return instance;
+        }
+
+        private StoredClass readClassDefinition() throws IOException {
+            String name = readString();
+            int numProperties = readLength(MAX_PROPERTIES, "number of properties");
+
+            Class<?> cls = findClass(name);
+            BeanType type = (cls != null) ? BeanType.of(cls) : null;
+            if (type == null) {
+                reportOnce("class " + name + " is not available, values are skipped");
+            }
+
+            Property[] properties = new Property[numProperties];
+            for (int i = 0; i < numProperties; i++) {
+                String propertyName = readString();
+                if (type != null) {
+                    properties[i] = type.getProperty(propertyName);
+                    if (properties[i] == null) {
+                        reportOnce("property " + propertyName + " of " + name + " is not available, values are skipped");
+                    }
+                }
+            }
+
+            return new StoredClass(name, type, properties);
+        }
+
+        private void set(Object instance, Property property, Object value) throws IOException {
+            Class<?> parameterType = property.setter.getParameterTypes()[0];
+            if (value == null) {
+                if (parameterType.isPrimitive()) {
+                    return;
+                }
+            } else if (value instanceof List) {
+                if (!parameterType.isAssignableFrom(ArrayList.class)) {
+                    if (!parameterType.isAssignableFrom(LinkedHashSet.class)) {
+                        reportOnce("unable to restore collection " + property.name + " of " + instance.getClass().getName());
+                        return;
+                    }
+                    value = new LinkedHashSet<>((List<?>) value);
+                }
+            } else if (value instanceof Number) {
+                value = convertNumber((Number) value, parameterType);
+            }
+
+            try {
+                property.setter.invoke(instance, value);
+            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+                throw new IOException("failed to restore " + property.name + " of " + instance.getClass().getName(), ex);
+            }
+        }
+
+        private Object convertNumber(Number value, Class<?> type) {
+            if ((type == long.class) || (type == Long.class)) {
+                return value.longValue();
+            } else if ((type == int.class) || (type == Integer.class)) {
+                return value.intValue();
+            } else if ((type == short.class) || (type == Short.class)) {
+                return value.shortValue();
+            } else if ((type == byte.class) || (type == Byte.class)) {
+                return value.byteValue();
+            } else if ((type == double.class) || (type == Double.class)) {
+                return value.doubleValue();
+            } else if ((type == float.class) || (type == Float.class)) {
+                return value.floatValue();
+            }
+            return value;
+        }
+
+        private void reportOnce(String message) {
+            if (reportedProblems.add(message)) {
+                LOGGER.warn("{}", message);
+            }
+        }
+
+        private int readLength(int max, String description) throws IOException {
+            long length = readVarLong();
+            if ((length < 0) || (length > max)) {
+                throw new IOException(description + " " + length + " exceeds limit of " + max + ", file may be corrupted");
+            }
+            return (int) length;
+        }
+
+        private long readSignedVarLong() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = dis.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("malformed variable-length number");
+        }
+
+        @Override
+        public void close() throws IOException {
+            dis.close();
+        }
+    }
+
+    private static boolean isRestorable(String className) {
+        return className.startsWith(RESTORABLE_PACKAGE_PREFIX);
+    }
+
+    private static class Property {
+        final String name;
+        final Method getter;
+        final Method setter;
+
+        Property(String name, Method getter, Method setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    // class which can be restored through its default constructor and setters
+    private static class BeanType {
+        private static final BeanType NONE = new BeanType(null, null, Collections.<Property>emptyList());
+
+        final Class<?> type;
+        final Constructor<?> constructor;
+        final List<Property> properties;
+
+        private BeanType(Class<?> type, Constructor<?> constructor, List<Property> properties) {
+            this.type = type;
+            this.constructor = constructor;
+            this.properties = properties;
+        }
+
+        static BeanType of(Class<?> type) {
+            BeanType beanType = BEAN_TYPES.computeIfAbsent(type, BeanType::introspect);
+            return (beanType != NONE) ? beanType : null;
+        }
+
+        Property getProperty(String name) {
+            for (Property property : properties) {
+                if (property.name.equals(name)) {
+                    return property;
+                }
+            }
+            return null;
+        }
+
+        private static BeanType introspect(Class<?> type) {
+            Constructor<?> constructor = getDefaultConstructor(type);
+            if (constructor == null) {
+                return NONE;
+            }
+
+            // sorted for a stable order of properties
+            Map<String, Property> properties = new TreeMap<>();
+            for (Method getter : type.getMethods()) {
+                String name = getPropertyName(getter);
+                if ((name == null) || properties.containsKey(name)) {
+                    continue;
+                }
+
+                // introspection happens once per class, so each omission is only reported once
+                Method setter = findSetter(type, name, getter.getReturnType());
+                if (setter == null) {
+                    LOGGER.warn("{} of {} has no matching setter and will not be stored", name, type.getName());
+                    continue;
+                }
+
+                if (!isStorable(getter.getReturnType(), getter.getGenericReturnType())) {
+                    LOGGER.warn(
+                        "{} of {} has unsupported type {} and will not be stored",
+                        name, type.getName(), getter.getGenericReturnType().getTypeName() //
+                    );
+                    continue;
+                }
+
+                properties.put(name, new Property(name, getter, setter));
+            }
+
+            if (properties.isEmpty()) {
+                return NONE;
+            }
+
+            return new BeanType(type, constructor, new ArrayList<>(properties.values()));
+        }
+
+        private static Constructor<?> getDefaultConstructor(Class<?> type) {
+            if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())
+                || type.isArray() || type.isPrimitive() || !isRestorable(type.getName())) {
+                return null;
+            }
+
+            try {
+                return type.getConstructor();
+            } catch (NoSuchMethodException ex) {
+                return null;
+            }
+        }
+
+        private static String getPropertyName(Method method) {
+            if (Modifier.isStatic(method.getModifiers()) || (method.getParameterCount() != 0)
+                || (method.getDeclaringClass() == Object.class)) {
+                return null;
+            }
+
+            String name = method.getName();
+            if (name.startsWith("get") && (name.length() > 3) && (method.getReturnType() != void.class)) {
+                return name.substring(3);
+            } else if (name.startsWith("is") && (name.length() > 2) && (method.getReturnType() == boolean.class)) {
+                return name.substring(2);
+            }
+            return null;
+        }
+
+        private static Method findSetter(Class<?> type, String name, Class<?> valueType) {
+            for (Method method : type.getMethods()) {
+                if (!Modifier.isStatic(method.getModifiers()) && (method.getParameterCount() == 1)
+                    && method.getName().equals("set" + name)
+                    && box(method.getParameterTypes()[0]).isAssignableFrom(box(valueType))) {
+                    return method;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isStorable(Class<?> type, Type genericType) {
+            if (type.isPrimitive() || (type == Integer.class) || (type == Long.class) || (type == Short.class)
+                || (type == Byte.class) || (type == Float.class) || (type == Double.class) || (type == Boolean.class)
+                || (type == Character.class) || (type == String.class)
+                || (type == Instant.class) || (type == Duration.class) || (type == LocalDate.class)
+                || (type == LocalTime.class) || (type == LocalDateTime.class)) {
+                return true;
+            }
+
+            if (type.isEnum()) {
+                return isRestorable(type.getName());
+            }
+
+            if (Collection.class.isAssignableFrom(type)) {
+                if (genericType instanceof ParameterizedType) {
+                    Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+                    if (elementType instanceof Class) {
+                        return isStorable((Class<?>) elementType, elementType);
+                    }
+                }
+
+                // element types are only known when writing
+                return true;
+            }
+
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+                // implementations are only known when writing
+                return isRestorable(type.getName());
+            }
+
+            // properties of nested classes are checked once values are written
+            return getDefaultConstructor(type) != null;
+        }
+
+        private static Class<?> box(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            } else if (type == int.class) {
+                return Integer.class;
+            } else if (type == long.class) {
+                return Long.class;
+            } else if (type == double.class) {
+                return Double.class;
+            } else if (type == float.class) {
+                return Float.class;
+            } else if (type == boolean.class) {
+                return Boolean.class;
+            } else if (type == short.class) {
+                return Short.class;
+            } else if (type == byte.class) {
+                return Byte.class;
+            } else if (type == char.class) {
+                return Character.class;
+            }
+            return type;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a dump as multiple local worker processes, each importing only the
+ * members of one shard into a snapshot file. Snapshots of all shards are merged
+ * afterwards by the coordinating process.
+ */
+class ShardCoordinator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private final CommandLine parameters;
+    private final int numShards;
+    private final Collection<String> excludedOptions;
+
+    private File workDirectory;
+    private final List<File> snapshotFiles = new ArrayList<>();
+
+    /**
+     * @param parameters command line of coordinating process, passed on to workers
+     * @param numShards number of worker processes to run
+     * @param excludedOptions names of options not to be passed on to workers
+     */
+    ShardCoordinator(CommandLine parameters, int numShards, Collection<String> excludedOptions) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("at least one shard is required, got " + numShards);
+        }
+
+        this.parameters = parameters;
+        this.numShards = numShards;
+        this.excludedOptions = new HashSet<>(excludedOptions);
+    }
+
+    /**
+     * Runs all workers in parallel and waits for them to finish.
+     *
+     * @param shardOption name of option selecting a shard on workers
+     * @param snapshotOption name of option for workers to write a snapshot
+     * @param additionalArguments further arguments for all workers
+     * @return snapshot files written by workers, ordered by shard
+     * @throws IOException if a worker cannot be started or fails
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    List<File> run(String shardOption, String snapshotOption, String... additionalArguments) throws IOException, InterruptedException {
+        workDirectory = Files.createTempDirectory("dump-shards").toFile();
+
+        List<String> baseCommand = new ArrayList<>();
+        baseCommand.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+        baseCommand.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        baseCommand.add("-cp");
+        baseCommand.add(System.getProperty("java.class.path"));
+        baseCommand.add(Dump.class.getName());
+        baseCommand.addAll(getPassedArguments());
+        baseCommand.addAll(Arrays.asList(additionalArguments));
+
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < numShards; shard++) {
+                File snapshotFile = new File(workDirectory, "shard-" + shard + ".snapshot");
+                snapshotFiles.add(snapshotFile);
+
+                List<String> command = new ArrayList<>(baseCommand);
+                command.add("--" + shardOption);
+                command.add(shard + "/" + numShards);
+                command.add("--" + snapshotOption);
+                command.add(snapshotFile.getAbsolutePath());
+
+                LOGGER.debug("starting worker for shard {}: {}", shard, command);
+                processes.add(new ProcessBuilder(command).inheritIO().start());
+            }
+
+            LOGGER.info("Started {} worker processes, waiting for them to finish...", numShards);
+
+            for (int shard = 0; shard < numShards; shard++) {
+                int exitCode = processes.get(shard).waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("worker for shard " + shard + " failed with exit code " + exitCode);
+                }
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+
+        return snapshotFiles;
+    }
+
+    private List<String> getPassedArguments() {
+        List<String> arguments = new ArrayList<>();
+        for (Option option : parameters.getOptions()) {
+            String name = (option.getOpt() != null) ? option.getOpt() : option.getLongOpt();
+            if (excludedOptions.contains(name)) {
+                continue;
+            }
+
+            arguments.add((option.getOpt() != null) ? "-" + option.getOpt() : "--" + option.getLongOpt());
+            String[] values = option.getValues();
+            if (values != null) {
+                arguments.addAll(Arrays.asList(values));
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Deletes all temporary files written by workers.
+     */
+    void cleanUp() {
+        for (File snapshotFile : snapshotFiles) {
+            if (snapshotFile.exists() && !snapshotFile.delete()) {
+                LOGGER.warn("Failed to delete temporary file {}", snapshotFile);
+            }
+        }
+
+        if ((workDirectory != null) && !workDirectory.delete()) {
+            LOGGER.warn("Failed to delete temporary directory {}", workDirectory);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.vatplanner.dataformats.vatsimpublic.parser.Client;
+import org.vatplanner.dataformats.vatsimpublic.parser.DataFile;
+
+/**
+ * Deduplicates strings repeated across data files, such as callsigns, airport
+ * codes, aircraft types, server IDs and real names. Parsers create new strings
+ * for each data file while the imported graph keeps them for every connection,
+ * flight and flight plan, so the graph otherwise holds many equal copies.
+ * <p>
+ * The pool stops growing once its capacity is reached; strings already pooled
+ * are still deduplicated. Instances are not thread-safe.
+ * </p>
+ */
+class StringPool {
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final int capacity;
+
+    private long numHits = 0;
+    private long numMisses = 0;
+
+    StringPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+        }
+
+        this.capacity = capacity;
+    }
+
+    String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+
+        String pooled = strings.get(s);
+        if (pooled != null) {
+            numHits++;
+            return pooled;
+        }
+
+        numMisses++;
+        if (strings.size() < capacity) {
+            strings.put(s, s);
+        }
+        return s;
+    }
+
+    void apply(DataFile dataFile) {
+        Collection<Client> clients = dataFile.getClients();
+        if (clients == null) {
+            return;
+        }
+
+        for (Client client : clients) {
+            client.setCallsign(intern(client.getCallsign()));
+            client.setRealName(intern(client.getRealName()));
+            client.setServerId(intern(client.getServerId()));
+            client.setAircraftType(intern(client.getAircraftType()));
+            client.setFiledDepartureAirportCode(intern(client.getFiledDepartureAirportCode()));
+            client.setFiledDestinationAirportCode(intern(client.getFiledDestinationAirportCode()));
+            client.setFiledAlternateAirportCode(intern(client.getFiledAlternateAirportCode()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%d unique strings pooled, %d of %d strings deduplicated",
+            strings.size(), numHits, numHits + numMisses //
+        );
+    }
+}
@@ -0,0 +1,492 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SortedSet;
+
+import org.vatplanner.dataformats.vatsimpublic.entities.status.BarometricPressure;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Flight;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.GeoCoordinates;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.TrackPoint;
+
+/**
+ * Columnar binary export of flight tracks.
+ * <p>
+ * Layout: header (magic, version) followed by blocks of flights. Each block
+ * starts with a table of flights (VATSIM ID, callsign, number of track points)
+ * followed by one column per track point field, each prefixed by its length in
+ * bytes so readers can skip columns they are not interested in. Values are
+ * stored as zig-zag encoded variable-length deltas to the previous point of the
+ * same block. A block holding no flights ends the file.
+ * </p>
+ * <p>
+ * Times are stored as epoch milliseconds without rounding, coordinates in
+ * 1e-7 degrees and QNH in 1/100 hPa.
+ * </p>
+ */
+public class TrackColumnFile implements Closeable {
+
+    private static final int MAGIC = 0x56505443; // "VPTC"
+    private static final int VERSION = 1;
+
+    private static final int FLAG_HAS_COORDINATES = 1;
+    private static final int FLAG_HAS_QNH = 2;
+
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final double QNH_SCALE = 100.0;
+
+    private static final int NUM_COLUMNS = 10;
+    private static final int COLUMN_FLAGS = 0;
+    private static final int COLUMN_TIME = 1;
+    private static final int COLUMN_LATITUDE = 2;
+    private static final int COLUMN_LONGITUDE = 3;
+    private static final int COLUMN_ALTITUDE = 4;
+    private static final int COLUMN_FLIGHT_LEVEL = 5;
+    private static final int COLUMN_HEADING = 6;
+    private static final int COLUMN_GROUND_SPEED = 7;
+    private static final int COLUMN_QNH = 8;
+    private static final int COLUMN_TRANSPONDER = 9;
+
+    private static final int DEFAULT_POINTS_PER_BLOCK = 64 * 1024;
+
+    private final DataInputStream dis;
+    private boolean isEndOfFile = false;
+
+    static class Writer implements Closeable {
+        private final DataOutputStream dos;
+        private final int pointsPerBlock;
+
+        private final ColumnOutput flightTable = new ColumnOutput();
+        private final ColumnOutput[] columns = new ColumnOutput[NUM_COLUMNS];
+        private final long[] previous = new long[NUM_COLUMNS];
+        private int numFlights = 0;
+        private int numPoints = 0;
+
+        Writer(File file) throws IOException {
+            this(file, DEFAULT_POINTS_PER_BLOCK);
+        }
+
+        Writer(File file, int pointsPerBlock) throws IOException {
+            this.pointsPerBlock = pointsPerBlock;
+
+            dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024));
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+
+            for (int i = 0; i < NUM_COLUMNS; i++) {
+                columns[i] = new ColumnOutput();
+            }
+        }
+
+        // flights without track points are skipped
+        boolean add(Flight flight) throws IOException {
+            SortedSet<TrackPoint> track = flight.getTrack();
+            if (track.isEmpty()) {
+                return false;
+            }
+
+            startFlight(flight.getMember().getVatsimId(), flight.getCallsign(), track.size());
+            for (TrackPoint point : track) {
+                GeoCoordinates coords = point.getGeoCoordinates();
+                BarometricPressure qnh = point.getQnh();
+                addPoint(
+                    point.getReport().getRecordTime().toEpochMilli(),
+                    (coords != null) ? coords.getLatitude() : Double.NaN,
+                    (coords != null) ? coords.getLongitude() : Double.NaN,
+                    (coords != null) ? coords.getAltitudeFeet() : 0,
+                    point.getFlightLevel(),
+                    point.getHeading(),
+                    point.getGroundSpeed(),
+                    (qnh != null) ? qnh.getHectopascals() : Double.NaN,
+                    point.getTransponderCode() //
+                );
+            }
+            endFlight();
+
+            return true;
+        }
+
+        // startFlight, addPoint and endFlight encode flights independent of the entity
+        // classes, using the same representation as Block; exactly the announced
+        // number of points must be added before ending the flight
+        void startFlight(int vatsimId, String callsign, int numTrackPoints) {
+            byte[] callsignBytes = callsign.getBytes(StandardCharsets.UTF_8);
+            flightTable.writeVarLong(vatsimId);
+            flightTable.writeVarLong(callsignBytes.length);
+            flightTable.write(callsignBytes, 0, callsignBytes.length);
+            flightTable.writeVarLong(numTrackPoints);
+            numFlights++;
+        }
+
+        // NaN for coordinates or QNH if not available; altitude is ignored without coordinates
+        void addPoint(long time, double latitude, double longitude, long altitudeFeet, long flightLevel, long heading, long groundSpeed, double qnhHectopascals, long transponderCode) {
+            int flags = 0;
+
+            if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+                flags |= FLAG_HAS_COORDINATES;
+                writeDelta(COLUMN_LATITUDE, Math.round(latitude * COORDINATE_SCALE));
+                writeDelta(COLUMN_LONGITUDE, Math.round(longitude * COORDINATE_SCALE));
+                writeDelta(COLUMN_ALTITUDE, altitudeFeet);
+            } else {
+                writeDelta(COLUMN_LATITUDE, previous[COLUMN_LATITUDE]);
+                writeDelta(COLUMN_LONGITUDE, previous[COLUMN_LONGITUDE]);
+                writeDelta(COLUMN_ALTITUDE, previous[COLUMN_ALTITUDE]);
+            }
+
+            if (!Double.isNaN(qnhHectopascals)) {
+                flags |= FLAG_HAS_QNH;
+                writeDelta(COLUMN_QNH, Math.round(qnhHectopascals * QNH_SCALE));
+            } else {
+                writeDelta(COLUMN_QNH, previous[COLUMN_QNH]);
+            }
+
+            columns[COLUMN_FLAGS].write(flags);
+            writeDelta(COLUMN_TIME, time);
+            writeDelta(COLUMN_FLIGHT_LEVEL, flightLevel);
+            writeDelta(COLUMN_HEADING, heading);
+            writeDelta(COLUMN_GROUND_SPEED, groundSpeed);
+            writeDelta(COLUMN_TRANSPONDER, transponderCode);
+
+            numPoints++;
+        }
+
+        void endFlight() throws IOException {
+            // flights are never split across blocks
+            if (numPoints >= pointsPerBlock) {
+                writeBlock();
+            }
+        }
+
+        private void writeDelta(int column, long value) {
+            columns[column].writeVarLong(zigZag(value - previous[column]));
+            previous[column] = value;
+        }
+
+        private void writeBlock() throws IOException {
+            writeVarLong(dos, numFlights);
+            flightTable.writeTo(dos);
+
+            for (ColumnOutput column : columns) {
+                writeVarLong(dos, column.size());
+                column.writeTo(dos);
+                column.reset();
+            }
+
+            flightTable.reset();
+            Arrays.fill(previous, 0);
+            numFlights = 0;
+            numPoints = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (numFlights > 0) {
+                writeBlock();
+            }
+            writeVarLong(dos, 0);
+            dos.close();
+        }
+    }
+
+    /**
+     * All flights and track points of a single block, decoded into primitive
+     * arrays. Track points of a flight are stored consecutively, starting at
+     * {@link #getFirstPoint(int)}.
+     */
+    public static class Block {
+        private final int numFlights;
+        private final int[] vatsimIds;
+        private final String[] callsigns;
+        private final int[] firstPoints;
+        private final int[] pointCounts;
+
+        private final int numPoints;
+        private final long[] times;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int[] altitudes;
+        private final int[] flightLevels;
+        private final int[] headings;
+        private final int[] groundSpeeds;
+        private final double[] qnhHectopascals;
+        private final int[] transponderCodes;
+
+        private Block(DataInputStream dis, int numFlights) throws IOException {
+            this.numFlights = numFlights;
+            vatsimIds = new int[numFlights];
+            callsigns = new String[numFlights];
+            firstPoints = new int[numFlights];
+            pointCounts = new int[numFlights];
+
+            int totalPoints = 0;
+            for (int i = 0; i < numFlights; i++) {
+                vatsimIds[i] = (int) readVarLong(dis);
+                byte[] callsign = new byte[(int) readVarLong(dis)];
+                dis.readFully(callsign);
+                callsigns[i] = new String(callsign, StandardCharsets.UTF_8);
+                firstPoints[i] = totalPoints;
+                pointCounts[i] = (int) readVarLong(dis);
+                totalPoints += pointCounts[i];
+            }
+            numPoints = totalPoints;
+
+            long[][] columns = new long[NUM_COLUMNS][];
+            for (int i = 0; i < NUM_COLUMNS; i++) {
+                byte[] encoded = new byte[(int) readVarLong(dis)];
+                dis.readFully(encoded);
+                columns[i] = (i == COLUMN_FLAGS) ? decodeBytes(encoded, numPoints) : decodeDeltas(encoded, numPoints);
+            }
+
+            times = columns[COLUMN_TIME];
+            latitudes = new double[numPoints];
+            longitudes = new double[numPoints];
+            altitudes = new int[numPoints];
+            qnhHectopascals = new double[numPoints];
+            for (int i = 0; i < numPoints; i++) {
+                long flags = columns[COLUMN_FLAGS][i];
+                boolean hasCoordinates = (flags & FLAG_HAS_COORDINATES) != 0;
+                latitudes[i] = hasCoordinates ? columns[COLUMN_LATITUDE][i] / COORDINATE_SCALE : Double.NaN;
+                longitudes[i] = hasCoordinates ? columns[COLUMN_LONGITUDE][i] / COORDINATE_SCALE : Double.NaN;
+                altitudes[i] = hasCoordinates ? (int) columns[COLUMN_ALTITUDE][i] : 0;
+                qnhHectopascals[i] = ((flags & FLAG_HAS_QNH) != 0) ? columns[COLUMN_QNH][i] / QNH_SCALE : Double.NaN;
+            }
+
+            flightLevels = toIntArray(columns[COLUMN_FLIGHT_LEVEL]);
+            headings = toIntArray(columns[COLUMN_HEADING]);
+            groundSpeeds = toIntArray(columns[COLUMN_GROUND_SPEED]);
+            transponderCodes = toIntArray(columns[COLUMN_TRANSPONDER]);
+        }
+
+        public int getNumberOfFlights() {
+            return numFlights;
+        }
+
+        public int getVatsimId(int flight) {
+            return vatsimIds[flight];
+        }
+
+        public String getCallsign(int flight) {
+            return callsigns[flight];
+        }
+
+        public int getFirstPoint(int flight) {
+            return firstPoints[flight];
+        }
+
+        public int getNumberOfPoints(int flight) {
+            return pointCounts[flight];
+        }
+
+        public int getNumberOfPoints() {
+            return numPoints;
+        }
+
+        public long[] getTimes() {
+            return times;
+        }
+
+        // NaN if coordinates were not available
+        public double[] getLatitudes() {
+            return latitudes;
+        }
+
+        // NaN if coordinates were not available
+        public double[] getLongitudes() {
+            return longitudes;
+        }
+
+        public int[] getAltitudesFeet() {
+            return altitudes;
+        }
+
+        public int[] getFlightLevels() {
+            return flightLevels;
+        }
+
+        public int[] getHeadings() {
+            return headings;
+        }
+
+        public int[] getGroundSpeeds() {
+            return groundSpeeds;
+        }
+
+        // NaN if QNH was not available
+        public double[] getQnhHectopascals() {
+            return qnhHectopascals;
+        }
+
+        public int[] getTransponderCodes() {
+            return transponderCodes;
+        }
+    }
+
+    public TrackColumnFile(File file) throws IOException {
+        dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 1024));
+
+        if (dis.readInt() != MAGIC) {
+            dis.close();
+            throw new IOException(file + " is not a track column file");
+        }
+
+        int version = dis.readInt();
+        if (version != VERSION) {
+            dis.close();
+            throw new IOException(file + " has unsupported track column version " + version);
+        }
+    }
+
+    /**
+     * Reads the next block of flights.
+     *
+     * @return next block; null at end of file
+     * @throws IOException if the file cannot be read or is truncated
+     */
+    public Block nextBlock() throws IOException {
+        if (isEndOfFile) {
+            return null;
+        }
+
+        int numFlights = (int) readVarLong(dis);
+        if (numFlights == 0) {
+            isEndOfFile = true;
+            return null;
+        }
+
+        return new Block(dis, numFlights);
+    }
+
+    @Override
+    public void close() throws IOException {
+        dis.close();
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(OutputStream os, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            os.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        os.write((int) value);
+    }
+
+    private static long readVarLong(InputStream is) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = is.read();
+            if (b < 0) {
+                throw new EOFException("track column file is truncated");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed variable-length value");
+    }
+
+    private static long[] decodeBytes(byte[] encoded, int numValues) throws IOException {
+        if (encoded.length != numValues) {
+            throw new IOException("column holds " + encoded.length + " values, expected " + numValues);
+        }
+
+        long[] values = new long[numValues];
+        for (int i = 0; i < numValues; i++) {
+            values[i] = encoded[i] & 0xFF;
+        }
+        return values;
+    }
+
+    private static long[] decodeDeltas(byte[] encoded, int numValues) throws IOException {
+        long[] values = new long[numValues];
+        long previous = 0;
+        int position = 0;
+        for (int i = 0; i < numValues; i++) {
+            long raw = 0;
+            int shift = 0;
+            int b;
+            do {
+                if ((position >= encoded.length) || (shift >= 64)) {
+                    throw new IOException("malformed column data");
+                }
+                b = encoded[position++];
+                raw |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            previous += unZigZag(raw);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static int[] toIntArray(long[] values) {
+        int[] out = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = (int) values[i];
+        }
+        return out;
+    }
+
+    // grows as needed, avoids the synchronization of ByteArrayOutputStream
+    private static class ColumnOutput extends OutputStream {
+        private byte[] buffer = new byte[4096];
+        private int size = 0;
+
+        @Override
+        public void write(int b) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (size + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + len));
+            }
+            System.arraycopy(b, off, buffer, size, len);
+            size += len;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeTo(OutputStream os) throws IOException {
+            os.write(buffer, 0, size);
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.regex.Pattern;
+
+import org.vatplanner.dataformats.vatsimpublic.entities.status.Flight;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.GeoCoordinates;
+import org.vatplanner.dataformats.vatsimpublic.entities.status.TrackPoint;
+
+/**
+ * In-memory index of track points for fast queries by time, area and callsign.
+ * <p>
+ * Track points are held in primitive arrays, partitioned by hour and grouped by
+ * cells of a one degree latitude/longitude grid within each partition. Points
+ * of each cell are sorted by time, so queries only need to look at cells
+ * overlapping the requested area and can binary search the requested time
+ * range. Results are handed on ordered by time.
+ * </p>
+ * <p>
+ * Track points without coordinates are not indexed. Coordinates are held with
+ * single precision which is accurate to about 2 m.
+ * </p>
+ */
+class TrackQueryIndex {
+
+    private static final long PARTITION_MILLIS = 60L * 60L * 1000L;
+
+    private static final int GRID_ROWS = 180;
+    private static final int GRID_COLUMNS = 360;
+
+    // sort keys within partitions: 16 bits cell, 22 bits time, 25 bits position
+    private static final int TIME_BITS = 22;
+    private static final int POSITION_BITS = 25;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    private static final int MAX_POINTS_PER_PARTITION = 1 << POSITION_BITS;
+
+    private final int[] flightVatsimIds;
+    private final String[] flightCallsigns;
+
+    private final int numPoints;
+    private final long[] times;
+    private final float[] latitudes;
+    private final float[] longitudes;
+    private final int[] altitudes;
+    private final int[] flights;
+
+    // partition i holds cells partitionStarts[i] until partitionStarts[i+1],
+    // cell j holds points cellStarts[j] until cellStarts[j+1]
+    private final long firstPartition;
+    private final int[] partitionStarts;
+    private final int[] cellIds;
+    private final int[] cellStarts;
+
+    @FunctionalInterface
+    interface PointConsumer {
+        void accept(int point);
+    }
+
+    /**
+     * Geographic area to query; wraps around the antimeridian if the minimum
+     * longitude is greater than the maximum longitude.
+     */
+    static class BoundingBox {
+        private final double minLatitude;
+        private final double minLongitude;
+        private final double maxLatitude;
+        private final double maxLongitude;
+
+        BoundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            if (minLatitude > maxLatitude) {
+                throw new IllegalArgumentException(
+                    "minimum latitude " + minLatitude + " is greater than maximum latitude " + maxLatitude //
+                );
+            }
+
+            this.minLatitude = minLatitude;
+            this.minLongitude = minLongitude;
+            this.maxLatitude = maxLatitude;
+            this.maxLongitude = maxLongitude;
+        }
+
+        /**
+         * Parses a bounding box given as
+         * <code>MINLAT,MINLON,MAXLAT,MAXLON</code> in degrees.
+         *
+         * @param s string to parse
+         * @return parsed bounding box
+         */
+        static BoundingBox parse(String s) {
+            String[] fields = s.split(",");
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("bounding box must be given as MINLAT,MINLON,MAXLAT,MAXLON: " + s);
+            }
+
+            return new BoundingBox(
+                Double.parseDouble(fields[0].trim()),
+                Double.parseDouble(fields[1].trim()),
+                Double.parseDouble(fields[2].trim()),
+                Double.parseDouble(fields[3].trim()) //
+            );
+        }
+
+        private boolean isWrapping() {
+            return minLongitude > maxLongitude;
+        }
+
+        boolean contains(double latitude, double longitude) {
+            if ((latitude < minLatitude) || (latitude > maxLatitude)) {
+                return false;
+            }
+
+            return isWrapping()
+                ? (longitude >= minLongitude) || (longitude <= maxLongitude)
+                : (longitude >= minLongitude) && (longitude <= maxLongitude);
+        }
+
+        @Override
+        public String toString() {
+            return minLatitude + "," + minLongitude + "," + maxLatitude + "," + maxLongitude;
+        }
+    }
+
+    /**
+     * Collects track points before building the index.
+     */
+    static class Builder {
+        private int numFlights = 0;
+        private int[] vatsimIds = new int[1024];
+        private String[] callsigns = new String[1024];
+
+        private int numPoints = 0;
+        private long[] times = new long[64 * 1024];
+        private float[] latitudes = new float[64 * 1024];
+        private float[] longitudes = new float[64 * 1024];
+        private int[] altitudes = new int[64 * 1024];
+        private int[] flights = new int[64 * 1024];
+
+        void add(Flight flight) {
+            SortedSet<TrackPoint> track = flight.getTrack();
+            if (track.isEmpty()) {
+                return;
+            }
+
+            int flightIndex = addFlight(flight.getMember().getVatsimId(), flight.getCallsign());
+            for (TrackPoint point : track) {
+                GeoCoordinates coords = point.getGeoCoordinates();
+                if (coords != null) {
+                    addPoint(
+                        flightIndex,
+                        point.getReport().getRecordTime().toEpochMilli(),
+                        coords.getLatitude(),
+                        coords.getLongitude(),
+                        coords.getAltitudeFeet() //
+                    );
+                }
+            }
+        }
+
+        void add(TrackColumnFile.Block block) {
+            long[] blockTimes = block.getTimes();
+            double[] blockLatitudes = block.getLatitudes();
+            double[] blockLongitudes = block.getLongitudes();
+            int[] blockAltitudes = block.getAltitudesFeet();
+
+            for (int flight = 0; flight < block.getNumberOfFlights(); flight++) {
+                int flightIndex = addFlight(block.getVatsimId(flight), block.getCallsign(flight));
+
+                int end = block.getFirstPoint(flight) + block.getNumberOfPoints(flight);
+                for (int i = block.getFirstPoint(flight); i < end; i++) {
+                    if (!Double.isNaN(blockLatitudes[i])) {
+                        addPoint(flightIndex, blockTimes[i], blockLatitudes[i], blockLongitudes[i], blockAltitudes[i]);
+                    }
+                }
+            }
+        }
+
+        private int addFlight(int vatsimId, String callsign) {
+            if (numFlights == vatsimIds.length) {
+                vatsimIds = Arrays.copyOf(vatsimIds, numFlights * 2);
+                callsigns = Arrays.copyOf(callsigns, numFlights * 2);
+            }
+
+            vatsimIds[numFlights] = vatsimId;
+            callsigns[numFlights] = callsign;
+            return numFlights++;
+        }
+
+        private void addPoint(int flight, long time, double latitude, double longitude, int altitude) {
+            if (numPoints == times.length) {
+                int capacity = numPoints * 2;
+                times = Arrays.copyOf(times, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                altitudes = Arrays.copyOf(altitudes, capacity);
+                flights = Arrays.copyOf(flights, capacity);
+            }
+
+            times[numPoints] = time;
+            latitudes[numPoints] = (float) latitude;
+            longitudes[numPoints] = (float) longitude;
+            altitudes[numPoints] = altitude;
+            flights[numPoints] = flight;
+            numPoints++;
+        }
+
+        TrackQueryIndex build() {
+            return new TrackQueryIndex(this);
+        }
+    }
+
+    private TrackQueryIndex(Builder builder) {
+        flightVatsimIds = Arrays.copyOf(builder.vatsimIds, builder.numFlights);
+        flightCallsigns = Arrays.copyOf(builder.callsigns, builder.numFlights);
+        numPoints = builder.numPoints;
+
+        if (numPoints == 0) {
+            times = new long[0];
+            latitudes = new float[0];
+            longitudes = new float[0];
+            altitudes = new int[0];
+            flights = new int[0];
+            firstPartition = 0;
+            partitionStarts = new int[] { 0 };
+            cellIds = new int[0];
+            cellStarts = new int[] { 0 };
+            return;
+        }
+
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        for (int i = 0; i < numPoints; i++) {
+            minTime = Math.min(minTime, builder.times[i]);
+            maxTime = Math.max(maxTime, builder.times[i]);
+        }
+        firstPartition = Math.floorDiv(minTime, PARTITION_MILLIS);
+        int numPartitions = (int) (Math.floorDiv(maxTime, PARTITION_MILLIS) - firstPartition + 1);
+
+        // distribute points to partitions first
+        int[] partitions = new int[numPoints];
+        partitionStarts = new int[numPartitions + 1];
+        for (int i = 0; i < numPoints; i++) {
+            partitions[i] = (int) (Math.floorDiv(builder.times[i], PARTITION_MILLIS) - firstPartition);
+            partitionStarts[partitions[i] + 1]++;
+        }
+        for (int partition = 0; partition < numPartitions; partition++) {
+            partitionStarts[partition + 1] += partitionStarts[partition];
+        }
+
+        int[] unsorted = new int[numPoints];
+        int[] positions = Arrays.copyOf(partitionStarts, numPartitions);
+        for (int i = 0; i < numPoints; i++) {
+            unsorted[positions[partitions[i]]++] = i;
+        }
+
+        // sort each partition by cell, then time; keys hold cell, time offset
+        // within partition and position within partition
+        int[] order = new int[numPoints];
+        long[] keys = new long[numPoints];
+        int[] cellIdsBuffer = new int[numPoints];
+        int[] cellStartsBuffer = new int[numPoints + 1];
+        int numCells = 0;
+
+        for (int partition = 0; partition < numPartitions; partition++) {
+            int start = partitionStarts[partition];
+            int end = partitionStarts[partition + 1];
+            if (end - start > MAX_POINTS_PER_PARTITION) {
+                throw new IllegalArgumentException(
+                    "too many track points within one hour: " + (end - start) + " > " + MAX_POINTS_PER_PARTITION //
+                );
+            }
+
+            long partitionStart = (firstPartition + partition) * PARTITION_MILLIS;
+            for (int i = start; i < end; i++) {
+                int point = unsorted[i];
+                long cell = cellOf(builder.latitudes[point], builder.longitudes[point]);
+                long offset = builder.times[point] - partitionStart;
+                keys[i] = (cell << (TIME_BITS + POSITION_BITS)) | (offset << POSITION_BITS) | (i - start);
+            }
+            Arrays.sort(keys, start, end);
+
+            // partition starts are converted to cell indices in place
+            partitionStarts[partition] = numCells;
+
+            int previousCell = -1;
+            for (int i = start; i < end; i++) {
+                order[i] = unsorted[start + (int) (keys[i] & POSITION_MASK)];
+
+                int cell = (int) (keys[i] >>> (TIME_BITS + POSITION_BITS));
+                if (cell != previousCell) {
+                    cellIdsBuffer[numCells] = cell;
+                    cellStartsBuffer[numCells] = i;
+                    numCells++;
+                    previousCell = cell;
+                }
+            }
+        }
+        partitionStarts[numPartitions] = numCells;
+        cellStartsBuffer[numCells] = numPoints;
+
+        cellIds = Arrays.copyOf(cellIdsBuffer, numCells);
+        cellStarts = Arrays.copyOf(cellStartsBuffer, numCells + 1);
+
+        // store columns in final order so queries scan sequentially
+        times = new long[numPoints];
+        latitudes = new float[numPoints];
+        longitudes = new float[numPoints];
+        altitudes = new int[numPoints];
+        flights = new int[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            int point = order[i];
+            times[i] = builder.times[point];
+            latitudes[i] = builder.latitudes[point];
+            longitudes[i] = builder.longitudes[point];
+            altitudes[i] = builder.altitudes[point];
+            flights[i] = builder.flights[point];
+        }
+    }
+
+    private static int rowOf(double latitude) {
+        return Math.max(0, Math.min(GRID_ROWS - 1, (int) Math.floor(latitude + 90.0)));
+    }
+
+    private static int columnOf(double longitude) {
+        return Math.max(0, Math.min(GRID_COLUMNS - 1, (int) Math.floor(longitude + 180.0)));
+    }
+
+    private static int cellOf(double latitude, double longitude) {
+        return rowOf(latitude) * GRID_COLUMNS + columnOf(longitude);
+    }
+
+    int getNumberOfPoints() {
+        return numPoints;
+    }
+
+    int getNumberOfFlights() {
+        return flightVatsimIds.length;
+    }
+
+    long getTime(int point) {
+        return times[point];
+    }
+
+    float getLatitude(int point) {
+        return latitudes[point];
+    }
+
+    float getLongitude(int point) {
+        return longitudes[point];
+    }
+
+    int getAltitudeFeet(int point) {
+        return altitudes[point];
+    }
+
+    int getVatsimId(int point) {
+        return flightVatsimIds[flights[point]];
+    }
+
+    String getCallsign(int point) {
+        return flightCallsigns[flights[point]];
+    }
+
+    /**
+     * Hands all track points matching the given criteria to the consumer, ordered
+     * by time.
+     *
+     * @param fromMillis earliest time (inclusive) in epoch milliseconds
+     * @param toMillis latest time (exclusive) in epoch milliseconds
+     * @param box area to query; null for all
+     * @param callsignPattern pattern callsigns need to match completely; null
+     *        for all
+     * @param consumer receives the index of each matching point
+     */
+    void query(long fromMillis, long toMillis, BoundingBox box, Pattern callsignPattern, PointConsumer consumer) {
+        if ((numPoints == 0) || (fromMillis >= toMillis)) {
+            return;
+        }
+
+        boolean[] matchingFlights = null;
+        if (callsignPattern != null) {
+            matchingFlights = new boolean[flightCallsigns.length];
+            for (int i = 0; i < flightCallsigns.length; i++) {
+                matchingFlights[i] = callsignPattern.matcher(flightCallsigns[i]).matches();
+            }
+        }
+
+        int[][] cellRanges = getCellRanges(box);
+
+        long firstQueried = Math.max(0, Math.floorDiv(fromMillis, PARTITION_MILLIS) - firstPartition);
+        long lastQueried = Math.min(partitionStarts.length - 2, Math.floorDiv(toMillis - 1, PARTITION_MILLIS) - firstPartition);
+
+        int[] matches = new int[1024];
+        long[] sortKeys = new long[1024];
+        for (int partition = (int) firstQueried; partition <= lastQueried; partition++) {
+            long partitionStart = (firstPartition + partition) * PARTITION_MILLIS;
+            int numMatches = 0;
+
+            for (int[] cellRange : cellRanges) {
+                int cell = lowerBound(cellIds, partitionStarts[partition], partitionStarts[partition + 1], cellRange[0]);
+
+                for (; (cell < partitionStarts[partition + 1]) && (cellIds[cell] <= cellRange[1]); cell++) {
+                    int point = lowerBound(times, cellStarts[cell], cellStarts[cell + 1], fromMillis);
+                    int end = lowerBound(times, point, cellStarts[cell + 1], toMillis);
+
+                    for (; point < end; point++) {
+                        if ((matchingFlights != null) && !matchingFlights[flights[point]]) {
+                            continue;
+                        }
+
+                        if ((box != null) && !box.contains(latitudes[point], longitudes[point])) {
+                            continue;
+                        }
+
+                        if (numMatches == matches.length) {
+                            matches = Arrays.copyOf(matches, numMatches * 2);
+                        }
+                        matches[numMatches++] = point;
+                    }
+                }
+            }
+
+            // cells were visited by location, restore time order
+            if (sortKeys.length < numMatches) {
+                sortKeys = new long[matches.length];
+            }
+            for (int i = 0; i < numMatches; i++) {
+                sortKeys[i] = (times[matches[i]] - partitionStart) << 32 | matches[i];
+            }
+            Arrays.sort(sortKeys, 0, numMatches);
+
+            for (int i = 0; i < numMatches; i++) {
+                consumer.accept((int) sortKeys[i]);
+            }
+        }
+    }
+
+    // inclusive ranges of cell IDs covering the bounding box
+    private static int[][] getCellRanges(BoundingBox box) {
+        if (box == null) {
+            return new int[][] { { 0, GRID_ROWS * GRID_COLUMNS - 1 } };
+        }
+
+        int minRow = rowOf(box.minLatitude);
+        int maxRow = rowOf(box.maxLatitude);
+        int minColumn = columnOf(box.minLongitude);
+        int maxColumn = columnOf(box.maxLongitude);
+
+        int rangesPerRow = box.isWrapping() ? 2 : 1;
+        int[][] ranges = new int[(maxRow - minRow + 1) * rangesPerRow][];
+        int i = 0;
+        for (int row = minRow; row <= maxRow; row++) {
+            int rowStart = row * GRID_COLUMNS;
+            if (box.isWrapping()) {
+                ranges[i++] = new int[] { rowStart + minColumn, rowStart + GRID_COLUMNS - 1 };
+                ranges[i++] = new int[] { rowStart, rowStart + maxColumn };
+            } else {
+                ranges[i++] = new int[] { rowStart + minColumn, rowStart + maxColumn };
+            }
+        }
+        return ranges;
+    }
+
+    // first index within [from, to) holding a value not less than the given one
+    private static int lowerBound(int[] values, int from, int to, int value) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] values, int from, int to, long value) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,117 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.repack;
+
+import java.io.File;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.dataformats.vatsimpublic.examples.common.ArchiveRepacker;
+
+public class Repack {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Repack.class);
+
+    private static final String OPTION_NAME_INPUT_FILE = "i";
+    private static final String OPTION_NAME_OUTPUT_FILE = "o";
+    private static final String OPTION_NAME_OUTPUT_OVERWRITE = "oo";
+    private static final String OPTION_NAME_BLOCK_SIZE = "block-size";
+    private static final String OPTION_NAME_PRESET = "preset";
+    private static final String OPTION_NAME_HELP = "h";
+
+    private static final int DEFAULT_BLOCK_SIZE_MEGABYTES = 4;
+    private static final int DEFAULT_PRESET = 6;
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        addOptions(options);
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine parameters = parser.parse(options, args);
+
+        boolean hasFiles = parameters.hasOption(OPTION_NAME_INPUT_FILE) && parameters.hasOption(OPTION_NAME_OUTPUT_FILE);
+        if (!hasFiles || parameters.hasOption(OPTION_NAME_HELP)) {
+            new HelpFormatter().printHelp("repack|repack.sh", options);
+            System.exit(1);
+        }
+
+        File input = new File(parameters.getOptionValue(OPTION_NAME_INPUT_FILE));
+        File output = new File(parameters.getOptionValue(OPTION_NAME_OUTPUT_FILE));
+
+        if (input.getCanonicalFile().equals(output.getCanonicalFile())) {
+            System.err.println("Input and output must be different files");
+            System.exit(1);
+        }
+
+        if (output.exists()) {
+            if (!parameters.hasOption(OPTION_NAME_OUTPUT_OVERWRITE)) {
+                System.err.println(
+                    "Requested output file " + output + " already exists; use --overwrite to replace it" //
+                );
+                System.exit(1);
+            }
+            LOGGER.info("Output file " + output + " already exists and will be overwritten");
+        }
+
+        long blockSizeBytes = 1024L * 1024L * Long.parseLong(
+            parameters.getOptionValue(OPTION_NAME_BLOCK_SIZE, Integer.toString(DEFAULT_BLOCK_SIZE_MEGABYTES)) //
+        );
+        int preset = Integer.parseInt(
+            parameters.getOptionValue(OPTION_NAME_PRESET, Integer.toString(DEFAULT_PRESET)) //
+        );
+
+        new ArchiveRepacker(blockSizeBytes, preset).repack(input, output);
+    }
+
+    private static void addOptions(Options options) {
+        options.addOption(Option
+            .builder(OPTION_NAME_INPUT_FILE)
+            .longOpt("input")
+            .hasArg()
+            .argName("FILE")
+            .desc("archive to repack, may be compressed in any supported format")
+            .build());
+
+        options.addOption(Option
+            .builder(OPTION_NAME_OUTPUT_FILE)
+            .longOpt("output")
+            .hasArg()
+            .argName("FILE")
+            .desc("writes the repacked .tar.xz archive and its index to given FILE")
+            .build());
+
+        options.addOption(Option
+            .builder(OPTION_NAME_OUTPUT_OVERWRITE)
+            .longOpt("overwrite")
+            .desc("overwrites the specified output file if it already exists")
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_BLOCK_SIZE)
+            .hasArg()
+            .argName("MB")
+            .desc(
+                "minimum uncompressed size of each XZ block; smaller blocks allow faster seeking but compress less (default: " + DEFAULT_BLOCK_SIZE_MEGABYTES + ")" //
+            )
+            .build());
+
+        options.addOption(Option
+            .builder()
+            .longOpt(OPTION_NAME_PRESET)
+            .hasArg()
+            .argName("LEVEL")
+            .desc("XZ compression preset 0-9 (default: " + DEFAULT_PRESET + ")")
+            .build());
+
+        options.addOption(Option
+            .builder(OPTION_NAME_HELP)
+            .longOpt("help")
+            .desc("displays this help message")
+            .build());
+    }
+}
@@ -0,0 +1,198 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+class ArchiveIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSaveLoad_entries_restoresAllFieldsInOrder() throws IOException {
+        File archive = createArchive("archive.tar");
+        ArchiveIndex index = new ArchiveIndex(archive);
+        index.add("vatsim-data-1.txt", Instant.parse("2020-09-13T12:00:00.123Z"), 512, 1000);
+        index.add("dir with space/vatsim-data-2.txt", null, 2048, 0);
+        index.add("name\twith tab ä.json", Instant.parse("2020-09-13T12:15:00Z"), -5, 42);
+        index.save();
+
+        ArchiveIndex loaded = ArchiveIndex.load(archive);
+
+        assertNotNull(loaded);
+        assertEquals(
+            Arrays.asList("vatsim-data-1.txt", "dir with space/vatsim-data-2.txt", "name\twith tab ä.json"),
+            new ArrayList<>(loaded.getEntryNames()) //
+        );
+
+        assertEquals(Instant.parse("2020-09-13T12:00:00.123Z"), loaded.getTimestamp("vatsim-data-1.txt"));
+        assertEquals(512, loaded.getOffset("vatsim-data-1.txt"));
+        assertEquals(1000, loaded.getSize("vatsim-data-1.txt"));
+
+        assertNull(loaded.getTimestamp("dir with space/vatsim-data-2.txt"));
+        assertEquals(2048, loaded.getOffset("dir with space/vatsim-data-2.txt"));
+        assertEquals(0, loaded.getSize("dir with space/vatsim-data-2.txt"));
+
+        assertEquals(Instant.parse("2020-09-13T12:15:00Z"), loaded.getTimestamp("name\twith tab ä.json"));
+        assertEquals(-1, loaded.getOffset("name\twith tab ä.json"));
+        assertEquals(42, loaded.getSize("name\twith tab ä.json"));
+
+        assertFalse(loaded.contains("unknown"));
+        assertEquals(-1, loaded.getOffset("unknown"));
+        assertFalse(loaded.hasOffsets());
+    }
+
+    @Test
+    void testLoad_archiveModified_returnsNull() throws IOException {
+        File archive = createArchive("modified.tar");
+        ArchiveIndex index = new ArchiveIndex(archive);
+        index.add("a.txt", null, 0, 1);
+        index.save();
+
+        try (FileOutputStream fos = new FileOutputStream(archive, true)) {
+            fos.write(1);
+        }
+
+        assertNull(ArchiveIndex.load(archive));
+    }
+
+    @Test
+    void testLoad_noIndex_returnsNull() throws IOException {
+        File archive = createArchive("unindexed.tar");
+
+        assertNull(ArchiveIndex.load(archive));
+    }
+
+    @Test
+    void testLoad_corruptedIndex_returnsNull() throws IOException {
+        File archive = createArchive("corrupted.tar");
+        Files.write(
+            new File(archive.getPath() + ArchiveIndex.FILE_SUFFIX).toPath(),
+            "V\tnot a number\n".getBytes(StandardCharsets.UTF_8) //
+        );
+
+        assertNull(ArchiveIndex.load(archive));
+    }
+
+    @Test
+    void testMayContain_timestamps_checksRangeOfAllEntries() throws IOException {
+        ArchiveIndex index = new ArchiveIndex(createArchive("range.tar"));
+        index.add("a", Instant.parse("2020-09-13T10:00:00Z"), 0, 1);
+        index.add("b", Instant.parse("2020-09-13T14:00:00Z"), 1, 1);
+        index.add("unknown.bin", null, 2, 1);
+
+        assertTrue(index.mayContain(window("2020-09-13T12:00:00Z", "2020-09-13T13:00:00Z"), name -> false));
+        assertTrue(index.mayContain(window("2020-09-13T14:00:00Z", null), name -> false));
+        assertFalse(index.mayContain(window("2020-09-13T14:00:01Z", null), name -> false));
+        assertFalse(index.mayContain(window(null, "2020-09-13T10:00:00Z"), name -> false));
+
+        // entries of unknown timestamp are relevant if they may be data files
+        assertTrue(index.mayContain(window("2020-09-14T00:00:00Z", null), name -> name.endsWith(".bin")));
+    }
+
+    @Test
+    void testRepack_multipleBlocks_indexedOffsetsPointToEntryContent() throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("; test data file %d%nUPDATE = 2020091310%02d00%n", i, i));
+            for (int j = 0; j < (100 * i); j++) {
+                sb.append("CLIENT").append(i).append(':').append(j).append('\n');
+            }
+            contents.put(String.format("2020-09-13/vatsim-data-%02d.txt", i), sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        File input = tempDir.resolve("input.tar").toFile();
+        try (TarArchiveOutputStream taos = new TarArchiveOutputStream(new FileOutputStream(input))) {
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
+                tarEntry.setSize(entry.getValue().length);
+                taos.putArchiveEntry(tarEntry);
+                taos.write(entry.getValue());
+                taos.closeArchiveEntry();
+            }
+        }
+
+        File output = tempDir.resolve("output.tar.xz").toFile();
+        new ArchiveRepacker(8 * 1024, 1).repack(input, output);
+
+        ArchiveIndex index = ArchiveIndex.load(output);
+        assertNotNull(index);
+        assertEquals(new ArrayList<>(contents.keySet()), new ArrayList<>(index.getEntryNames()));
+        assertTrue(index.hasOffsets());
+
+        try (SeekableXZInputStream sxis = new SeekableXZInputStream(new SeekableFileInputStream(output))) {
+            assertTrue(sxis.getBlockCount() > 1);
+
+            // read in reverse order to actually seek
+            List<String> names = new ArrayList<>(contents.keySet());
+            for (int i = names.size() - 1; i >= 0; i--) {
+                String name = names.get(i);
+                byte[] expected = contents.get(name);
+                assertEquals(expectedTimestamp(i), index.getTimestamp(name));
+                assertEquals(expected.length, index.getSize(name));
+
+                byte[] actual = new byte[(int) index.getSize(name)];
+                sxis.seek(index.getOffset(name));
+                readFully(sxis, actual);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    // matches the UPDATE line of test data file i
+    private static Instant expectedTimestamp(int i) {
+        return Instant.parse("2020-09-13T10:00:00Z").plusSeconds(60L * i);
+    }
+
+    private static void readFully(SeekableXZInputStream is, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = is.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+            offset += read;
+        }
+    }
+
+    private File createArchive(String name) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(10240);
+        }
+        return file;
+    }
+
+    private static TimeWindow window(String start, String end) {
+        return new TimeWindow(
+            (start != null) ? Instant.parse(start) : null,
+            (end != null) ? Instant.parse(end) : null //
+        );
+    }
+}
@@ -0,0 +1,116 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ChronologicalSorterTest {
+
+    private static final long UNLIMITED_MEMORY = Long.MAX_VALUE;
+
+    // spills after every data file
+    private static final long NO_MEMORY = 0;
+
+    @Test
+    void testDrain_inMemory_ordersByTimestamp() throws IOException {
+        List<String> dataFiles = Arrays.asList(
+            legacy("20200913120000", "b"),
+            json("2020-09-13T11:00:00.123Z", "a"),
+            legacy("20200913130000", "c") //
+        );
+
+        List<String> drained = sort(UNLIMITED_MEMORY, dataFiles);
+
+        assertEquals(Arrays.asList(dataFiles.get(1), dataFiles.get(0), dataFiles.get(2)), drained);
+    }
+
+    @Test
+    void testDrain_unknownAndEqualTimestamps_unknownFirstAndEqualInAddedOrder() throws IOException {
+        for (long maxMemoryBytes : new long[] { UNLIMITED_MEMORY, NO_MEMORY }) {
+            List<String> dataFiles = Arrays.asList(
+                legacy("20200913120000", "second at 12:00"),
+                "no timestamp 1\n",
+                legacy("20200913120000", "third at 12:00"),
+                legacy("20200913110000", "first"),
+                "no timestamp 2\n",
+                json("2020-09-13T12:00:00Z", "fourth at 12:00") //
+            );
+
+            List<String> drained = sort(maxMemoryBytes, dataFiles);
+
+            assertEquals(
+                Arrays.asList(
+                    dataFiles.get(1), dataFiles.get(4), dataFiles.get(3),
+                    dataFiles.get(0), dataFiles.get(2), dataFiles.get(5) //
+                ),
+                drained //
+            );
+        }
+    }
+
+    @Test
+    void testDrain_spilledRuns_mergesInOrderWithIdenticalContent() throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // ISO-8859-1 characters need to survive spilling unchanged
+            expected.add(legacy(String.format("2020091%d%02d%02d00", 3 + (i / 60 / 24), (i / 60) % 24, i % 60), "data file " + i + " äßÿ"));
+        }
+        List<String> shuffled = new ArrayList<>(expected);
+        Collections.shuffle(shuffled, new Random(4711));
+
+        // about 10 data files per run
+        long maxMemoryBytes = 10 * (expected.get(0).length() + 64);
+
+        assertEquals(expected, sort(maxMemoryBytes, shuffled));
+        assertEquals(expected, sort(NO_MEMORY, shuffled));
+    }
+
+    @Test
+    void testDrain_nothingAdded_handsNothingOn() throws IOException {
+        assertEquals(Collections.emptyList(), sort(NO_MEMORY, Collections.emptyList()));
+    }
+
+    private static List<String> sort(long maxMemoryBytes, List<String> dataFiles) throws IOException {
+        List<String> drained = new ArrayList<>();
+        try (ChronologicalSorter sorter = new ChronologicalSorter(maxMemoryBytes)) {
+            for (String dataFile : dataFiles) {
+                sorter.add(new BufferedReader(new StringReader(dataFile)));
+            }
+
+            sorter.drain(br -> drained.add(readAll(br)));
+        }
+        return drained;
+    }
+
+    private static String readAll(BufferedReader br) {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[1024];
+        try {
+            int read;
+            while ((read = br.read(buffer)) >= 0) {
+                sb.append(buffer, 0, read);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return sb.toString();
+    }
+
+    private static String legacy(String update, String content) {
+        return "; " + content + "\n!GENERAL:\nVERSION = 8\nUPDATE = " + update + "\n";
+    }
+
+    private static String json(String updateTimestamp, String content) {
+        return "{\"general\": {\"version\": 3, \"update_timestamp\": \"" + updateTimestamp + "\", \"comment\": \"" + content + "\"}}";
+    }
+}
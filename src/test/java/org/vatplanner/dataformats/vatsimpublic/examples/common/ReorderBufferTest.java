@@ -0,0 +1,141 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ReorderBufferTest {
+
+    private static final int UNKNOWN_SIZE = -1;
+
+    private final List<String> emittedNames = new ArrayList<>();
+    private final List<String> emittedContents = new ArrayList<>();
+
+    @Test
+    void testAdd_outOfOrderWithinWindow_emitsSorted() throws IOException {
+        for (long maxMemoryBytes : new long[] { ReorderBuffer.UNLIMITED_MEMORY, 0 }) {
+            emittedNames.clear();
+            emittedContents.clear();
+
+            try (ReorderBuffer buffer = createBuffer(3, maxMemoryBytes)) {
+                add(buffer, "b", false);
+                add(buffer, "A", false);
+                add(buffer, "d", false);
+                add(buffer, "c", true);
+                add(buffer, "e", false);
+                buffer.flush();
+            }
+
+            assertEquals(Arrays.asList("A", "b", "c", "d", "e"), emittedNames);
+            assertEquals(Arrays.asList(contentOf("A"), contentOf("b"), contentOf("c"), contentOf("d"), contentOf("e")), emittedContents);
+        }
+    }
+
+    @Test
+    void testAdd_unknownSizeBehindWindow_passesThroughCompletely() throws IOException {
+        try (ReorderBuffer buffer = createBuffer(1, ReorderBuffer.UNLIMITED_MEMORY)) {
+            add(buffer, "b", false);
+            add(buffer, "c", false);
+            add(buffer, "a", true);
+            add(buffer, "d", false);
+            buffer.flush();
+        }
+
+        assertEquals(Arrays.asList("b", "a", "c", "d"), emittedNames);
+        assertEquals(contentOf("a"), emittedContents.get(1));
+    }
+
+    @Test
+    void testAdd_streamingBeyondMemory_keepsSpillFilesBounded() throws IOException {
+        int window = 4;
+        int entrySize = 10 * 1024;
+        long maxMemoryBytes = 16 * 1024;
+        long spillSegmentBytes = 32 * 1024;
+        int numEntries = 300;
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < numEntries; i++) {
+            names.add(String.format("entry-%04d", i));
+        }
+
+        // swap neighbours so entries actually need to be reordered
+        List<String> added = new ArrayList<>(names);
+        for (int i = 0; i + 1 < added.size(); i += 2) {
+            Collections.swap(added, i, i + 1);
+        }
+
+        List<byte[]> emittedBytes = new ArrayList<>();
+        long maxSpilledBytes = 0;
+        try (ReorderBuffer buffer = new ReorderBuffer(window, maxMemoryBytes, spillSegmentBytes, new BufferPool(0), (name, is) -> {
+            emittedNames.add(name);
+            emittedBytes.add(readAll(is));
+        })) {
+            for (String name : added) {
+                buffer.add(name, entrySize, new ByteArrayInputStream(bytesOf(name, entrySize)));
+                maxSpilledBytes = Math.max(maxSpilledBytes, buffer.getSpilledBytes());
+            }
+            buffer.flush();
+
+            assertEquals(0, buffer.getSpilledBytes());
+        }
+
+        assertEquals(names, emittedNames);
+        for (int i = 0; i < numEntries; i++) {
+            assertArrayEquals(bytesOf(names.get(i), entrySize), emittedBytes.get(i));
+        }
+
+        assertTrue(maxSpilledBytes > spillSegmentBytes, "expected entries to be spilled to multiple segments");
+
+        // each held back entry keeps at most one segment alive
+        long bound = (window + 1) * (spillSegmentBytes + entrySize);
+        assertTrue(maxSpilledBytes <= bound, "spilled " + maxSpilledBytes + " bytes, expected at most " + bound);
+        assertTrue(bound < (long) numEntries * entrySize / 10);
+    }
+
+    private ReorderBuffer createBuffer(int window, long maxMemoryBytes) {
+        return new ReorderBuffer(window, maxMemoryBytes, new BufferPool(1024 * 1024), (name, is) -> {
+            emittedNames.add(name);
+            emittedContents.add(new String(readAll(is), StandardCharsets.UTF_8));
+        });
+    }
+
+    private static void add(ReorderBuffer buffer, String name, boolean isSizeUnknown) throws IOException {
+        byte[] content = contentOf(name).getBytes(StandardCharsets.UTF_8);
+        buffer.add(name, isSizeUnknown ? UNKNOWN_SIZE : content.length, new ByteArrayInputStream(content));
+    }
+
+    private static byte[] bytesOf(String name, int size) {
+        byte[] bytes = new byte[size];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            bytes[i] = nameBytes[i % nameBytes.length];
+        }
+        return bytes;
+    }
+
+    private static String contentOf(String name) {
+        return "content of " + name + "\n";
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            baos.write(buffer, 0, read);
+        }
+        return baos.toByteArray();
+    }
+}
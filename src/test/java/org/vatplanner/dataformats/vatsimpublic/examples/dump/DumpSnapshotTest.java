@@ -0,0 +1,162 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DumpSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip_manyMembers_allMembersCanBeReadByIdAndPosition() throws IOException {
+        // more members than fit into the initial index buffer of the writer
+        File file = tempDir.resolve("many.snapshot").toFile();
+        int numMembers = 3000;
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, false)) {
+            for (int i = 0; i < numMembers; i++) {
+                writer.add(idOf(i), renderedOf(i));
+            }
+            writer.finish();
+        }
+
+        try (DumpSnapshot snapshot = new DumpSnapshot(file)) {
+            assertEquals(numMembers, snapshot.getNumberOfMembers());
+            assertFalse(snapshot.isRoundingDisabled());
+
+            for (int i = 0; i < numMembers; i++) {
+                assertEquals(idOf(i), snapshot.getVatsimId(i));
+                assertArrayEquals(renderedOf(i), toArray(snapshot.getMemberAt(i)));
+                assertArrayEquals(renderedOf(i), toArray(snapshot.getMember(idOf(i))));
+            }
+        }
+    }
+
+    @Test
+    void testGetMember_unknownId_returnsNull() throws IOException {
+        File file = tempDir.resolve("unknown.snapshot").toFile();
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, false)) {
+            writer.add(100, renderedOf(1));
+            writer.add(300, renderedOf(3));
+            writer.finish();
+        }
+
+        try (DumpSnapshot snapshot = new DumpSnapshot(file)) {
+            assertNull(snapshot.getMember(99));
+            assertNull(snapshot.getMember(200));
+            assertNull(snapshot.getMember(301));
+        }
+    }
+
+    @Test
+    void testRoundTrip_membersLargerThanInitialBuffer_areReadCompletely() throws IOException {
+        File file = tempDir.resolve("large.snapshot").toFile();
+        byte[] small = renderedOf(1);
+        byte[] large = new byte[1024 * 1024];
+        Arrays.fill(large, (byte) 'x');
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, true)) {
+            writer.add(1, small);
+            writer.add(2, large);
+            writer.add(3, new byte[0]);
+            writer.finish();
+        }
+
+        try (DumpSnapshot snapshot = new DumpSnapshot(file)) {
+            assertTrue(snapshot.isRoundingDisabled());
+            assertArrayEquals(large, toArray(snapshot.getMember(2)));
+            assertArrayEquals(small, toArray(snapshot.getMember(1)));
+            assertArrayEquals(new byte[0], toArray(snapshot.getMember(3)));
+        }
+    }
+
+    @Test
+    void testAdd_idNotAscending_throwsIllegalArgumentException() throws IOException {
+        File file = tempDir.resolve("unordered.snapshot").toFile();
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, false)) {
+            writer.add(5, renderedOf(5));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(5, renderedOf(5)));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(4, renderedOf(4)));
+        }
+    }
+
+    @Test
+    void testOpen_notFinished_throwsIOException() throws IOException {
+        for (int numMembers : new int[] { 0, 1, 100 }) {
+            File file = tempDir.resolve("unfinished" + numMembers + ".snapshot").toFile();
+            try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, false)) {
+                for (int i = 0; i < numMembers; i++) {
+                    writer.add(idOf(i), renderedOf(i));
+                }
+            }
+
+            assertThrows(IOException.class, () -> new DumpSnapshot(file));
+        }
+    }
+
+    @Test
+    void testOpen_truncated_throwsIOException() throws IOException {
+        File file = tempDir.resolve("truncated.snapshot").toFile();
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, false)) {
+            writer.add(1, renderedOf(1));
+            writer.add(2, renderedOf(2));
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> new DumpSnapshot(file));
+    }
+
+    @Test
+    void testAdd_finished_throwsIllegalStateException() throws IOException {
+        File file = tempDir.resolve("finished.snapshot").toFile();
+        try (DumpSnapshot.Writer writer = new DumpSnapshot.Writer(file, false)) {
+            writer.add(1, renderedOf(1));
+            writer.finish();
+
+            assertThrows(IllegalStateException.class, () -> writer.add(2, renderedOf(2)));
+            assertThrows(IllegalStateException.class, writer::finish);
+        }
+
+        try (DumpSnapshot snapshot = new DumpSnapshot(file)) {
+            assertEquals(1, snapshot.getNumberOfMembers());
+        }
+    }
+
+    @Test
+    void testOpen_noSnapshot_throwsIOException() throws IOException {
+        File file = tempDir.resolve("other.txt").toFile();
+        Files.write(file.toPath(), "this is not a snapshot file at all".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> new DumpSnapshot(file));
+    }
+
+    private static int idOf(int i) {
+        return 800000 + (i * 7);
+    }
+
+    private static byte[] renderedOf(int i) {
+        return ("member " + i + "\n  connected " + i + " times\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,104 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class DumpTest {
+
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    @Test
+    void testRenderOrdered_multipleThreads_handsOnInOriginalOrder() throws IOException {
+        List<Integer> items = createItems(500);
+        List<Integer> handedOn = new ArrayList<>();
+
+        Dump.renderOrdered(items, 8, DumpTest::renderDelayed, (item, rendered) -> {
+            assertArrayEquals(render(item), rendered);
+            handedOn.add(item);
+        });
+
+        assertEquals(items, handedOn);
+    }
+
+    @Test
+    void testRenderOrdered_multipleThreads_concatenatesToSameBytesAsSingleWriter() throws IOException {
+        List<Integer> items = createItems(500);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (DumpWriter writer = new DumpWriter(Channels.newChannel(expected), CHARSET)) {
+            for (Integer item : items) {
+                print(writer, item);
+            }
+        }
+
+        for (int numThreads : new int[] { 1, 2, 8 }) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            try (DumpWriter writer = new DumpWriter(Channels.newChannel(actual), CHARSET)) {
+                Dump.renderOrdered(items, numThreads, DumpTest::renderDelayed, (item, rendered) -> writer.write(ByteBuffer.wrap(rendered)));
+            }
+
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    void testRenderOrdered_rendererFails_throwsException() {
+        List<Integer> items = createItems(100);
+        Function<Integer, byte[]> renderer = item -> {
+            if (item == 42) {
+                throw new IllegalStateException("test");
+            }
+            return renderDelayed(item);
+        };
+
+        assertThrows(IllegalStateException.class, () -> Dump.renderOrdered(items, 4, renderer, (item, rendered) -> {
+            // ignored
+        }));
+    }
+
+    private static List<Integer> createItems(int numItems) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < numItems; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    // delays randomly so later items are likely to complete first
+    private static byte[] renderDelayed(int item) {
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(200_000));
+        return render(item);
+    }
+
+    private static byte[] render(int item) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DumpWriter writer = new DumpWriter(Channels.newChannel(buffer), CHARSET);
+        print(writer, item);
+        writer.flush();
+        return buffer.toByteArray();
+    }
+
+    private static void print(DumpWriter writer, int item) {
+        writer.append("----- Item: ").append(item).newLine();
+        writer.append("  ").appendPadded(item * 37, 6, false)
+            .append(' ').appendFixed(item / 7.0, 10, 4)
+            .append(' ').append(Instant.ofEpochSecond(1600000000L + (item * 15L), item * 1000L), false)
+            .append(" Ä€").newLine();
+    }
+}
@@ -0,0 +1,144 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+class DumpWriterTest {
+
+    private static final double[] DOUBLES = new double[] {
+        0.0, -0.0, 1.0, -1.0, 0.5, 1.5, 2.5, -2.5, 0.125, 0.00005, 0.00015,
+        29.92, 1013.25, 50.123456789, -179.9999999, 0.045, 1.005, 99999.99995,
+        1e9, -1e12, 1e300, Double.MAX_VALUE, Double.MIN_VALUE,
+        Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY //
+    };
+
+    private static final int[] INTS = new int[] {
+        0, 1, -1, 9, 10, -10, 99, 100, 12345, -12345, 1234567,
+        Integer.MAX_VALUE, Integer.MIN_VALUE //
+    };
+
+    private static final Instant[] INSTANTS = new Instant[] {
+        Instant.EPOCH,
+        Instant.ofEpochSecond(-1),
+        Instant.parse("2020-02-29T23:59:59.5Z"),
+        Instant.parse("2020-09-13T12:00:00.499999999Z"),
+        Instant.parse("2020-09-13T12:00:00.123Z"),
+        Instant.parse("2020-09-13T12:00:00.000123Z"),
+        Instant.parse("2020-09-13T12:00:00.000000001Z"),
+        Instant.parse("1900-03-01T00:00:00Z"),
+        Instant.parse("0000-01-01T00:00:00Z"),
+        Instant.parse("9999-12-31T23:59:59.999Z"),
+        Instant.MIN,
+        Instant.MAX //
+    };
+
+    @Test
+    void testAppendFixed_values_sameAsStringFormat() {
+        Random random = new Random(4711);
+        for (int precision = 0; precision <= 7; precision++) {
+            for (double value : DOUBLES) {
+                assertFixed(value, 12, precision);
+                assertFixed(value, 1, precision);
+            }
+            for (int i = 0; i < 2000; i++) {
+                assertFixed((random.nextDouble() - 0.5) * 2000.0, 10, precision);
+            }
+        }
+    }
+
+    @Test
+    void testAppendPadded_ints_sameAsStringFormat() {
+        for (int value : INTS) {
+            for (int width : new int[] { 1, 4, 12 }) {
+                assertSame(
+                    ps -> ps.print(String.format("%" + width + "d|%0" + width + "d", value, value)),
+                    out -> out.appendPadded(value, width, false).append('|').appendPadded(value, width, true) //
+                );
+            }
+            assertSame(ps -> ps.print(value), out -> out.append(value));
+        }
+    }
+
+    @Test
+    void testAppendInstant_instants_sameAsToString() {
+        for (Instant instant : INSTANTS) {
+            assertSame(ps -> ps.print(instant), out -> out.append(instant, false));
+            assertSame(ps -> ps.print(String.format("%25s", instant)), out -> out.appendPadded(instant, false, 25));
+            assertSame(ps -> ps.print(String.format("%10s", instant)), out -> out.appendPadded(instant, false, 10));
+
+            if (instant.getEpochSecond() < Instant.MAX.getEpochSecond()) {
+                Instant rounded = Instant.ofEpochSecond(instant.getEpochSecond() + ((instant.getNano() >= 500_000_000) ? 1 : 0));
+                assertSame(ps -> ps.print(rounded), out -> out.append(instant, true));
+                assertSame(ps -> ps.print(String.format("%25s", rounded)), out -> out.appendPadded(instant, true, 25));
+            }
+        }
+
+        assertSame(ps -> ps.print((Object) null), out -> out.append((Instant) null, false));
+    }
+
+    @Test
+    void testAppend_stringsBeyondBuffers_sameAsPrintStream() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            // surrogate pairs end up split at buffer boundaries
+            sb.append("aä€😀");
+        }
+        String s = sb.toString();
+
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII }) {
+            assertSame(
+                charset,
+                ps -> {
+                    ps.print(s);
+                    ps.print(s.replace('a', '_'));
+                    ps.println();
+                    ps.print("null");
+                },
+                out -> out.append(s).appendReplacing(s, 'a', "_").newLine().append((String) null) //
+            );
+        }
+    }
+
+    @Test
+    void testClose_incompleteSurrogatePair_sameAsPrintStream() {
+        assertSame(ps -> ps.print("x\ud83d"), out -> out.append("x\ud83d"));
+    }
+
+    private static void assertFixed(double value, int width, int precision) {
+        String format = "%" + width + "." + precision + "f";
+        assertSame(ps -> ps.print(String.format(format, value)), out -> out.appendFixed(value, width, precision));
+    }
+
+    private static void assertSame(Consumer<PrintStream> expected, Consumer<DumpWriter> actual) {
+        assertSame(StandardCharsets.UTF_8, expected, actual);
+    }
+
+    private static void assertSame(Charset charset, Consumer<PrintStream> expected, Consumer<DumpWriter> actual) {
+        ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+        try (PrintStream ps = new PrintStream(expectedBytes, false, charset.name())) {
+            expected.accept(ps);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+
+        ByteArrayOutputStream actualBytes = new ByteArrayOutputStream();
+        try (DumpWriter out = new DumpWriter(Channels.newChannel(actualBytes), charset)) {
+            actual.accept(out);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+
+        assertArrayEquals(expectedBytes.toByteArray(), actualBytes.toByteArray());
+    }
+}
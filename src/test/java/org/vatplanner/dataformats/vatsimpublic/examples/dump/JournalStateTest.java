@@ -0,0 +1,62 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalStateTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecover_linesOfCommittedSegment_appendsToJournal() throws IOException {
+        File journal = tempDir.resolve("test.journal").toFile();
+        write(journal, "F\t/data/a.txt\t1\t2");
+        write(tempDir.resolve("test.journal.0.vppd.gz").toFile(), "segment");
+        File lines = tempDir.resolve("test.journal.0.lines").toFile();
+        write(lines, "F\t/data/b.txt\t3\t4", "E\t/data/c.tar\tx.txt");
+
+        new JournalState(journal).recover();
+
+        assertEquals(
+            Arrays.asList("F\t/data/a.txt\t1\t2", "F\t/data/b.txt\t3\t4", "E\t/data/c.tar\tx.txt"),
+            read(journal) //
+        );
+        assertFalse(lines.exists());
+    }
+
+    @Test
+    void testRecover_linesWithoutSegment_discardsLines() throws IOException {
+        File journal = tempDir.resolve("test.journal").toFile();
+        write(journal, "F\t/data/a.txt\t1\t2");
+        write(tempDir.resolve("test.journal.0.vppd.gz").toFile(), "segment");
+        File lines = tempDir.resolve("test.journal.1.lines").toFile();
+        write(lines, "F\t/data/b.txt\t3\t4");
+
+        JournalState state = new JournalState(journal);
+        state.recover();
+
+        assertEquals(Arrays.asList("F\t/data/a.txt\t1\t2"), read(journal));
+        assertFalse(lines.exists());
+        assertEquals(1, state.getSegments().size());
+    }
+
+    private static void write(File file, String... lines) throws IOException {
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,547 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PreparsedDataFilesTest {
+
+    // format constants mirrored to craft corrupted files
+    private static final int MAGIC = 0x56505044;
+    private static final int VERSION = 1;
+    private static final int RECORD_DATA_FILE = 1;
+    private static final int RECORD_END = 0;
+    private static final int TAG_INT = 3;
+    private static final int TAG_STRING_REF = 8;
+    private static final int TAG_STRING_NEW = 9;
+    private static final int TAG_COLLECTION = 17;
+    private static final int TAG_OBJECT = 18;
+
+    @TempDir
+    Path tempDir;
+
+    public enum Kind {
+        PILOT,
+        ATC;
+    }
+
+    public static class Nested {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    public static class Bean {
+        private String name;
+        private String alias;
+        private int count;
+        private long big;
+        private double ratio;
+        private float factor;
+        private boolean flag;
+        private char letter;
+        private Integer optional;
+        private Kind kind;
+        private Instant time;
+        private Duration duration;
+        private LocalDate date;
+        private LocalTime localTime;
+        private LocalDateTime dateTime;
+        private List<String> tags;
+        private Set<Integer> numbers;
+        private Nested nested;
+        private List<Nested> children;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public void setAlias(String alias) {
+            this.alias = alias;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getBig() {
+            return big;
+        }
+
+        public void setBig(long big) {
+            this.big = big;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public float getFactor() {
+            return factor;
+        }
+
+        public void setFactor(float factor) {
+            this.factor = factor;
+        }
+
+        public boolean isFlag() {
+            return flag;
+        }
+
+        public void setFlag(boolean flag) {
+            this.flag = flag;
+        }
+
+        public char getLetter() {
+            return letter;
+        }
+
+        public void setLetter(char letter) {
+            this.letter = letter;
+        }
+
+        public Integer getOptional() {
+            return optional;
+        }
+
+        public void setOptional(Integer optional) {
+            this.optional = optional;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public void setKind(Kind kind) {
+            this.kind = kind;
+        }
+
+        public Instant getTime() {
+            return time;
+        }
+
+        public void setTime(Instant time) {
+            this.time = time;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public void setDuration(Duration duration) {
+            this.duration = duration;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public void setDate(LocalDate date) {
+            this.date = date;
+        }
+
+        public LocalTime getLocalTime() {
+            return localTime;
+        }
+
+        public void setLocalTime(LocalTime localTime) {
+            this.localTime = localTime;
+        }
+
+        public LocalDateTime getDateTime() {
+            return dateTime;
+        }
+
+        public void setDateTime(LocalDateTime dateTime) {
+            this.dateTime = dateTime;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Set<Integer> getNumbers() {
+            return numbers;
+        }
+
+        public void setNumbers(Set<Integer> numbers) {
+            this.numbers = numbers;
+        }
+
+        public Nested getNested() {
+            return nested;
+        }
+
+        public void setNested(Nested nested) {
+            this.nested = nested;
+        }
+
+        public List<Nested> getChildren() {
+            return children;
+        }
+
+        public void setChildren(List<Nested> children) {
+            this.children = children;
+        }
+    }
+
+    public static class PartialBean {
+        private String name;
+        private Map<String, String> attributes;
+        private StringBuilder buffer;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+
+        public StringBuilder getBuffer() {
+            return buffer;
+        }
+
+        public void setBuffer(StringBuilder buffer) {
+            this.buffer = buffer;
+        }
+
+        public int getNameLength() {
+            return (name != null) ? name.length() : 0;
+        }
+    }
+
+    public static class NormalizingBean {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = (name != null) ? name.trim() : null;
+        }
+    }
+
+    @Test
+    void testRoundTrip_allSupportedTypes_restoresAllProperties() throws IOException {
+        Bean bean = createBean("DLH123", 1);
+
+        Bean restored = (Bean) readRecords(writeRecords(bean), 1).get(0);
+
+        assertBeanEquals(bean, restored);
+    }
+
+    @Test
+    void testRoundTrip_nullValues_restoresNullsAndKeepsPrimitiveDefaults() throws IOException {
+        Bean bean = new Bean();
+
+        Bean restored = (Bean) readRecords(writeRecords(bean), 1).get(0);
+
+        assertBeanEquals(bean, restored);
+    }
+
+    @Test
+    void testRoundTrip_multipleRecords_restoresInOrderAndSharesRepeatedStrings() throws IOException {
+        Bean first = createBean("BAW1", 1);
+        Bean second = createBean("BAW1", 2);
+
+        List<Object> restored = readRecords(writeRecords(first, second), 2);
+
+        assertEquals(2, restored.size());
+        assertBeanEquals(first, (Bean) restored.get(0));
+        assertBeanEquals(second, (Bean) restored.get(1));
+        assertSame(((Bean) restored.get(0)).getName(), ((Bean) restored.get(1)).getName());
+    }
+
+    @Test
+    void testRoundTrip_unsupportedProperties_omitsOnlyThose() throws IOException {
+        PartialBean bean = new PartialBean();
+        bean.setName("EGLL_TWR");
+        bean.setAttributes(Collections.singletonMap("key", "value"));
+        bean.setBuffer(new StringBuilder("buffer"));
+
+        PartialBean restored = (PartialBean) readRecords(writeRecords(bean), 1).get(0);
+
+        assertEquals("EGLL_TWR", restored.getName());
+        assertEquals(8, restored.getNameLength());
+        assertNull(restored.getAttributes());
+        assertNull(restored.getBuffer());
+    }
+
+    @Test
+    void testVerifyRoundTrip_restoredIdentically_passes() throws IOException {
+        PreparsedDataFiles.verifyRoundTrip(createBean("KLM1", 1));
+        PreparsedDataFiles.verifyRoundTrip(new Bean());
+    }
+
+    @Test
+    void testVerifyRoundTrip_setterChangesValue_throwsIOException() {
+        NormalizingBean bean = new NormalizingBean();
+        bean.name = " untrimmed ";
+
+        assertThrows(IOException.class, () -> PreparsedDataFiles.verifyRoundTrip(bean));
+    }
+
+    @Test
+    void testCreate_compressedFileNames_canBeOpenedAgain() throws IOException {
+        for (String name : Arrays.asList("plain.vppd", "compressed.vppd.gz", "compressed.vppd.xz", "UPPER.VPPD.GZ")) {
+            File file = tempDir.resolve(name).toFile();
+            Bean bean = createBean(name, 3);
+
+            try (PreparsedDataFiles.Writer writer = PreparsedDataFiles.create(file)) {
+                writer.writeRecord(bean);
+            }
+
+            try (PreparsedDataFiles.Reader reader = PreparsedDataFiles.open(file)) {
+                assertBeanEquals(bean, (Bean) reader.nextRecord());
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    @Test
+    void testNext_missingEndMarker_throwsEOFException() throws IOException {
+        byte[] bytes = writeRecords(createBean("AAL1", 1));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+
+        assertThrows(EOFException.class, () -> readRecords(truncated, 1));
+    }
+
+    @Test
+    void testNext_corruptedCollectionSize_throwsIOException() throws IOException {
+        byte[] bytes = craft(out -> {
+            out.writeByte(TAG_COLLECTION);
+            writeVarLong(out, Long.MAX_VALUE);
+        });
+
+        IOException ex = assertThrows(IOException.class, () -> readRecords(bytes, 1));
+        assertTrue(ex.getMessage().contains("collection size"));
+    }
+
+    @Test
+    void testNext_corruptedStringLength_throwsIOException() throws IOException {
+        byte[] bytes = craft(out -> {
+            out.writeByte(TAG_STRING_NEW);
+            writeVarLong(out, Integer.MAX_VALUE);
+        });
+
+        IOException ex = assertThrows(IOException.class, () -> readRecords(bytes, 1));
+        assertTrue(ex.getMessage().contains("string length"));
+    }
+
+    @Test
+    void testNext_negativeStringReference_throwsIOException() throws IOException {
+        byte[] bytes = craft(out -> {
+            out.writeByte(TAG_STRING_REF);
+            writeVarLong(out, -1L);
+        });
+
+        assertThrows(IOException.class, () -> readRecords(bytes, 1));
+    }
+
+    @Test
+    void testNext_classOutsideOfLibrary_isNotRestored() throws IOException {
+        // public class with default constructor and bean properties
+        byte[] bytes = craft(out -> {
+            out.writeByte(TAG_OBJECT);
+            writeVarLong(out, 0);
+            writeString(out, "org.apache.commons.cli.HelpFormatter");
+            writeVarLong(out, 1);
+            writeString(out, "Width");
+            out.writeByte(TAG_INT);
+            writeVarLong(out, 200 << 1);
+        });
+
+        List<Object> restored = readRecords(bytes, 1);
+
+        assertEquals(1, restored.size());
+        assertNull(restored.get(0));
+    }
+
+    @Test
+    void testWriteRecord_classOutsideOfLibrary_throwsIllegalArgumentException() throws IOException {
+        try (PreparsedDataFiles.Writer writer = new PreparsedDataFiles.Writer(new ByteArrayOutputStream())) {
+            assertThrows(IllegalArgumentException.class, () -> writer.writeRecord(new StringBuilder("test")));
+        }
+    }
+
+    private static Bean createBean(String name, int variant) {
+        Nested nested = new Nested();
+        nested.setValue("nested " + variant);
+
+        Nested child = new Nested();
+        child.setValue(name);
+
+        Bean bean = new Bean();
+        bean.setName(name);
+        bean.setAlias(null);
+        bean.setCount(-42 * variant);
+        bean.setBig(Long.MAX_VALUE - variant);
+        bean.setRatio(0.1 * variant);
+        bean.setFactor(-1.5f * variant);
+        bean.setFlag(true);
+        bean.setLetter('ä');
+        bean.setOptional(variant);
+        bean.setKind(Kind.ATC);
+        bean.setTime(Instant.parse("2020-09-13T12:34:56.789Z").plusSeconds(variant));
+        bean.setDuration(Duration.ofMillis(-1500L * variant));
+        bean.setDate(LocalDate.of(1999, 12, 31));
+        bean.setLocalTime(LocalTime.of(23, 59, 58, 123456789));
+        bean.setDateTime(LocalDateTime.of(2020, 2, 29, 0, 0, 1));
+        bean.setTags(new ArrayList<>(Arrays.asList("b", "a", "b", "ümläut")));
+        bean.setNumbers(new LinkedHashSet<>(Arrays.asList(3, 1, 2)));
+        bean.setNested(nested);
+        bean.setChildren(new ArrayList<>(Arrays.asList(child, null)));
+        return bean;
+    }
+
+    private static void assertBeanEquals(Bean expected, Bean actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getAlias(), actual.getAlias());
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getBig(), actual.getBig());
+        assertEquals(expected.getRatio(), actual.getRatio());
+        assertEquals(expected.getFactor(), actual.getFactor());
+        assertEquals(expected.isFlag(), actual.isFlag());
+        assertEquals(expected.getLetter(), actual.getLetter());
+        assertEquals(expected.getOptional(), actual.getOptional());
+        assertEquals(expected.getKind(), actual.getKind());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getLocalTime(), actual.getLocalTime());
+        assertEquals(expected.getDateTime(), actual.getDateTime());
+        assertEquals(expected.getTags(), actual.getTags());
+        assertEquals(expected.getNumbers(), actual.getNumbers());
+        if (expected.getNumbers() != null) {
+            assertEquals(new ArrayList<>(expected.getNumbers()), new ArrayList<>(actual.getNumbers()));
+        }
+        assertEquals(getValue(expected.getNested()), getValue(actual.getNested()));
+        if (expected.getChildren() == null) {
+            assertNull(actual.getChildren());
+        } else {
+            assertEquals(expected.getChildren().size(), actual.getChildren().size());
+            for (int i = 0; i < expected.getChildren().size(); i++) {
+                assertEquals(getValue(expected.getChildren().get(i)), getValue(actual.getChildren().get(i)));
+            }
+        }
+    }
+
+    private static String getValue(Nested nested) {
+        return (nested != null) ? nested.getValue() : null;
+    }
+
+    private static byte[] writeRecords(Object... values) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (PreparsedDataFiles.Writer writer = new PreparsedDataFiles.Writer(baos)) {
+            for (Object value : values) {
+                writer.writeRecord(value);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static List<Object> readRecords(byte[] bytes, int numRecords) throws IOException {
+        List<Object> records = new ArrayList<>();
+        try (PreparsedDataFiles.Reader reader = new PreparsedDataFiles.Reader(new ByteArrayInputStream(bytes))) {
+            for (int i = 0; i < numRecords; i++) {
+                records.add(reader.nextRecord());
+            }
+            assertNull(reader.next());
+        }
+        return records;
+    }
+
+    @FunctionalInterface
+    private interface RecordContent {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] craft(RecordContent content) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(RECORD_DATA_FILE);
+            content.write(out);
+            out.writeByte(RECORD_END);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(TAG_STRING_NEW);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
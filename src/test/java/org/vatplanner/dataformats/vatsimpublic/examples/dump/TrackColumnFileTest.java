@@ -0,0 +1,213 @@
+package org.vatplanner.dataformats.vatsimpublic.examples.dump;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrackColumnFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static class TestPoint {
+        final long time;
+        final double latitude;
+        final double longitude;
+        final int altitudeFeet;
+        final int flightLevel;
+        final int heading;
+        final int groundSpeed;
+        final double qnhHectopascals;
+        final int transponderCode;
+
+        TestPoint(long time, double latitude, double longitude, int altitudeFeet, int flightLevel, int heading, int groundSpeed, double qnhHectopascals, int transponderCode) {
+            this.time = time;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.altitudeFeet = altitudeFeet;
+            this.flightLevel = flightLevel;
+            this.heading = heading;
+            this.groundSpeed = groundSpeed;
+            this.qnhHectopascals = qnhHectopascals;
+            this.transponderCode = transponderCode;
+        }
+    }
+
+    private static class TestFlight {
+        final int vatsimId;
+        final String callsign;
+        final List<TestPoint> points;
+
+        TestFlight(int vatsimId, String callsign, TestPoint... points) {
+            this.vatsimId = vatsimId;
+            this.callsign = callsign;
+            this.points = Arrays.asList(points);
+        }
+    }
+
+    @Test
+    void testRoundTrip_singleBlock_restoresAllFlightsAndPoints() throws IOException {
+        List<TestFlight> flights = Arrays.asList(
+            new TestFlight(
+                1234567, "DLH123",
+                new TestPoint(1600000000000L, 50.0333, 8.5706, 364, 0, 250, 0, 1013.25, 2000),
+                new TestPoint(1600000015000L, 50.1234567, 8.7654321, 3500, 35, 251, 180, 1012.5, 2000),
+                new TestPoint(1600000030123L, -33.9461, 151.1772, 38000, 380, 0, 470, 1013.0, 7000) //
+            ),
+            new TestFlight(
+                7654321, "BAW1ÄÖ",
+                new TestPoint(1599999999000L, -12.5, -179.9999999, -50, -1, 359, 3, 950.75, 1200) //
+            ) //
+        );
+
+        File file = write(flights, 1000);
+
+        assertFlights(flights, readFlights(file), 1);
+    }
+
+    @Test
+    void testRoundTrip_missingCoordinatesAndQnh_restoresAsNaN() throws IOException {
+        List<TestFlight> flights = Arrays.asList(
+            new TestFlight(
+                1000001, "N123AB",
+                new TestPoint(1600000000000L, 40.6413, -73.7781, 13, 0, 40, 0, 1020.0, 1200),
+                new TestPoint(1600000015000L, Double.NaN, Double.NaN, 0, 10, 45, 150, Double.NaN, 1200),
+                new TestPoint(1600000030000L, 40.7, -73.7, 2000, 20, 50, 200, Double.NaN, 1200),
+                new TestPoint(1600000045000L, Double.NaN, Double.NaN, 0, 30, 55, 210, 1019.5, 4321) //
+            ) //
+        );
+
+        File file = write(flights, 1000);
+
+        assertFlights(flights, readFlights(file), 1);
+    }
+
+    @Test
+    void testRoundTrip_smallBlocks_splitsBetweenFlightsOnly() throws IOException {
+        List<TestFlight> flights = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TestPoint[] points = new TestPoint[3 + i];
+            for (int j = 0; j < points.length; j++) {
+                points[j] = new TestPoint(
+                    1600000000000L + (i * 3600000L) + (j * 15000L),
+                    10.0 + (0.01 * j), 20.0 - (0.01 * j), 1000 * j,
+                    10 * j, (i * 37) % 360, 100 + j, 1000.0 + i, 2000 + i //
+                );
+            }
+            flights.add(new TestFlight(800000 + i, "TEST" + i, points));
+        }
+
+        File file = write(flights, 8);
+
+        // blocks are closed after the flight reaching at least 8 points
+        assertFlights(flights, readFlights(file), 7);
+    }
+
+    @Test
+    void testRoundTrip_noFlights_hasNoBlocks() throws IOException {
+        File file = write(new ArrayList<>(), 1000);
+
+        try (TrackColumnFile trackFile = new TrackColumnFile(file)) {
+            assertNull(trackFile.nextBlock());
+            assertNull(trackFile.nextBlock());
+        }
+    }
+
+    @Test
+    void testNextBlock_truncatedFile_throwsEOFException() throws IOException {
+        List<TestFlight> flights = Arrays.asList(
+            new TestFlight(1, "A", new TestPoint(1L, 1.0, 2.0, 3, 4, 5, 6, 1000.0, 7)) //
+        );
+        File file = write(flights, 1000);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 2));
+
+        try (TrackColumnFile trackFile = new TrackColumnFile(file)) {
+            assertThrows(EOFException.class, trackFile::nextBlock);
+        }
+    }
+
+    @Test
+    void testOpen_otherFile_throwsIOException() throws IOException {
+        File file = tempDir.resolve("other.bin").toFile();
+        Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+        assertThrows(IOException.class, () -> new TrackColumnFile(file));
+    }
+
+    private File write(List<TestFlight> flights, int pointsPerBlock) throws IOException {
+        File file = tempDir.resolve("tracks.vptc").toFile();
+        try (TrackColumnFile.Writer writer = new TrackColumnFile.Writer(file, pointsPerBlock)) {
+            for (TestFlight flight : flights) {
+                writer.startFlight(flight.vatsimId, flight.callsign, flight.points.size());
+                for (TestPoint point : flight.points) {
+                    writer.addPoint(
+                        point.time, point.latitude, point.longitude, point.altitudeFeet, point.flightLevel,
+                        point.heading, point.groundSpeed, point.qnhHectopascals, point.transponderCode //
+                    );
+                }
+                writer.endFlight();
+            }
+        }
+        return file;
+    }
+
+    private static List<TrackColumnFile.Block> readFlights(File file) throws IOException {
+        List<TrackColumnFile.Block> blocks = new ArrayList<>();
+        try (TrackColumnFile trackFile = new TrackColumnFile(file)) {
+            TrackColumnFile.Block block;
+            while ((block = trackFile.nextBlock()) != null) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    private static void assertFlights(List<TestFlight> expected, List<TrackColumnFile.Block> blocks, int expectedBlocks) {
+        assertEquals(expectedBlocks, blocks.size());
+
+        int flightIndex = 0;
+        for (TrackColumnFile.Block block : blocks) {
+            int expectedPoints = 0;
+            for (int i = 0; i < block.getNumberOfFlights(); i++) {
+                TestFlight flight = expected.get(flightIndex++);
+                assertEquals(flight.vatsimId, block.getVatsimId(i));
+                assertEquals(flight.callsign, block.getCallsign(i));
+                assertEquals(expectedPoints, block.getFirstPoint(i));
+                assertEquals(flight.points.size(), block.getNumberOfPoints(i));
+
+                for (int j = 0; j < flight.points.size(); j++) {
+                    assertPointEquals(flight.points.get(j), block, expectedPoints + j);
+                }
+                expectedPoints += flight.points.size();
+            }
+            assertEquals(expectedPoints, block.getNumberOfPoints());
+        }
+        assertEquals(expected.size(), flightIndex);
+    }
+
+    private static void assertPointEquals(TestPoint expected, TrackColumnFile.Block block, int index) {
+        boolean hasCoordinates = !Double.isNaN(expected.latitude);
+        assertEquals(expected.time, block.getTimes()[index]);
+        assertEquals(expected.latitude, block.getLatitudes()[index]);
+        assertEquals(expected.longitude, block.getLongitudes()[index]);
+        assertEquals(hasCoordinates ? expected.altitudeFeet : 0, block.getAltitudesFeet()[index]);
+        assertEquals(expected.flightLevel, block.getFlightLevels()[index]);
+        assertEquals(expected.heading, block.getHeadings()[index]);
+        assertEquals(expected.groundSpeed, block.getGroundSpeeds()[index]);
+        assertEquals(expected.qnhHectopascals, block.getQnhHectopascals()[index]);
+        assertEquals(expected.transponderCode, block.getTransponderCodes()[index]);
+    }
+}